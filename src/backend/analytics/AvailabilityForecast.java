@@ -0,0 +1,121 @@
+package backend.analytics;
+
+import java.time.Duration;
+
+/**
+ * Predicted availability of a floor/type combination, as published by
+ * {@link AvailabilityForecaster}. Immutable.
+ */
+public class AvailabilityForecast {
+
+    private final String floorId;               // null for the whole lot
+    private final String vehicleType;           // null for all types
+    private final int capacity;
+    private final int occupied;
+    private final double arrivalsPerHour;
+    private final double departuresPerHour;
+    private final long computedAtEpochSecond;
+
+    public AvailabilityForecast(String floorId, String vehicleType, int capacity, int occupied,
+                                double arrivalsPerHour, double departuresPerHour, long computedAtEpochSecond) {
+        this.floorId = floorId;
+        this.vehicleType = vehicleType;
+        this.capacity = capacity;
+        this.occupied = occupied;
+        this.arrivalsPerHour = arrivalsPerHour;
+        this.departuresPerHour = departuresPerHour;
+        this.computedAtEpochSecond = computedAtEpochSecond;
+    }
+
+    // Getters
+    public String getFloorId() {
+        return floorId;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getOccupied() {
+        return occupied;
+    }
+
+    public int getFree() {
+        return Math.max(0, capacity - occupied);
+    }
+
+    public double getArrivalsPerHour() {
+        return arrivalsPerHour;
+    }
+
+    public double getDeparturesPerHour() {
+        return departuresPerHour;
+    }
+
+    /**
+     * Event time the forecast was computed at.
+     */
+    public long getComputedAtEpochSecond() {
+        return computedAtEpochSecond;
+    }
+
+    /**
+     * Expected time until no slot is free, at the current net inflow.
+     * @return zero if already full, or null if occupancy is not rising
+     */
+    public Duration getTimeToFull() {
+        if (getFree() == 0) {
+            return Duration.ZERO;
+        }
+        double netPerHour = arrivalsPerHour - departuresPerHour;
+        if (netPerHour <= 0) {
+            return null;
+        }
+        return Duration.ofSeconds(Math.round(getFree() / netPerHour * 3600));
+    }
+
+    /**
+     * Expected wait for a slot to come free.
+     * @return zero if a slot is free now, or null if no departures have been seen
+     */
+    public Duration getTimeToFreeSlot() {
+        if (getFree() > 0) {
+            return Duration.ZERO;
+        }
+        if (departuresPerHour <= 0) {
+            return null;
+        }
+        return Duration.ofSeconds(Math.round(3600 / departuresPerHour));
+    }
+
+    /**
+     * Signboard text, e.g. "F1 full in ~12 min" or "F1 full, next space ~3 min".
+     */
+    public String describe() {
+        String name = floorId == null ? "Lot" : floorId;
+        if (getFree() == 0) {
+            Duration wait = getTimeToFreeSlot();
+            return wait == null ? name + " full" : name + " full, next space ~" + minutes(wait) + " min";
+        }
+        Duration full = getTimeToFull();
+        if (full != null && full.toMinutes() < 120) {
+            return name + " full in ~" + minutes(full) + " min";
+        }
+        return name + ": " + getFree() + " free";
+    }
+
+    private static long minutes(Duration duration) {
+        return Math.max(1, Math.round(duration.getSeconds() / 60.0));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Forecast[%s/%s, %d/%d occupied, in=%.1f/h, out=%.1f/h]",
+                floorId == null ? "*" : floorId, vehicleType == null ? "*" : vehicleType,
+                occupied, capacity, arrivalsPerHour, departuresPerHour);
+    }
+}
@@ -0,0 +1,182 @@
+package backend.analytics;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online arrival/departure rate estimates per floor and slot type, turned
+ * into time-to-full and time-to-free-slot predictions for signage.
+ *
+ * Each combination (plus per-floor, per-type and lot-wide totals, as in
+ * {@link OccupancyTimeSeries}) keeps an exponentially weighted event rate
+ * for arrivals and for departures: every event decays the previous estimate
+ * by exp(-elapsed / window) and adds 1 / window, an O(1) update that needs
+ * no history. After each event the affected combinations publish a fresh
+ * immutable {@link AvailabilityForecast}, so {@link #forecast} is a single
+ * map lookup and can be polled by any number of signboards.
+ *
+ * Rates only change on events; call {@link #advanceTo} periodically so
+ * quiet periods decay the estimates.
+ */
+public class AvailabilityForecaster implements ParkingEventListener {
+
+    private static final String ALL = "*";
+
+    private final ZoneId zone;
+    private final double windowSeconds;
+    private final Map<String, Estimate> estimates;      // Map "floorId|type" -> estimate, written under this lock
+    private final Map<String, AvailabilityForecast> published;  // Map "floorId|type" -> latest forecast, read lock-free
+
+    /**
+     * Creates a forecaster seeded with the floors' current capacity and
+     * occupancy, averaging rates over roughly the last fifteen minutes.
+     */
+    public AvailabilityForecaster(List<ParkingFloor> floors) {
+        this(floors, Duration.ofMinutes(15), ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructor
+     * @param floors floors whose capacity and occupancy seed the estimates
+     * @param window time constant of the rate averages; shorter reacts faster but is noisier
+     * @param zone zone used to convert event timestamps to epoch seconds
+     */
+    public AvailabilityForecaster(List<ParkingFloor> floors, Duration window, ZoneId zone) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.zone = zone;
+        this.windowSeconds = window.getSeconds() + window.getNano() / 1e9;
+        this.estimates = new ConcurrentHashMap<>();
+        this.published = new ConcurrentHashMap<>();
+        resync(floors);
+    }
+
+    /**
+     * Rate estimate and counts for one floor/type combination.
+     */
+    private static final class Estimate {
+        final String floorId;
+        final String type;
+        int capacity;
+        int occupied;
+        double arrivals;        // Events per second
+        double departures;
+        long lastTime = Long.MIN_VALUE;
+
+        Estimate(String floorId, String type) {
+            this.floorId = floorId;
+            this.type = type;
+        }
+
+        void decayTo(long time, double windowSeconds) {
+            if (lastTime != Long.MIN_VALUE && time > lastTime) {
+                double factor = Math.exp(-(time - lastTime) / windowSeconds);
+                arrivals *= factor;
+                departures *= factor;
+            }
+            lastTime = Math.max(lastTime, time);
+        }
+
+        AvailabilityForecast snapshot() {
+            return new AvailabilityForecast(ALL.equals(floorId) ? null : floorId, ALL.equals(type) ? null : type,
+                    capacity, occupied, arrivals * 3600, departures * 3600, lastTime == Long.MIN_VALUE ? 0 : lastTime);
+        }
+    }
+
+    /**
+     * Recounts capacity and occupancy from the floors, keeping the rate
+     * estimates. Call after the lot is reconfigured.
+     * @param floors floors now managed by the service
+     */
+    public synchronized void resync(List<ParkingFloor> floors) {
+        for (Estimate estimate : estimates.values()) {
+            estimate.capacity = 0;
+            estimate.occupied = 0;
+        }
+        for (ParkingFloor floor : floors) {
+            for (ParkingSlot slot : floor.getSlots()) {
+                int capacity = slot.isOutOfService() && !slot.isOccupied() ? 0 : 1;
+                int occupied = slot.isOccupied() ? 1 : 0;
+                for (Estimate estimate : estimatesFor(floor.getFloorId(), slot.getCompatibleType())) {
+                    estimate.capacity += capacity;
+                    estimate.occupied += occupied;
+                }
+            }
+        }
+        for (Estimate estimate : estimates.values()) {
+            published.put(key(estimate.floorId, estimate.type), estimate.snapshot());
+        }
+    }
+
+    @Override
+    public void vehicleParked(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token) {
+        record(floor.getFloorId(), slot.getCompatibleType(), token.getEntryTime(), true);
+    }
+
+    @Override
+    public void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        record(floor.getFloorId(), slot.getCompatibleType(), token.getExitTime(), false);
+    }
+
+    private synchronized void record(String floorId, String type, LocalDateTime when, boolean arrival) {
+        long time = when.atZone(zone).toEpochSecond();
+        for (Estimate estimate : estimatesFor(floorId, type)) {
+            estimate.decayTo(time, windowSeconds);
+            if (arrival) {
+                estimate.arrivals += 1 / windowSeconds;
+                estimate.occupied++;
+            } else {
+                estimate.departures += 1 / windowSeconds;
+                estimate.occupied = Math.max(0, estimate.occupied - 1);
+            }
+            published.put(key(estimate.floorId, estimate.type), estimate.snapshot());
+        }
+    }
+
+    private Estimate[] estimatesFor(String floorId, String type) {
+        return new Estimate[] {
+                estimate(floorId, type), estimate(floorId, ALL), estimate(ALL, type), estimate(ALL, ALL)
+        };
+    }
+
+    private Estimate estimate(String floorId, String type) {
+        return estimates.computeIfAbsent(key(floorId, type), k -> new Estimate(floorId, type));
+    }
+
+    private static String key(String floorId, String type) {
+        return floorId + "|" + type;
+    }
+
+    /**
+     * Decays every estimate to the given time and republishes, so a quiet
+     * lot stops forecasting the last rush.
+     * @param epochSecond time to advance to
+     */
+    public synchronized void advanceTo(long epochSecond) {
+        for (Estimate estimate : estimates.values()) {
+            estimate.decayTo(epochSecond, windowSeconds);
+            published.put(key(estimate.floorId, estimate.type), estimate.snapshot());
+        }
+    }
+
+    /**
+     * Returns the latest forecast without locking.
+     * @param floorId floor to query, or null for the whole lot
+     * @param vehicleType slot type to query, or null for all types
+     * @return the forecast, or null if the combination has no slots
+     */
+    public AvailabilityForecast forecast(String floorId, String vehicleType) {
+        return published.get(key(floorId == null ? ALL : floorId, vehicleType == null ? ALL : vehicleType));
+    }
+}
@@ -0,0 +1,45 @@
+package backend.analytics;
+
+/**
+ * Occupancy summary for a time range, as returned by {@link OccupancyTimeSeries}.
+ */
+public class OccupancyStats {
+
+    private final int peak;
+    private final int minimum;
+    private final double average;
+    private final int resolutionSeconds;
+
+    public OccupancyStats(int peak, int minimum, double average, int resolutionSeconds) {
+        this.peak = peak;
+        this.minimum = minimum;
+        this.average = average;
+        this.resolutionSeconds = resolutionSeconds;
+    }
+
+    // Getters
+    public int getPeak() {
+        return peak;
+    }
+
+    public int getMinimum() {
+        return minimum;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Bucket width of the level that answered the query.
+     */
+    public int getResolutionSeconds() {
+        return resolutionSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Occupancy[peak=%d, min=%d, avg=%.1f, resolution=%ds]",
+                peak, minimum, average, resolutionSeconds);
+    }
+}
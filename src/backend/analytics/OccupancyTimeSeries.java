@@ -0,0 +1,253 @@
+package backend.analytics;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Embedded occupancy history fed by park and exit events.
+ *
+ * Occupancy is tracked per (floor, vehicle type) plus the per-floor, per-type
+ * and lot-wide totals, so peaks of aggregates are exact rather than sums of
+ * peaks. Each series keeps four levels of ring buffers in primitive arrays:
+ * 1-second buckets for the last hour, 1-minute buckets for eight days, 1-hour
+ * buckets for a year and 1-day buckets for ten years. Every level is updated
+ * directly from the occupancy step function, so roll-ups need no background
+ * work and memory stays fixed per series.
+ *
+ * Queries pick the finest level that still covers the range in a few
+ * thousand buckets, so "peak FW occupancy on F1 last week" reads about
+ * 10k minute buckets at most.
+ */
+public class OccupancyTimeSeries implements ParkingEventListener {
+
+    private static final int[] WIDTHS = {1, 60, 3600, 86400};
+    private static final int[] CAPACITIES = {3600, 8 * 1440, 366 * 24, 3650};
+    private static final long MAX_QUERY_BUCKETS = 10_080;
+
+    private static final String ALL = "*";
+
+    private final ZoneId zone;
+    private final Map<String, Series> series;       // Map "floorId|type" -> series
+
+    public OccupancyTimeSeries() {
+        this(ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructor
+     * @param zone zone used to convert event timestamps to epoch seconds
+     */
+    public OccupancyTimeSeries(ZoneId zone) {
+        this.zone = zone;
+        this.series = new HashMap<>();
+    }
+
+    /**
+     * One level of buckets: ring buffers indexed by bucket number modulo capacity.
+     */
+    private static final class Level {
+        final int width;
+        final int capacity;
+        final long[] bucket;    // Bucket number held at each position, -1 if empty
+        final int[] max;
+        final int[] min;
+        final long[] sum;       // Occupancy-seconds accumulated in the bucket
+        long latest = -1;
+
+        Level(int width, int capacity) {
+            this.width = width;
+            this.capacity = capacity;
+            this.bucket = new long[capacity];
+            this.max = new int[capacity];
+            this.min = new int[capacity];
+            this.sum = new long[capacity];
+            java.util.Arrays.fill(bucket, -1);
+        }
+
+        private int slot(long b, int value) {
+            int pos = (int) Math.floorMod(b, (long) capacity);
+            if (bucket[pos] != b) {
+                bucket[pos] = b;
+                max[pos] = value;
+                min[pos] = value;
+                sum[pos] = 0;
+            }
+            latest = Math.max(latest, b);
+            return pos;
+        }
+
+        /**
+         * Adds a constant-value segment [from, to) to every bucket it overlaps,
+         * skipping buckets that would be overwritten within the same call.
+         */
+        void addSegment(long from, long to, int value) {
+            long first = Math.floorDiv(from, width);
+            long last = Math.floorDiv(to - 1, width);
+            first = Math.max(first, last - capacity + 1);
+            for (long b = first; b <= last; b++) {
+                int pos = slot(b, value);
+                long start = Math.max(from, b * width);
+                long end = Math.min(to, (b + 1) * width);
+                sum[pos] += (long) value * (end - start);
+                if (value > max[pos]) max[pos] = value;
+                if (value < min[pos]) min[pos] = value;
+            }
+        }
+
+        /**
+         * Records an instantaneous value so short-lived peaks are not lost.
+         */
+        void touch(long time, int value) {
+            int pos = slot(Math.floorDiv(time, width), value);
+            if (value > max[pos]) max[pos] = value;
+            if (value < min[pos]) min[pos] = value;
+        }
+
+        long oldestRetainedSecond() {
+            return (latest - capacity + 1) * width;
+        }
+    }
+
+    /**
+     * Occupancy history of one floor/type combination.
+     */
+    private static final class Series {
+        final Level[] levels = new Level[WIDTHS.length];
+        int current;
+        long lastTime = Long.MIN_VALUE;
+
+        Series() {
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new Level(WIDTHS[i], CAPACITIES[i]);
+            }
+        }
+
+        void advanceTo(long time) {
+            if (lastTime == Long.MIN_VALUE) {
+                lastTime = time;
+                return;
+            }
+            if (time > lastTime) {
+                for (Level level : levels) {
+                    level.addSegment(lastTime, time, current);
+                }
+                lastTime = time;
+            }
+        }
+
+        void change(long time, int delta) {
+            advanceTo(time);
+            current += delta;
+            for (Level level : levels) {
+                level.touch(Math.max(time, lastTime), current);
+            }
+        }
+    }
+
+    @Override
+    public void vehicleParked(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token) {
+        record(floor.getFloorId(), slot.getCompatibleType(), token.getEntryTime(), +1);
+    }
+
+    @Override
+    public void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        record(floor.getFloorId(), slot.getCompatibleType(), token.getExitTime(), -1);
+    }
+
+    private synchronized void record(String floorId, String type, LocalDateTime when, int delta) {
+        long time = when.atZone(zone).toEpochSecond();
+        seriesFor(floorId, type).change(time, delta);
+        seriesFor(floorId, ALL).change(time, delta);
+        seriesFor(ALL, type).change(time, delta);
+        seriesFor(ALL, ALL).change(time, delta);
+    }
+
+    private Series seriesFor(String floorId, String type) {
+        return series.computeIfAbsent(floorId + "|" + type, key -> new Series());
+    }
+
+    /**
+     * Extends every series at its current occupancy up to the given time.
+     * Call periodically (or before querying) so idle periods are recorded.
+     * @param epochSecond time to advance to
+     */
+    public synchronized void advanceTo(long epochSecond) {
+        for (Series s : series.values()) {
+            s.advanceTo(epochSecond);
+        }
+    }
+
+    /**
+     * Summarizes occupancy over [from, to).
+     * @param floorId floor to query, or null for the whole lot
+     * @param vehicleType slot type to query, or null for all types
+     * @param fromEpochSecond range start, inclusive
+     * @param toEpochSecond range end, exclusive
+     * @return stats for the range; all zero if nothing was recorded
+     */
+    public synchronized OccupancyStats query(String floorId, String vehicleType, long fromEpochSecond, long toEpochSecond) {
+        if (toEpochSecond <= fromEpochSecond) {
+            throw new IllegalArgumentException("Query range must end after it starts");
+        }
+        Series s = series.get((floorId == null ? ALL : floorId) + "|" + (vehicleType == null ? ALL : vehicleType));
+        if (s == null) {
+            return new OccupancyStats(0, 0, 0, WIDTHS[0]);
+        }
+        Level level = chooseLevel(s, fromEpochSecond, toEpochSecond);
+        long first = Math.floorDiv(fromEpochSecond, level.width);
+        long last = Math.floorDiv(toEpochSecond - 1, level.width);
+        int peak = Integer.MIN_VALUE;
+        int minimum = Integer.MAX_VALUE;
+        long sum = 0;
+        long covered = 0;
+        for (long b = Math.max(first, level.latest - level.capacity + 1); b <= last; b++) {
+            int pos = (int) Math.floorMod(b, (long) level.capacity);
+            if (level.bucket[pos] != b) {
+                continue;
+            }
+            peak = Math.max(peak, level.max[pos]);
+            minimum = Math.min(minimum, level.min[pos]);
+            sum += level.sum[pos];
+            covered += Math.min(toEpochSecond, (b + 1) * level.width) - Math.max(fromEpochSecond, b * level.width);
+        }
+        if (peak == Integer.MIN_VALUE) {
+            return new OccupancyStats(0, 0, 0, level.width);
+        }
+        return new OccupancyStats(peak, minimum, covered == 0 ? 0 : (double) sum / covered, level.width);
+    }
+
+    /**
+     * Peak occupancy over the given look-back window ending at now.
+     * @param floorId floor to query, or null for the whole lot
+     * @param vehicleType slot type to query, or null for all types
+     * @param lookbackSeconds length of the window
+     * @param nowEpochSecond end of the window
+     */
+    public OccupancyStats recent(String floorId, String vehicleType, long lookbackSeconds, long nowEpochSecond) {
+        advanceTo(nowEpochSecond);
+        return query(floorId, vehicleType, nowEpochSecond - lookbackSeconds, nowEpochSecond);
+    }
+
+    /**
+     * Finest level that still retains the range start and covers the range
+     * in at most MAX_QUERY_BUCKETS buckets; the coarsest level otherwise.
+     */
+    private static Level chooseLevel(Series s, long from, long to) {
+        for (Level level : s.levels) {
+            boolean retained = level.latest < 0 || from >= level.oldestRetainedSecond();
+            boolean smallEnough = (to - from) / level.width <= MAX_QUERY_BUCKETS;
+            if (retained && smallEnough) {
+                return level;
+            }
+        }
+        return s.levels[s.levels.length - 1];
+    }
+}
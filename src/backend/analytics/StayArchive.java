@@ -0,0 +1,588 @@
+package backend.analytics;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingEventListener;
+import backend.utils.EventLog;
+import backend.utils.VehicleFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only columnar archive of completed stays.
+ *
+ * Exits are buffered in memory as primitive column arrays. Every
+ * {@value #SEGMENT_ROWS} rows the buffer is sealed and written by a
+ * background thread into its own segment directory, one little-endian file
+ * per column (type, floor, slot, entry, exit, fee) plus a small metadata file
+ * recording the row count and exit-time range. Floor and slot IDs are
+ * dictionary encoded, so a row takes 27 bytes on disk.
+ *
+ * Reports memory-map only the columns they need and process them in chunks
+ * of primitive arrays with tight loops the JIT can unroll and vectorize.
+ * Segments whose exit range misses the queried period are skipped from
+ * their metadata alone, and segments are scanned in parallel.
+ */
+public class StayArchive implements ParkingEventListener, AutoCloseable {
+
+    static final int SEGMENT_ROWS = 1 << 20;
+    private static final int CHUNK_ROWS = 1 << 16;
+    private static final int INITIAL_ROWS = 1024;
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String META_FILE = "segment.meta";
+
+    private static final int TYPE = 1;
+    private static final int FLOOR = 2;
+    private static final int SLOT = 4;
+    private static final int ENTRY = 8;
+    private static final int EXIT = 16;
+    private static final int FEE = 32;
+
+    private final Path directory;
+    private final ZoneRules rules;
+    private final Dictionary floors;
+    private final Dictionary slots;
+    private final List<Segment> segments;           // Written segments, oldest first
+    private final List<Columns> sealed;             // Sealed buffers not yet on disk
+    private final ExecutorService writer;
+    private Columns tail;
+    private int nextSegmentId;
+
+    /**
+     * Column arrays for a run of rows: the live tail, a sealed buffer, or a scan chunk.
+     */
+    private static final class Columns {
+        byte[] type;
+        short[] floor;
+        int[] slot;
+        long[] entry;
+        long[] exit;
+        int[] fee;
+        int rows;
+        long minExit = Long.MAX_VALUE;
+        long maxExit = Long.MIN_VALUE;
+
+        Columns(int capacity) {
+            type = new byte[capacity];
+            floor = new short[capacity];
+            slot = new int[capacity];
+            entry = new long[capacity];
+            exit = new long[capacity];
+            fee = new int[capacity];
+        }
+
+        void add(byte typeCode, short floorCode, int slotCode, long entrySecond, long exitSecond, int amount) {
+            if (rows == type.length) {
+                int capacity = Math.min(SEGMENT_ROWS, rows * 2);
+                type = Arrays.copyOf(type, capacity);
+                floor = Arrays.copyOf(floor, capacity);
+                slot = Arrays.copyOf(slot, capacity);
+                entry = Arrays.copyOf(entry, capacity);
+                exit = Arrays.copyOf(exit, capacity);
+                fee = Arrays.copyOf(fee, capacity);
+            }
+            type[rows] = typeCode;
+            floor[rows] = floorCode;
+            slot[rows] = slotCode;
+            entry[rows] = entrySecond;
+            exit[rows] = exitSecond;
+            fee[rows] = amount;
+            rows++;
+            minExit = Math.min(minExit, exitSecond);
+            maxExit = Math.max(maxExit, exitSecond);
+        }
+
+        Columns copy() {
+            Columns copy = new Columns(0);
+            copy.type = Arrays.copyOf(type, rows);
+            copy.floor = Arrays.copyOf(floor, rows);
+            copy.slot = Arrays.copyOf(slot, rows);
+            copy.entry = Arrays.copyOf(entry, rows);
+            copy.exit = Arrays.copyOf(exit, rows);
+            copy.fee = Arrays.copyOf(fee, rows);
+            copy.rows = rows;
+            copy.minExit = minExit;
+            copy.maxExit = maxExit;
+            return copy;
+        }
+    }
+
+    /**
+     * A segment on disk.
+     */
+    private static final class Segment {
+        final Path path;
+        final int rows;
+        final long minExit;
+        final long maxExit;
+
+        Segment(Path path, int rows, long minExit, long maxExit) {
+            this.path = path;
+            this.rows = rows;
+            this.minExit = minExit;
+            this.maxExit = maxExit;
+        }
+
+        /**
+         * Maps the requested columns and hands them to the consumer in chunks.
+         */
+        void forEachChunk(int columns, Columns chunk, Consumer<Columns> consumer) {
+            try {
+                ByteBuffer type = (columns & TYPE) != 0 ? map("type.col") : null;
+                ByteBuffer floor = (columns & FLOOR) != 0 ? map("floor.col") : null;
+                ByteBuffer slot = (columns & SLOT) != 0 ? map("slot.col") : null;
+                ByteBuffer entry = (columns & ENTRY) != 0 ? map("entry.col") : null;
+                ByteBuffer exit = (columns & EXIT) != 0 ? map("exit.col") : null;
+                ByteBuffer fee = (columns & FEE) != 0 ? map("fee.col") : null;
+                for (int offset = 0; offset < rows; offset += CHUNK_ROWS) {
+                    int n = Math.min(CHUNK_ROWS, rows - offset);
+                    if (type != null) type.get(offset, chunk.type, 0, n);
+                    if (floor != null) floor.asShortBuffer().get(offset, chunk.floor, 0, n);
+                    if (slot != null) slot.asIntBuffer().get(offset, chunk.slot, 0, n);
+                    if (entry != null) entry.asLongBuffer().get(offset, chunk.entry, 0, n);
+                    if (exit != null) exit.asLongBuffer().get(offset, chunk.exit, 0, n);
+                    if (fee != null) fee.asIntBuffer().get(offset, chunk.fee, 0, n);
+                    chunk.rows = n;
+                    consumer.accept(chunk);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read archive segment " + path, e);
+            }
+        }
+
+        private ByteBuffer map(String column) throws IOException {
+            try (FileChannel channel = FileChannel.open(path.resolve(column), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * String-to-code mapping persisted as one value per line, code = line number.
+     */
+    private final class Dictionary {
+        final Path file;
+        final int limit;
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> codes = new HashMap<>();
+
+        Dictionary(Path file, int limit) throws IOException {
+            this.file = file;
+            this.limit = limit;
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    codes.put(line, values.size());
+                    values.add(line);
+                }
+            }
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (values.size() >= limit) {
+                throw new IllegalStateException("Too many distinct values in " + file.getFileName());
+            }
+            int added = values.size();
+            values.add(value);
+            codes.put(value, added);
+            // Queued ahead of any segment that references the new code
+            writer.execute(() -> appendLine(file, value));
+            return added;
+        }
+    }
+
+    /**
+     * Opens or creates an archive in the given directory.
+     * @param directory archive directory, created if missing
+     */
+    public StayArchive(Path directory) throws IOException {
+        this(directory, ZoneId.systemDefault());
+    }
+
+    /**
+     * Opens or creates an archive in the given directory.
+     * @param directory archive directory, created if missing
+     * @param zone zone used to convert stay times and to bucket reports by day
+     */
+    public StayArchive(Path directory, ZoneId zone) throws IOException {
+        if (directory == null || zone == null) {
+            throw new IllegalArgumentException("Directory and zone must be provided");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.rules = zone.getRules();
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "stay-archive-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.floors = new Dictionary(directory.resolve("floors.dict"), Short.MAX_VALUE);
+        this.slots = new Dictionary(directory.resolve("slots.dict"), Integer.MAX_VALUE);
+        this.segments = new ArrayList<>();
+        this.sealed = new ArrayList<>();
+        this.tail = new Columns(INITIAL_ROWS);
+        loadSegments();
+    }
+
+    private void loadSegments() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(null);
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Interrupted write: the rows were never acknowledged as durable
+                deleteRecursively(path);
+                continue;
+            }
+            Properties meta = new Properties();
+            try (InputStream in = Files.newInputStream(path.resolve(META_FILE))) {
+                meta.load(in);
+            }
+            segments.add(new Segment(path, Integer.parseInt(meta.getProperty("rows")),
+                    Long.parseLong(meta.getProperty("minExit")), Long.parseLong(meta.getProperty("maxExit"))));
+            nextSegmentId = Math.max(nextSegmentId, Integer.parseInt(name.substring(SEGMENT_PREFIX.length())) + 1);
+        }
+    }
+
+    @Override
+    public void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        record(vehicle.getType(), floor.getFloorId(), slot.getSlotId(), token.getEntryTime(), token.getExitTime(), fee);
+    }
+
+    /**
+     * Archives a completed stay.
+     * @param vehicleType vehicle type
+     * @param floorId floor of the slot
+     * @param slotId slot that was used
+     * @param entryTime entry time
+     * @param exitTime exit time
+     * @param fee fee charged in rupees
+     * @throws IllegalArgumentException if a time is missing or the type is not one of VehicleFactory.TYPES
+     */
+    public void record(String vehicleType, String floorId, String slotId,
+                       LocalDateTime entryTime, LocalDateTime exitTime, int fee) {
+        if (entryTime == null || exitTime == null) {
+            throw new IllegalArgumentException("Entry and exit times must be provided");
+        }
+        int typeIndex = VehicleFactory.indexOf(vehicleType);
+        if (typeIndex < 0) {
+            // Stored as a column index; an unknown type would break every report over the range
+            throw new IllegalArgumentException("Unknown vehicle type: " + vehicleType);
+        }
+        append(typeIndex, floorId, slotId, toSeconds(entryTime), toSeconds(exitTime), fee);
+    }
+
+    synchronized void append(int typeIndex, String floorId, String slotId, long entrySecond, long exitSecond, int fee) {
+        tail.add((byte) typeIndex, (short) floors.code(floorId), slots.code(slotId), entrySecond, exitSecond, fee);
+        if (tail.rows == SEGMENT_ROWS) {
+            seal();
+        }
+    }
+
+    /**
+     * Number of archived stays, including those not yet written.
+     */
+    public synchronized long size() {
+        long rows = tail.rows;
+        for (Segment segment : segments) rows += segment.rows;
+        for (Columns columns : sealed) rows += columns.rows;
+        return rows;
+    }
+
+    /**
+     * Writes every buffered stay to disk and waits for the writes to finish.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (tail.rows > 0) {
+                seal();
+            }
+        }
+        awaitWriter();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        writer.shutdown();
+    }
+
+    private void seal() {
+        Columns full = tail;
+        int id = nextSegmentId++;
+        sealed.add(full);
+        tail = new Columns(INITIAL_ROWS);
+        writer.execute(() -> writeSegment(id, full));
+    }
+
+    private void awaitWriter() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Archive writer failed", e.getCause());
+        }
+    }
+
+    private void writeSegment(int id, Columns columns) {
+        String name = String.format("%s%08d", SEGMENT_PREFIX, id);
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        Path target = directory.resolve(name);
+        int n = columns.rows;
+        try {
+            Files.createDirectories(temp);
+            writeColumn(temp.resolve("type.col"), n, b -> b.put(0, columns.type, 0, n));
+            writeColumn(temp.resolve("floor.col"), n * 2, b -> b.asShortBuffer().put(columns.floor, 0, n));
+            writeColumn(temp.resolve("slot.col"), n * 4, b -> b.asIntBuffer().put(columns.slot, 0, n));
+            writeColumn(temp.resolve("entry.col"), n * 8, b -> b.asLongBuffer().put(columns.entry, 0, n));
+            writeColumn(temp.resolve("exit.col"), n * 8, b -> b.asLongBuffer().put(columns.exit, 0, n));
+            writeColumn(temp.resolve("fee.col"), n * 4, b -> b.asIntBuffer().put(columns.fee, 0, n));
+            Properties meta = new Properties();
+            meta.setProperty("rows", Integer.toString(n));
+            meta.setProperty("minExit", Long.toString(columns.minExit));
+            meta.setProperty("maxExit", Long.toString(columns.maxExit));
+            try (OutputStream out = Files.newOutputStream(temp.resolve(META_FILE))) {
+                meta.store(out, null);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                segments.add(new Segment(target, n, columns.minExit, columns.maxExit));
+                sealed.remove(columns);
+            }
+        } catch (IOException e) {
+            // Rows stay in the sealed list, so reports still see them
+            EventLog.error("archive.write_failed", "segment", name, "error", e.getMessage());
+        }
+    }
+
+    private interface ColumnFiller {
+        void fill(ByteBuffer buffer);
+    }
+
+    private static void writeColumn(Path file, int bytes, ColumnFiller filler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(bytes, 1)).order(ByteOrder.LITTLE_ENDIAN);
+        filler.fill(buffer);
+        buffer.limit(bytes);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static void appendLine(Path file, String value) {
+        try {
+            Files.write(file, (value + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            EventLog.error("archive.dictionary_failed", "file", file, "error", e.getMessage());
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path child : stream) {
+                    deleteRecursively(child);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+
+    // ------------------------------------------------------------------ reports
+
+    /**
+     * Revenue per day for stays that ended in the given days.
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     * @return revenue in rupees for every day of the range
+     */
+    public Map<LocalDate, Long> revenuePerDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Range must end on or after its start");
+        }
+        long firstDay = from.toEpochDay();
+        int days = (int) (to.toEpochDay() - firstDay + 1);
+        long start = toSeconds(from.atStartOfDay());
+        long end = toSeconds(to.plusDays(1).atStartOfDay());
+        boolean fixed = rules.isFixedOffset();
+        int fixedOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+
+        long[] revenue = scan(EXIT | FEE, start, end, () -> new long[days], (c, sums) -> {
+            long[] exit = c.exit;
+            int[] fee = c.fee;
+            for (int i = 0; i < c.rows; i++) {
+                long t = exit[i];
+                if (t >= start && t < end) {
+                    int offset = fixed ? fixedOffset : rules.getOffset(Instant.ofEpochSecond(t)).getTotalSeconds();
+                    int day = (int) (Math.floorDiv(t + offset, 86_400L) - firstDay);
+                    if (day >= 0 && day < days) {
+                        sums[day] += fee[i];
+                    }
+                }
+            }
+        }, StayArchive::sum);
+
+        Map<LocalDate, Long> result = new TreeMap<>();
+        for (int d = 0; d < days; d++) {
+            result.put(from.plusDays(d), revenue[d]);
+        }
+        return result;
+    }
+
+    /**
+     * Average stay length per vehicle type for stays that ended in [from, to).
+     * @return average per type with at least one stay
+     */
+    public Map<String, Duration> averageDwellByType(LocalDateTime from, LocalDateTime to) {
+        long start = toSeconds(from);
+        long end = toSeconds(to);
+        int types = VehicleFactory.TYPES.length;
+        // Index t holds the dwell sum, index types + t the count
+        long[] totals = scan(TYPE | ENTRY | EXIT, start, end, () -> new long[types * 2], (c, acc) -> {
+            byte[] type = c.type;
+            long[] entry = c.entry;
+            long[] exit = c.exit;
+            for (int i = 0; i < c.rows; i++) {
+                long t = exit[i];
+                if (t >= start && t < end) {
+                    acc[type[i]] += t - entry[i];
+                    acc[types + type[i]]++;
+                }
+            }
+        }, StayArchive::sum);
+
+        Map<String, Duration> result = new LinkedHashMap<>();
+        for (int t = 0; t < types; t++) {
+            if (totals[types + t] > 0) {
+                result.put(VehicleFactory.TYPES[t], Duration.ofSeconds(totals[t] / totals[types + t]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of stays per slot that ended in [from, to).
+     * @return stays per slot ID, for slots with at least one stay
+     */
+    public Map<String, Long> turnoverBySlot(LocalDateTime from, LocalDateTime to) {
+        long start = toSeconds(from);
+        long end = toSeconds(to);
+        List<String> slotIds;
+        synchronized (this) {
+            slotIds = new ArrayList<>(slots.values);
+        }
+        int slotCount = slotIds.size();
+        long[] counts = scan(SLOT | EXIT, start, end, () -> new long[slotCount], (c, acc) -> {
+            int[] slot = c.slot;
+            long[] exit = c.exit;
+            for (int i = 0; i < c.rows; i++) {
+                long t = exit[i];
+                if (t >= start && t < end && slot[i] < slotCount) {
+                    acc[slot[i]]++;
+                }
+            }
+        }, StayArchive::sum);
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int s = 0; s < slotCount; s++) {
+            if (counts[s] > 0) {
+                result.put(slotIds.get(s), counts[s]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs a kernel over every row source whose exit range overlaps [start, end),
+     * segments in parallel, and combines the per-source partial results.
+     */
+    private <R> R scan(int columns, long start, long end, Supplier<R> partial,
+                       BiConsumer<Columns, R> kernel, BinaryOperator<R> combine) {
+        List<Segment> onDisk;
+        List<Columns> inMemory = new ArrayList<>();
+        synchronized (this) {
+            onDisk = new ArrayList<>(segments);
+            inMemory.addAll(sealed);
+            inMemory.add(tail.copy());
+        }
+        R result = partial.get();
+        for (Columns columnsInMemory : inMemory) {
+            if (columnsInMemory.rows > 0 && columnsInMemory.maxExit >= start && columnsInMemory.minExit < end) {
+                kernel.accept(columnsInMemory, result);
+            }
+        }
+        List<Segment> relevant = onDisk.stream()
+                .filter(s -> s.maxExit >= start && s.minExit < end)
+                .collect(Collectors.toList());
+        R fromDisk = relevant.parallelStream()
+                .map(segment -> {
+                    R acc = partial.get();
+                    Columns chunk = new Columns(CHUNK_ROWS);
+                    segment.forEachChunk(columns, chunk, c -> kernel.accept(c, acc));
+                    return acc;
+                })
+                .reduce(partial.get(), combine);
+        return combine.apply(result, fromDisk);
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] + b[i];
+        }
+        return out;
+    }
+
+    private long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(rules.getOffset(time));
+    }
+}
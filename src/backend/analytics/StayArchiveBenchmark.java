@@ -0,0 +1,76 @@
+package backend.analytics;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.simulation.ParkingSimulator;
+import backend.utils.VehicleFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills an archive with synthetic stays spread over a year, in roughly the
+ * order exits would arrive, and times the standard reports against it.
+ * Usage: StayArchiveBenchmark [rows] [directory]
+ */
+public class StayArchiveBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("stay-archive");
+        ZoneId zone = ZoneId.systemDefault();
+
+        List<ParkingFloor> floors = ParkingSimulator.buildLot(4, 60, 140, 10);
+        LocalDate firstDay = LocalDate.now().minusDays(365);
+        long start = firstDay.atStartOfDay(zone).toEpochSecond();
+        long span = 365L * 86_400;
+        Random random = new Random(7);
+
+        long t0 = System.nanoTime();
+        try (StayArchive archive = new StayArchive(directory, zone)) {
+            for (long i = 0; i < rows; i++) {
+                ParkingFloor floor = floors.get(random.nextInt(floors.size()));
+                ParkingSlot slot = floor.getSlots().get(random.nextInt(floor.getSlots().size()));
+                // Exits reach the archive roughly in time order
+                long entry = start + span * i / rows + random.nextInt(600);
+                long exit = entry + 600 + random.nextInt(6 * 3600);
+                int hours = (int) Math.max(1, (exit - entry + 3599) / 3600);
+                archive.append(VehicleFactory.indexOf(slot.getCompatibleType()), floor.getFloorId(),
+                        slot.getSlotId(), entry, exit, hours * 20);
+            }
+        }
+        System.out.printf("Wrote %,d stays to %s in %d ms%n", rows, directory, (System.nanoTime() - t0) / 1_000_000);
+
+        t0 = System.nanoTime();
+        try (StayArchive archive = new StayArchive(directory, zone)) {
+            System.out.printf("Opened %,d stays in %d ms%n", archive.size(), (System.nanoTime() - t0) / 1_000_000);
+
+            t0 = System.nanoTime();
+            Map<LocalDate, Long> revenue = archive.revenuePerDay(firstDay, firstDay.plusDays(364));
+            long total = revenue.values().stream().mapToLong(Long::longValue).sum();
+            System.out.printf("Revenue per day (365 days, total Rs %,d): %d ms%n", total, (System.nanoTime() - t0) / 1_000_000);
+
+            LocalDateTime from = firstDay.atStartOfDay();
+            LocalDateTime to = firstDay.plusDays(366).atStartOfDay();
+            t0 = System.nanoTime();
+            System.out.printf("Average dwell per type %s: %d ms%n",
+                    archive.averageDwellByType(from, to), (System.nanoTime() - t0) / 1_000_000);
+
+            t0 = System.nanoTime();
+            Map<String, Long> turnover = archive.turnoverBySlot(from, to);
+            System.out.printf("Turnover per slot (%d slots): %d ms%n", turnover.size(), (System.nanoTime() - t0) / 1_000_000);
+
+            t0 = System.nanoTime();
+            archive.revenuePerDay(firstDay.plusDays(300), firstDay.plusDays(306));
+            System.out.printf("Revenue for one week: %d ms%n", (System.nanoTime() - t0) / 1_000_000);
+        }
+    }
+}
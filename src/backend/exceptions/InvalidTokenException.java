@@ -5,7 +5,14 @@ package backend.exceptions;
  * non-existent, or has already been used.
  */
 public class InvalidTokenException extends Exception {
-    
+
+    /**
+     * Why a token was rejected.
+     */
+    public enum Reason { UNKNOWN, ALREADY_USED }
+
+    private final Reason reason;
+
     /**
      * Constructs a new exception with a detailed message.
      *
@@ -13,5 +20,30 @@ public class InvalidTokenException extends Exception {
      */
     public InvalidTokenException(String tokenId) {
         super("Invalid or expired token: " + tokenId);
+        this.reason = Reason.UNKNOWN;
+    }
+
+    private InvalidTokenException(String message, Reason reason) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    /**
+     * Creates a rejection without a stack trace, for the exit fast path
+     * where bogus or replayed tickets are expected and must stay cheap.
+     *
+     * @param tokenId the token identifier that was rejected
+     * @param reason why it was rejected
+     * @return the exception
+     */
+    public static InvalidTokenException rejected(String tokenId, Reason reason) {
+        String message = reason == Reason.ALREADY_USED
+                ? "Token " + tokenId + " has already been used to exit"
+                : "Invalid or expired token: " + tokenId;
+        return new InvalidTokenException(message, reason);
+    }
+
+    public Reason getReason() {
+        return reason;
     }
 }
@@ -2,8 +2,10 @@ package backend.models;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Represents a parking floor containing multiple slots.
@@ -12,17 +14,32 @@ import java.util.Objects;
 public class ParkingFloor {
     private final String floorId;                   // Identifier (e.g., "G1", "F2")
     private final List<ParkingSlot> slots;          // All slots on this floor
+    private final Set<String> slotIds;              // IDs of the slots, for duplicate checks
 
     /**
      * Constructor to initialize a parking floor.
      * @param floorId Unique floor identifier
      */
     public ParkingFloor(String floorId) {
+        this(floorId, 16);
+    }
+
+    /**
+     * Constructor sizing the slot collections up front, for loaders that
+     * know how many slots the floor will hold.
+     * @param floorId Unique floor identifier
+     * @param expectedSlots Number of slots about to be added
+     */
+    public ParkingFloor(String floorId, int expectedSlots) {
         if (floorId == null || floorId.isBlank()) {
             throw new IllegalArgumentException("Floor ID cannot be empty");
         }
+        if (expectedSlots < 0) {
+            throw new IllegalArgumentException("Expected slot count cannot be negative");
+        }
         this.floorId = floorId;
-        this.slots = new ArrayList<>();
+        this.slots = new ArrayList<>(expectedSlots);
+        this.slotIds = new HashSet<>(Math.max(16, (int) (expectedSlots / 0.75f) + 1));
     }
 
     /**
@@ -34,7 +51,7 @@ public class ParkingFloor {
         if (slot == null) {
             throw new IllegalArgumentException("Slot cannot be null");
         }
-        if (slots.contains(slot)) {
+        if (!slotIds.add(slot.getSlotId())) {
             throw new IllegalArgumentException("Slot " + slot.getSlotId() + " already exists on floor " + floorId);
         }
         slots.add(slot);
@@ -55,7 +72,7 @@ public class ParkingFloor {
      */
     public ParkingSlot findAvailableSlot(String vehicleType) {
         for (ParkingSlot slot : slots) {
-            if (!slot.isOccupied() && slot.getCompatibleType().equals(vehicleType)) {
+            if (!slot.isOccupied() && !slot.isOutOfService() && slot.getCompatibleType().equals(vehicleType)) {
                 return slot;
             }
         }
@@ -67,7 +84,7 @@ public class ParkingFloor {
      * @return number of free slots
      */
     public long countAvailableSlots() {
-        return slots.stream().filter(slot -> !slot.isOccupied()).count();
+        return slots.stream().filter(slot -> !slot.isOccupied() && !slot.isOutOfService()).count();
     }
 
     /**
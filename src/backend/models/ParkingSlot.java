@@ -1,15 +1,54 @@
 package backend.models;
 
+import backend.utils.VehicleFactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 /**
  * Represents an individual parking slot within a floor.
  * Tracks slot ID, compatible vehicle type, and occupancy status.
+ *
+ * Occupancy is a small state machine held in one atomic int: a slot is
+ * FREE, RESERVED (claimed by a thread that is about to park or free it) or
+ * OCCUPIED, and independently may be out of service. Every transition is a
+ * compare-and-set, so slots can be claimed and released from many threads
+ * without an outer lock, and every read is a single volatile load.
  */
 public class ParkingSlot {
+
+    /**
+     * Occupancy as seen by {@link #getState()}.
+     */
+    public enum State {
+        FREE,
+        RESERVED,
+        OCCUPIED,
+        OUT_OF_SERVICE      // Free, but closed to new vehicles
+    }
+
+    // State word: phase in the low bits, out-of-service flag above them
+    private static final int FREE = 0;
+    private static final int RESERVED = 1;
+    private static final int OCCUPIED = 2;
+    private static final int PHASE = 3;
+    private static final int OUT_OF_SERVICE = 4;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(ParkingSlot.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String slotId;            // Unique slot identifier, e.g., “G1-05”
     private final String compatibleType;    // Vehicle type this slot supports
-    private Vehicle parkedVehicle;          // Currently parked vehicle, null if empty
+    private final int distance;             // Walking distance from the entrance in metres, 0 if unknown
+    private volatile int state;             // Phase and out-of-service flag, changed only through STATE
+    private volatile Vehicle parkedVehicle; // Written only while this slot is RESERVED, null if empty
 
     /**
      * Constructor
@@ -17,6 +56,16 @@ public class ParkingSlot {
      * @param compatibleType Vehicle type allowed (e.g., "TWO_WHEELER")
      */
     public ParkingSlot(String slotId, String compatibleType) {
+        this(slotId, compatibleType, 0);
+    }
+
+    /**
+     * Constructor
+     * @param slotId Unique ID for the slot (e.g., "G1-05")
+     * @param compatibleType Vehicle type allowed (e.g., "TWO_WHEELER")
+     * @param distance Walking distance from the entrance in metres
+     */
+    public ParkingSlot(String slotId, String compatibleType, int distance) {
         if (slotId == null || slotId.isBlank()) {
             throw new IllegalArgumentException("Slot ID cannot be empty");
         }
@@ -24,7 +73,11 @@ public class ParkingSlot {
             throw new IllegalArgumentException("Compatible type cannot be empty");
         }
         this.slotId = slotId;
+        if (distance < 0) {
+            throw new IllegalArgumentException("Distance cannot be negative");
+        }
         this.compatibleType = compatibleType;
+        this.distance = distance;
         this.parkedVehicle = null;
     }
 
@@ -37,12 +90,94 @@ public class ParkingSlot {
         return compatibleType;
     }
 
+    public int getDistance() {
+        return distance;
+    }
+
     public boolean isOccupied() {
-        return parkedVehicle != null;
+        return (state & PHASE) == OCCUPIED;
+    }
+
+    /**
+     * Checks whether a thread has claimed this slot and not yet parked in or freed it.
+     */
+    public boolean isReserved() {
+        return (state & PHASE) == RESERVED;
     }
 
+    /**
+     * Returns the parked vehicle.
+     * @return the vehicle, or null if the slot is not occupied (or is being freed concurrently)
+     */
     public Vehicle getParkedVehicle() {
-        return parkedVehicle;
+        return (state & PHASE) == OCCUPIED ? parkedVehicle : null;
+    }
+
+    public boolean isOutOfService() {
+        return (state & OUT_OF_SERVICE) != 0;
+    }
+
+    /**
+     * Current occupancy. An occupied or reserved slot reports that phase
+     * even when out of service; see {@link #isOutOfService()}.
+     */
+    public State getState() {
+        int s = state;
+        switch (s & PHASE) {
+            case OCCUPIED:
+                return State.OCCUPIED;
+            case RESERVED:
+                return State.RESERVED;
+            default:
+                return (s & OUT_OF_SERVICE) != 0 ? State.OUT_OF_SERVICE : State.FREE;
+        }
+    }
+
+    /**
+     * Opens or closes this slot to new vehicles. A vehicle already parked
+     * here stays until it exits.
+     * @param outOfService true to stop allocating this slot
+     */
+    public void setOutOfService(boolean outOfService) {
+        int s;
+        do {
+            s = state;
+        } while (!STATE.compareAndSet(this, s, outOfService ? s | OUT_OF_SERVICE : s & ~OUT_OF_SERVICE));
+    }
+
+    /**
+     * Claims this slot if it is free and in service. The caller must follow
+     * with {@link #occupy} or {@link #cancelReservation}.
+     * @return true if this thread now holds the slot
+     */
+    public boolean tryReserve() {
+        return STATE.compareAndSet(this, FREE, RESERVED);
+    }
+
+    /**
+     * Returns a reserved slot to free without parking in it.
+     * @throws IllegalStateException if the slot is not reserved
+     */
+    public void cancelReservation() {
+        transition(RESERVED, FREE);
+    }
+
+    /**
+     * Parks a vehicle in a slot reserved by this thread.
+     * @param vehicle Vehicle to park
+     * @param overflow true to accept a vehicle of a smaller type
+     * @throws IllegalStateException if the slot is not reserved
+     * @throws IllegalArgumentException if vehicle type is not compatible and overflow is false,
+     *         or the vehicle is not smaller than the slot's type; the reservation is kept
+     */
+    public void occupy(Vehicle vehicle, boolean overflow) {
+        if ((state & PHASE) != RESERVED) {
+            throw new IllegalStateException("Slot " + slotId + " is not reserved");
+        }
+        checkCompatible(vehicle, overflow);
+        // Published to readers by the volatile write of the state
+        parkedVehicle = vehicle;
+        transition(RESERVED, OCCUPIED);
     }
 
     /**
@@ -52,16 +187,32 @@ public class ParkingSlot {
      * @throws IllegalArgumentException if vehicle type is not compatible
      */
     public void parkVehicle(Vehicle vehicle) {
-        if (isOccupied()) {
+        parkVehicle(vehicle, false);
+    }
+
+    /**
+     * Parks a vehicle in this slot, optionally one of another type that the
+     * allocator has fitted here because its own slots were full.
+     * @param vehicle Vehicle to park
+     * @param overflow true to accept a vehicle of a smaller type
+     * @throws IllegalStateException if slot is already occupied, reserved or out of service
+     * @throws IllegalArgumentException if vehicle type is not compatible and overflow is false,
+     *         or the vehicle is not smaller than the slot's type
+     */
+    public void parkVehicle(Vehicle vehicle, boolean overflow) {
+        if (!tryReserve()) {
+            int s = state;
+            if ((s & PHASE) == FREE && (s & OUT_OF_SERVICE) != 0) {
+                throw new IllegalStateException("Slot " + slotId + " is out of service");
+            }
             throw new IllegalStateException("Slot " + slotId + " is already occupied");
         }
-        if (!vehicle.getType().equals(compatibleType)) {
-            throw new IllegalArgumentException(
-                "Vehicle type " + vehicle.getType() +
-                " not compatible with slot " + slotId + " (" + compatibleType + ")"
-            );
+        try {
+            occupy(vehicle, overflow);
+        } catch (IllegalArgumentException e) {
+            cancelReservation();
+            throw e;
         }
-        this.parkedVehicle = vehicle;
     }
 
     /**
@@ -70,21 +221,62 @@ public class ParkingSlot {
      * @throws IllegalStateException if slot is already empty
      */
     public Vehicle freeSlot() {
-        if (!isOccupied()) {
-            throw new IllegalStateException("Slot " + slotId + " is already free");
-        }
+        // Held as reserved while the vehicle is cleared, so a new claim cannot see it
+        int s;
+        do {
+            s = state;
+            if ((s & PHASE) != OCCUPIED) {
+                throw new IllegalStateException("Slot " + slotId + " is already free");
+            }
+        } while (!STATE.compareAndSet(this, s, (s & ~PHASE) | RESERVED));
         Vehicle v = parkedVehicle;
         parkedVehicle = null;
+        transition(RESERVED, FREE);
         return v;
     }
 
+    /**
+     * Moves between phases, keeping the out-of-service flag, which may change concurrently.
+     */
+    private void transition(int from, int to) {
+        int s;
+        do {
+            s = state;
+            if ((s & PHASE) != from) {
+                throw new IllegalStateException("Slot " + slotId + " is not " + (from == RESERVED ? "reserved" : "occupied"));
+            }
+        } while (!STATE.compareAndSet(this, s, (s & ~PHASE) | to));
+    }
+
+    private void checkCompatible(Vehicle vehicle, boolean overflow) {
+        String type = vehicle.getType();
+        if (type.equals(compatibleType)) {
+            return;
+        }
+        if (!overflow) {
+            throw new IllegalArgumentException(
+                "Vehicle type " + type +
+                " not compatible with slot " + slotId + " (" + compatibleType + ")"
+            );
+        }
+        int vehicleSize = VehicleFactory.indexOf(type);
+        if (vehicleSize < 0 || VehicleFactory.indexOf(compatibleType) <= vehicleSize) {
+            throw new IllegalArgumentException(
+                "Vehicle type " + type +
+                " does not fit in smaller slot " + slotId + " (" + compatibleType + ")"
+            );
+        }
+    }
+
     @Override
     public String toString() {
+        Vehicle vehicle = getParkedVehicle();
         return String.format(
-            "Slot[%s, type=%s, occupied=%s]",
+            "Slot[%s, type=%s, occupied=%s%s]",
             slotId,
             compatibleType,
-            isOccupied() ? "yes (" + parkedVehicle.getRegistrationNumber() + ")" : "no"
+            vehicle != null ? "yes (" + vehicle.getRegistrationNumber() + ")" : "no",
+            isOutOfService() ? ", out of service" : ""
         );
     }
 
@@ -0,0 +1,88 @@
+package backend.models;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A pre-booked slot for a time window, e.g. for an event.
+ */
+public class Reservation {
+    private final String reservationId;       // Unique identifier, "R-" + UUID
+    private final String slotId;              // Booked ParkingSlot ID
+    private final String vehicleType;         // Vehicle type the booking is for
+    private final String vehicleRegNumber;    // Expected vehicle, null if any vehicle of the type may use it
+    private final LocalDateTime start;        // Start of the booked window, inclusive
+    private final LocalDateTime end;          // End of the booked window, exclusive
+
+    /**
+     * Constructor
+     * @param slotId booked slot
+     * @param vehicleType vehicle type the booking is for
+     * @param vehicleRegNumber expected vehicle registration, may be null
+     * @param start window start
+     * @param end window end
+     * @throws IllegalArgumentException if the window is empty or values are missing
+     */
+    public Reservation(String slotId, String vehicleType, String vehicleRegNumber, LocalDateTime start, LocalDateTime end) {
+        if (slotId == null || slotId.isBlank() || vehicleType == null || vehicleType.isBlank()) {
+            throw new IllegalArgumentException("Slot ID and vehicle type cannot be empty");
+        }
+        if (start == null || end == null || !end.isAfter(start)) {
+            throw new IllegalArgumentException("Reservation must end after it starts");
+        }
+        this.reservationId = "R-" + UUID.randomUUID();
+        this.slotId = slotId;
+        this.vehicleType = vehicleType;
+        this.vehicleRegNumber = vehicleRegNumber == null ? null : vehicleRegNumber.toUpperCase().trim();
+        this.start = start;
+        this.end = end;
+    }
+
+    // Getters
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public String getSlotId() {
+        return slotId;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "Reservation[id=%s, slot=%s, type=%s, vehicle=%s, %s - %s]",
+            reservationId, slotId, vehicleType,
+            vehicleRegNumber != null ? vehicleRegNumber : "any",
+            start, end
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Reservation)) return false;
+        return reservationId.equals(((Reservation) o).reservationId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(reservationId);
+    }
+}
@@ -21,13 +21,27 @@ public class Token {
      * @param vehicleRegNumber Registration number of the vehicle
      */
     public Token(String slotId, String vehicleRegNumber) {
+        this(UUID.randomUUID().toString(), slotId, vehicleRegNumber);
+    }
+
+    /**
+     * Constructor with an explicit token ID, used for prefixed IDs
+     * and for tokens reconstructed from another process.
+     * @param tokenId Unique token identifier
+     * @param slotId ID of the allocated slot
+     * @param vehicleRegNumber Registration number of the vehicle
+     */
+    public Token(String tokenId, String slotId, String vehicleRegNumber) {
+        if (tokenId == null || tokenId.isBlank()) {
+            throw new IllegalArgumentException("Token ID cannot be empty");
+        }
         if (slotId == null || slotId.isBlank()) {
             throw new IllegalArgumentException("Slot ID cannot be empty");
         }
         if (vehicleRegNumber == null || vehicleRegNumber.isBlank()) {
             throw new IllegalArgumentException("Vehicle registration cannot be empty");
         }
-        this.tokenId = UUID.randomUUID().toString();
+        this.tokenId = tokenId;
         this.slotId = slotId;
         this.vehicleRegNumber = vehicleRegNumber;
         this.entryTime = LocalDateTime.now();
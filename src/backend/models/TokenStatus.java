@@ -0,0 +1,10 @@
+package backend.models;
+
+/**
+ * State of a token as seen at an exit gate.
+ */
+public enum TokenStatus {
+    ACTIVE,     // Issued and not yet used to exit
+    USED,       // Already used to exit (recent tokens exactly, older ones probably)
+    UNKNOWN     // Never issued by this service, or used too long ago to remember
+}
@@ -2,12 +2,16 @@ package backend.models;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 /**
  * Abstract base class representing any vehicle in the parking system.
  * Handles common properties and validation for all vehicle types.
  */
 public abstract class Vehicle {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern ALPHANUMERIC = Pattern.compile("[A-Za-z0-9]");
+
     protected String registrationNumber;
     protected LocalDateTime entryTime;
     protected String ownerName;
@@ -44,7 +48,7 @@ public abstract class Vehicle {
             throw new IllegalArgumentException("Registration number cannot be empty");
         }
         
-        String cleaned = regNo.trim().replaceAll("\\s+", "");
+        String cleaned = WHITESPACE.matcher(regNo.trim()).replaceAll("");
         
         if (cleaned.length() < 6) {
             throw new IllegalArgumentException(
@@ -53,7 +57,7 @@ public abstract class Vehicle {
         }
         
         // Check if contains at least some alphanumeric characters
-        if (!cleaned.matches(".*[A-Za-z0-9].*")) {
+        if (!ALPHANUMERIC.matcher(cleaned).find()) {
             throw new IllegalArgumentException(
                 "Registration number must contain alphanumeric characters: " + regNo
             );
@@ -0,0 +1,299 @@
+package backend.services;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.utils.EventLog;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Queues arrivals at the gates while their vehicle type is full, instead of
+ * turning them away.
+ *
+ * {@link #admit} parks a vehicle at once when nobody of its type is waiting
+ * and a slot is free; otherwise the vehicle joins a first-come, first-served
+ * queue for its type and the caller gets a future that completes with the
+ * token when the vehicle is parked. Permit holders have a queue of their own
+ * that is always served first. Registered as a listener, the controller
+ * notices every exit and hands freed capacity to the head of the queues on
+ * a background thread, so gate controllers wait on a future rather than
+ * retrying against the service lock. Capacity added by reopening slots or
+ * floors is picked up by a periodic sweep.
+ *
+ * Vehicles parked directly through the service bypass the queues; gates
+ * that should be served fairly must all come through here.
+ */
+public class AdmissionController implements ParkingEventListener, AutoCloseable {
+
+    /**
+     * One queued vehicle.
+     */
+    private static final class Waiter {
+        final Vehicle vehicle;
+        final boolean permit;
+        final CompletableFuture<Token> result = new CompletableFuture<>();
+
+        Waiter(Vehicle vehicle, boolean permit) {
+            this.vehicle = vehicle;
+            this.permit = permit;
+        }
+    }
+
+    /**
+     * Waiting vehicles of one type, permit holders first.
+     */
+    private static final class TypeQueue {
+        final ArrayDeque<Waiter> permits = new ArrayDeque<>();
+        final ArrayDeque<Waiter> general = new ArrayDeque<>();
+
+        Waiter peek() {
+            return !permits.isEmpty() ? permits.peek() : general.peek();
+        }
+
+        boolean remove(Waiter waiter) {
+            return (waiter.permit ? permits : general).remove(waiter);
+        }
+
+        int size() {
+            return permits.size() + general.size();
+        }
+    }
+
+    private final ParkingService service;
+    private final int maxQueuePerType;
+    private final Duration maxWait;
+    private final ScheduledThreadPoolExecutor dispatcher;
+    private final Map<String, TypeQueue> queues;        // Guarded by this lock
+    private final Set<String> waitingPlates;            // Guarded by this lock
+    private volatile int waiting;
+    private final AtomicBoolean drainScheduled;
+
+    /**
+     * Creates a controller and registers it with the service.
+     * @param service service to park through
+     * @param maxQueuePerType most vehicles waiting per type; arrivals beyond it are refused at once
+     * @param maxWait longest a vehicle waits before its future fails with SlotNotAvailableException
+     * @param sweepInterval how often capacity not announced by an exit (reopened slots, new floors) is looked for
+     */
+    public AdmissionController(ParkingService service, int maxQueuePerType, Duration maxWait, Duration sweepInterval) {
+        if (service == null || maxQueuePerType <= 0 || maxWait == null || maxWait.isNegative() || maxWait.isZero()
+                || sweepInterval == null || sweepInterval.isNegative() || sweepInterval.isZero()) {
+            throw new IllegalArgumentException("Service, a positive queue bound, wait limit and sweep interval are required");
+        }
+        this.service = service;
+        this.maxQueuePerType = maxQueuePerType;
+        this.maxWait = maxWait;
+        this.queues = new HashMap<>();
+        this.waitingPlates = new HashSet<>();
+        this.drainScheduled = new AtomicBoolean();
+        this.dispatcher = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "gate-admission");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Timeouts of vehicles that got a slot are cancelled, and should not linger until due
+        dispatcher.setRemoveOnCancelPolicy(true);
+        long sweepMillis = Math.max(1, sweepInterval.toMillis());
+        dispatcher.scheduleWithFixedDelay(() -> {
+            if (waiting > 0) {
+                drain();
+            }
+        }, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        service.addListener(this);
+    }
+
+    /**
+     * Parks a vehicle now if its type has a free slot and no queue, or
+     * queues it until one frees up.
+     * @param vehicle arriving vehicle
+     * @param permitHolder true to queue ahead of vehicles without a permit
+     * @return future completing with the token once parked; failing with
+     *         SlotNotAvailableException if the queue is full or the wait limit passes.
+     *         Cancelling it withdraws the vehicle from the queue.
+     * @throws IllegalArgumentException if the vehicle is already parked or waiting
+     */
+    public CompletableFuture<Token> admit(Vehicle vehicle, boolean permitHolder) {
+        String type = vehicle.getType();
+        String regNo = vehicle.getRegistrationNumber();
+        if (!hasQueue(type)) {
+            try {
+                return CompletableFuture.completedFuture(service.parkVehicle(vehicle));
+            } catch (SlotNotAvailableException e) {
+                // Full: wait in line
+            }
+        }
+
+        if (service.isVehicleParked(regNo)) {
+            throw new IllegalArgumentException("Vehicle with registration " + regNo + " is already parked");
+        }
+        Waiter waiter = new Waiter(vehicle, permitHolder);
+        synchronized (this) {
+            if (!waitingPlates.add(regNo)) {
+                throw new IllegalArgumentException("Vehicle with registration " + regNo + " is already waiting");
+            }
+            TypeQueue queue = queues.computeIfAbsent(type, t -> new TypeQueue());
+            if (queue.size() >= maxQueuePerType) {
+                waitingPlates.remove(regNo);
+                return CompletableFuture.failedFuture(new SlotNotAvailableException(type));
+            }
+            (permitHolder ? queue.permits : queue.general).add(waiter);
+            waiting++;
+        }
+        ScheduledFuture<?> timeout = dispatcher.schedule(() -> {
+            if (withdraw(waiter)) {
+                EventLog.info("admission.timed_out", "regNo", regNo, "type", type);
+                waiter.result.completeExceptionally(new SlotNotAvailableException(type));
+            }
+        }, maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        waiter.result.whenComplete((token, error) -> {
+            timeout.cancel(false);
+            // Covers cancellation by the caller as well as completion by the dispatcher
+            if (error != null) {
+                withdraw(waiter);
+            }
+        });
+        // A slot may have freed between the failed attempt and joining the queue
+        scheduleDrain();
+        return waiter.result;
+    }
+
+    /**
+     * Number of vehicles waiting for a slot of the given type.
+     */
+    public synchronized int getQueueLength(String vehicleType) {
+        TypeQueue queue = queues.get(vehicleType);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Number of vehicles waiting across all types.
+     */
+    public int getWaitingCount() {
+        return waiting;
+    }
+
+    private synchronized boolean hasQueue(String vehicleType) {
+        TypeQueue queue = queues.get(vehicleType);
+        return queue != null && queue.size() > 0;
+    }
+
+    /**
+     * Removes a waiter from its queue.
+     * @return true if it was still queued
+     */
+    private synchronized boolean withdraw(Waiter waiter) {
+        TypeQueue queue = queues.get(waiter.vehicle.getType());
+        if (queue == null || !queue.remove(waiter)) {
+            return false;
+        }
+        waitingPlates.remove(waiter.vehicle.getRegistrationNumber());
+        waiting--;
+        return true;
+    }
+
+    @Override
+    public void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        // Runs under the service lock: only hand the work to the dispatcher
+        if (waiting > 0) {
+            scheduleDrain();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Parks queued vehicles, head of each type first, until their types are full.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        String[] types;
+        synchronized (this) {
+            types = queues.keySet().toArray(new String[0]);
+        }
+        for (String type : types) {
+            while (true) {
+                Waiter head;
+                synchronized (this) {
+                    head = queues.get(type).peek();
+                }
+                if (head == null) {
+                    break;
+                }
+                Token token;
+                try {
+                    token = service.parkVehicle(head.vehicle);
+                } catch (SlotNotAvailableException e) {
+                    // Still full for this type; the head keeps its place
+                    break;
+                } catch (RuntimeException e) {
+                    if (withdraw(head)) {
+                        head.result.completeExceptionally(e);
+                    }
+                    continue;
+                }
+                if (!withdraw(head) || !head.result.complete(token)) {
+                    // Cancelled or timed out while being parked: give the slot back
+                    undo(token);
+                }
+            }
+        }
+    }
+
+    private void undo(Token token) {
+        try {
+            service.exitVehicle(token.getTokenId());
+            EventLog.warn("admission.withdrawn_after_park", "regNo", token.getVehicleRegNumber(), "slot", token.getSlotId());
+        } catch (InvalidTokenException e) {
+            // Already exited by someone holding the token
+        }
+    }
+
+    /**
+     * Stops dispatching and fails every waiting vehicle's future.
+     */
+    @Override
+    public void close() {
+        service.removeListener(this);
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Waiter[] left;
+        synchronized (this) {
+            left = queues.values().stream()
+                    .flatMap(queue -> Stream.concat(queue.permits.stream(), queue.general.stream()))
+                    .toArray(Waiter[]::new);
+        }
+        for (Waiter waiter : left) {
+            if (withdraw(waiter)) {
+                waiter.result.completeExceptionally(new SlotNotAvailableException(waiter.vehicle.getType()));
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.utils.EventLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Occupancy-driven price multipliers per vehicle type.
+ *
+ * On every park and exit the type's occupancy is read from the service's
+ * lock-free counters and mapped to a tier (e.g., 100% below 70% full, 200%
+ * above 95%). Tier changes are appended to a per-type step function of
+ * (start time, multiplier) pairs; a tier is only left once occupancy falls
+ * a margin below its threshold, so the price does not flap at a boundary.
+ * An exit fee is the flat fee scaled by the time-weighted average
+ * multiplier over the stay, which walks only the segments the stay
+ * overlaps. Step functions are immutable and replaced on change, so fees
+ * are computed without locking.
+ */
+public class DemandPricing implements ParkingEventListener {
+
+    private static final double[] DEFAULT_THRESHOLDS = {0.70, 0.85, 0.95};
+    private static final int[] DEFAULT_PERCENTS = {100, 125, 150, 200};
+    private static final double HYSTERESIS = 0.02;
+
+    private final ParkingService service;
+    private final double[] thresholds;              // Occupancy at which each surcharge tier starts, ascending
+    private final int[] percents;                   // Multiplier per tier; one more than thresholds
+    private final long retentionSeconds;
+    private final ZoneId zone;
+    private final Map<String, Schedule> schedules;  // Map vehicle type -> step function, replaced on change
+
+    /**
+     * Creates pricing with the default tiers (+25% from 70% full, +50% from
+     * 85%, double from 95%), keeping 30 days of rate history.
+     */
+    public DemandPricing(ParkingService service) {
+        this(service, DEFAULT_THRESHOLDS, DEFAULT_PERCENTS, Duration.ofDays(30), ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructor
+     * @param service service whose occupancy counters drive prices
+     * @param thresholds occupancy fractions (0..1, ascending) where each higher tier starts
+     * @param percents multiplier per tier in percent, one more entry than thresholds
+     * @param retention how long rate history is kept; a stay reaching back further is charged, for the
+     *                  part before that, the rate in force when the older history was dropped
+     * @param zone zone used to convert timestamps to epoch seconds
+     */
+    public DemandPricing(ParkingService service, double[] thresholds, int[] percents, Duration retention, ZoneId zone) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        if (thresholds == null || percents == null || percents.length != thresholds.length + 1) {
+            throw new IllegalArgumentException("Need exactly one more multiplier than thresholds");
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            if (thresholds[i] <= 0 || thresholds[i] > 1 || (i > 0 && thresholds[i] <= thresholds[i - 1])) {
+                throw new IllegalArgumentException("Thresholds must be ascending fractions in (0, 1]");
+            }
+        }
+        for (int percent : percents) {
+            if (percent <= 0) {
+                throw new IllegalArgumentException("Multipliers must be positive");
+            }
+        }
+        this.service = service;
+        this.thresholds = thresholds.clone();
+        this.percents = percents.clone();
+        this.retentionSeconds = retention.getSeconds();
+        this.zone = zone;
+        this.schedules = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Step function of multipliers: percents[i] applies from starts[i] until
+     * starts[i + 1], and before applies until starts[0].
+     */
+    private static final class Schedule {
+        final long[] starts;
+        final int[] percents;
+        final int before;           // Base rate, or the last rate dropped from the history
+        final int tier;
+
+        Schedule(long[] starts, int[] percents, int before, int tier) {
+            this.starts = starts;
+            this.percents = percents;
+            this.before = before;
+            this.tier = tier;
+        }
+    }
+
+    @Override
+    public void vehicleParked(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token) {
+        sample(slot.getCompatibleType(), token.getEntryTime());
+    }
+
+    @Override
+    public void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        sample(slot.getCompatibleType(), token.getExitTime());
+    }
+
+    /**
+     * Reads the current occupancy of a type and records a rate change if
+     * it moved to another tier. Called on every park and exit; may also be
+     * called on a timer.
+     * @param vehicleType type to sample
+     * @param now time the new rate takes effect
+     */
+    public synchronized void sample(String vehicleType, LocalDateTime now) {
+        // Slots out of service or on draining floors count neither as free nor as taken
+        int occupied = service.getOccupiedSlotCount(vehicleType);
+        int capacity = occupied + service.getAvailableSlotCount(vehicleType);
+        if (capacity == 0) {
+            return;
+        }
+        double occupancy = (double) occupied / capacity;
+        Schedule current = schedules.get(vehicleType);
+        int tier = tierFor(occupancy, current == null ? 0 : current.tier);
+        if (current != null && tier == current.tier) {
+            return;
+        }
+        long time = toSeconds(now);
+        schedules.put(vehicleType, append(current, time, tier));
+        EventLog.info("pricing.changed", "type", vehicleType, "percent", percents[tier], "occupancy", Math.round(occupancy * 100));
+    }
+
+    /**
+     * Highest tier whose threshold is reached; the current tier is kept
+     * until occupancy drops HYSTERESIS below its threshold.
+     */
+    private int tierFor(double occupancy, int currentTier) {
+        int tier = 0;
+        while (tier < thresholds.length && occupancy >= thresholds[tier]) {
+            tier++;
+        }
+        if (tier < currentTier && occupancy >= thresholds[currentTier - 1] - HYSTERESIS) {
+            return currentTier;
+        }
+        return tier;
+    }
+
+    private Schedule append(Schedule current, long time, int tier) {
+        if (current == null) {
+            return new Schedule(new long[] {time}, new int[] {percents[tier]}, percents[0], tier);
+        }
+        int n = current.starts.length;
+        if (time <= current.starts[n - 1]) {
+            // Same second (or clock stepped back): the new rate replaces the last one
+            long[] starts = current.starts.clone();
+            int[] rates = current.percents.clone();
+            rates[n - 1] = percents[tier];
+            return new Schedule(starts, rates, current.before, tier);
+        }
+        // Drop segments that ended before the retention window, keeping the one in force at its start
+        int first = 0;
+        while (first + 1 < n && current.starts[first + 1] <= time - retentionSeconds) {
+            first++;
+        }
+        long[] starts = Arrays.copyOfRange(current.starts, first, n + 1);
+        int[] rates = Arrays.copyOfRange(current.percents, first, n + 1);
+        starts[n - first] = time;
+        rates[n - first] = percents[tier];
+        return new Schedule(starts, rates, first == 0 ? current.before : current.percents[first - 1], tier);
+    }
+
+    /**
+     * Current multiplier for a type, in percent.
+     */
+    public int getCurrentPercent(String vehicleType) {
+        Schedule schedule = schedules.get(vehicleType);
+        return schedule == null ? percents[0] : schedule.percents[schedule.percents.length - 1];
+    }
+
+    /**
+     * Number of rate segments currently kept for a type.
+     */
+    public int getSegmentCount(String vehicleType) {
+        Schedule schedule = schedules.get(vehicleType);
+        return schedule == null ? 0 : schedule.starts.length;
+    }
+
+    /**
+     * Time-weighted average multiplier over [from, to], in percent. Before
+     * the first recorded change the base tier applies, or once older history
+     * has been dropped, the last rate dropped.
+     */
+    public double averagePercent(String vehicleType, LocalDateTime from, LocalDateTime to) {
+        Schedule schedule = schedules.get(vehicleType);
+        long start = toSeconds(from);
+        long end = toSeconds(to);
+        if (schedule == null) {
+            return percents[0];
+        }
+        long[] starts = schedule.starts;
+        int[] rates = schedule.percents;
+        // Segment in force at the start of the stay
+        int i = Arrays.binarySearch(starts, start);
+        i = i >= 0 ? i : -i - 2;
+        if (end <= start) {
+            return i < 0 ? schedule.before : rates[i];
+        }
+        double weighted = 0;
+        long cursor = start;
+        if (i < 0) {
+            long until = Math.min(end, starts[0]);
+            weighted += (double) schedule.before * (until - cursor);
+            cursor = until;
+            i = 0;
+        }
+        for (; cursor < end; i++) {
+            long until = i + 1 < starts.length ? Math.min(end, starts[i + 1]) : end;
+            weighted += (double) rates[i] * (until - cursor);
+            cursor = until;
+        }
+        return weighted / (end - start);
+    }
+
+    /**
+     * Scales a flat fee by the average multiplier over the stay.
+     * @param vehicleType type whose rates apply
+     * @param flatFee fee at the base rate
+     * @param entryTime start of the stay
+     * @param exitTime end of the stay
+     * @return fee in rupees, rounded to the nearest rupee
+     */
+    public int apply(String vehicleType, int flatFee, LocalDateTime entryTime, LocalDateTime exitTime) {
+        return (int) Math.round(flatFee * averagePercent(vehicleType, entryTime, exitTime) / 100);
+    }
+
+    private long toSeconds(LocalDateTime time) {
+        return time.atZone(zone).toEpochSecond();
+    }
+}
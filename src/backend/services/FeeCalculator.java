@@ -13,6 +13,16 @@ public class FeeCalculator {
     private static final int GRACE_PERIOD_MINUTES = 10;  // 10 minutes free
     private static final int MINIMUM_CHARGE_HOURS = 1;   // minimum charge, 1 hour
 
+    private volatile DemandPricing demandPricing;        // Occupancy surcharges, null for flat rates
+
+    /**
+     * Scales fees by occupancy-driven multipliers over each stay.
+     * @param demandPricing pricing to apply, or null for flat hourly rates
+     */
+    public void setDemandPricing(DemandPricing demandPricing) {
+        this.demandPricing = demandPricing;
+    }
+
     /**
      * Calculate parking fee.
      *
@@ -41,7 +51,9 @@ public class FeeCalculator {
         billableHours = Math.max(billableHours, MINIMUM_CHARGE_HOURS);
 
         int hourlyRate = vehicle.getHourlyRate();
+        int fee = (int) (billableHours * hourlyRate);
 
-        return (int) (billableHours * hourlyRate);
+        DemandPricing pricing = demandPricing;
+        return pricing == null ? fee : pricing.apply(vehicle.getType(), fee, entryTime, exitTime);
     }
 }
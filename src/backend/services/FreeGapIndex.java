@@ -0,0 +1,171 @@
+package backend.services;
+
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Set of free time gaps [start, end) across many slots, answering "is there a
+ * gap that covers [s, e)?" in O(log n) expected time.
+ *
+ * Gaps are kept in a treap ordered by (start, slot order), each node also
+ * tracking the largest end in its subtree. Every gap with start at or before
+ * s is on one side of the search path, so a covering gap is found by
+ * following subtree maxima instead of visiting gaps one by one.
+ *
+ * @param <T> owner of a gap, returned by queries
+ */
+final class FreeGapIndex<T> {
+
+    private static final class Node<T> {
+        final long start;
+        final long end;
+        final int order;
+        final T owner;
+        final int priority;
+        Node<T> left;
+        Node<T> right;
+        long maxEnd;
+
+        Node(long start, long end, int order, T owner, int priority) {
+            this.start = start;
+            this.end = end;
+            this.order = order;
+            this.owner = owner;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final Random random = new Random(0x5eed);
+    private Node<T> root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a gap; (start, order) must be unique.
+     */
+    void insert(long start, long end, int order, T owner) {
+        root = insert(root, new Node<>(start, end, order, owner, random.nextInt()));
+        size++;
+    }
+
+    /**
+     * Removes the gap with the given start and owner order.
+     */
+    void remove(long start, int order) {
+        int before = size;
+        root = remove(root, start, order);
+        if (size == before) {
+            throw new IllegalStateException("Gap not indexed: " + start + "/" + order);
+        }
+    }
+
+    /**
+     * Returns the owner of some gap with start &lt;= s and end &gt;= e that the
+     * filter accepts, or null. Each rejected gap costs one more O(log n) descent.
+     */
+    T findCovering(long s, long e, Predicate<? super T> accept) {
+        return findCovering(root, s, e, accept);
+    }
+
+    private T findCovering(Node<T> node, long s, long e, Predicate<? super T> accept) {
+        while (node != null && node.maxEnd >= e) {
+            if (node.start > s) {
+                node = node.left;
+                continue;
+            }
+            // Everything on the left also starts at or before s
+            T found = findCovering(node.left, s, e, accept);
+            if (found != null) {
+                return found;
+            }
+            if (node.end >= e && accept.test(node.owner)) {
+                return node.owner;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private static int compare(long start, int order, Node<?> node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Integer.compare(order, node.order);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.order, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, long start, int order) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(start, order, node);
+        if (c < 0) {
+            node.left = remove(node.left, start, order);
+        } else if (c > 0) {
+            node.right = remove(node.right, start, order);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> merge(Node<T> a, Node<T> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static <T> void update(Node<T> node) {
+        long max = node.end;
+        if (node.left != null && node.left.maxEnd > max) max = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd > max) max = node.right.maxEnd;
+        node.maxEnd = max;
+    }
+}
@@ -0,0 +1,100 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.utils.HierarchicalBitSet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Free slots of each type, in allocation order.
+ *
+ * Every slot on a floor accepting vehicles gets a position: floors in
+ * priority order, slots in floor order. Each slot type has a bit set over
+ * those positions with the free slots marked, so the first free slot of a
+ * type (what a scan over the floors would find) is one
+ * {@link HierarchicalBitSet#nextSetBit} away. Updated by ParkingService
+ * under its lock on every park and exit.
+ */
+final class FreeSlotIndex {
+
+    private final ParkingSlot[] slots;                      // Slot at each position
+    private final Map<String, Integer> positions;           // Map slotId -> position
+    private final Map<String, HierarchicalBitSet> free;     // Map slot type -> free positions
+    private final Map<String, Integer> capacity;            // Map slot type -> number of positions
+
+    /**
+     * @param floors floors accepting vehicles, in priority order
+     * @param available whether a slot is free to allocate now
+     */
+    FreeSlotIndex(List<ParkingFloor> floors, Predicate<ParkingSlot> available) {
+        int count = 0;
+        for (ParkingFloor floor : floors) {
+            count += floor.getSlots().size();
+        }
+        slots = new ParkingSlot[count];
+        positions = new HashMap<>(count * 4 / 3 + 1);
+        free = new HashMap<>();
+        capacity = new HashMap<>();
+        int position = 0;
+        for (ParkingFloor floor : floors) {
+            for (ParkingSlot slot : floor.getSlots()) {
+                slots[position] = slot;
+                positions.put(slot.getSlotId(), position);
+                HierarchicalBitSet bits = free.computeIfAbsent(slot.getCompatibleType(), t -> new HierarchicalBitSet(slots.length));
+                capacity.merge(slot.getCompatibleType(), 1, Integer::sum);
+                if (available.test(slot)) {
+                    bits.set(position);
+                }
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Records whether a slot can be allocated. Slots on floors outside the
+     * index (drained or retired) are ignored.
+     */
+    void update(ParkingSlot slot, boolean available) {
+        Integer position = positions.get(slot.getSlotId());
+        if (position == null || slots[position] != slot) {
+            return;
+        }
+        HierarchicalBitSet bits = free.get(slot.getCompatibleType());
+        if (available) {
+            bits.set(position);
+        } else {
+            bits.clear(position);
+        }
+    }
+
+    /**
+     * Number of indexed slots of a type, free or not.
+     */
+    int capacity(String slotType) {
+        return capacity.getOrDefault(slotType, 0);
+    }
+
+    /**
+     * Returns the first free slot of a type, in allocation order, that the
+     * filter accepts.
+     * @param slotType slot type to search
+     * @param accept extra condition (e.g., not held for a reservation), or null
+     * @return the slot, or null if none
+     */
+    ParkingSlot first(String slotType, Predicate<ParkingSlot> accept) {
+        HierarchicalBitSet bits = free.get(slotType);
+        if (bits == null) {
+            return null;
+        }
+        for (int p = bits.nextSetBit(0); p >= 0; p = bits.nextSetBit(p + 1)) {
+            if (accept == null || accept.test(slots[p])) {
+                return slots[p];
+            }
+        }
+        return null;
+    }
+}
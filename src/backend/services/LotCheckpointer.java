@@ -0,0 +1,91 @@
+package backend.services;
+
+import backend.utils.EventLog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link LotSnapshot}s of a service, on demand or on a timer, so a
+ * restart can resume from the latest image with
+ * {@link ParkingService#restore}. Gates keep running while an image is
+ * written.
+ */
+public class LotCheckpointer implements AutoCloseable {
+
+    private final ParkingService service;
+    private final Path file;
+    private ScheduledExecutorService scheduler;     // Periodic checkpoints, null if not scheduled
+
+    /**
+     * Constructor
+     * @param service service to checkpoint
+     * @param file snapshot file, replaced atomically by each checkpoint
+     */
+    public LotCheckpointer(ParkingService service, Path file) {
+        if (service == null || file == null) {
+            throw new IllegalArgumentException("Service and snapshot file are required");
+        }
+        this.service = service;
+        this.file = file;
+    }
+
+    /**
+     * Writes a snapshot now.
+     * @return size of the snapshot in bytes
+     */
+    public long checkpoint() throws IOException {
+        long start = System.nanoTime();
+        long bytes = LotSnapshot.write(service, file);
+        EventLog.info("snapshot.written", "file", file, "bytes", bytes, "millis", (System.nanoTime() - start) / 1_000_000);
+        return bytes;
+    }
+
+    /**
+     * Writes a snapshot at a fixed delay on a background thread.
+     * @param interval time between the end of one checkpoint and the start of the next
+     * @throws IllegalStateException if checkpoints are already scheduled
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Checkpoints already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lot-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                EventLog.error("snapshot.write_failed", "file", file, "error", e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops periodic checkpoints, letting one in progress finish.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService scheduled;
+        synchronized (this) {
+            scheduled = scheduler;
+            scheduler = null;
+        }
+        if (scheduled != null) {
+            scheduled.shutdown();
+            try {
+                scheduled.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
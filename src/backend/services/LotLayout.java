@@ -0,0 +1,179 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable view of a lot's floors and slot indexes.
+ *
+ * ParkingService allocates against whichever layout is current. A
+ * reconfiguration derives a complete new layout from the current one without
+ * holding the service lock, then swaps the reference under the lock, so a
+ * park or exit sees either the old layout or the new one, never a mix.
+ * Floors are replaced rather than edited: the floor objects and index maps
+ * of a published layout are never modified. The one mutable part is the
+ * free slot index, which ParkingService updates under its lock.
+ */
+final class LotLayout {
+
+    final List<ParkingFloor> floors;                // All floors, in allocation priority order
+    final List<ParkingFloor> allocationFloors;      // Floors accepting new vehicles
+    final Set<String> drainedFloors;                // IDs of floors closed to new vehicles
+    final Map<String, ParkingSlot> slotIndex;       // Map slotId -> ParkingSlot
+    final Map<String, ParkingFloor> slotFloorMap;   // Map slotId -> owning ParkingFloor
+    final FreeSlotIndex freeSlots;                  // Allocatable slots by type, in allocation order
+
+    LotLayout(List<ParkingFloor> floors, Set<String> drainedFloors) {
+        this(floors, drainedFloors, new HashMap<>(capacityFor(floors)), new HashMap<>(capacityFor(floors)), floors);
+    }
+
+    /**
+     * @param unindexed floors whose slots still have to be added to the given maps
+     */
+    private LotLayout(List<ParkingFloor> floors, Set<String> drainedFloors,
+                      Map<String, ParkingSlot> slotIndex, Map<String, ParkingFloor> slotFloorMap,
+                      List<ParkingFloor> unindexed) {
+        Set<String> floorIds = new HashSet<>();
+        List<ParkingFloor> allocationFloors = new ArrayList<>(floors.size());
+        for (ParkingFloor floor : floors) {
+            if (!floorIds.add(floor.getFloorId())) {
+                throw new IllegalArgumentException("Floor " + floor.getFloorId() + " already exists");
+            }
+            if (!drainedFloors.contains(floor.getFloorId())) {
+                allocationFloors.add(floor);
+            }
+        }
+        this.floors = Collections.unmodifiableList(new ArrayList<>(floors));
+        this.allocationFloors = Collections.unmodifiableList(allocationFloors);
+        this.drainedFloors = Collections.unmodifiableSet(new HashSet<>(drainedFloors));
+        this.slotIndex = slotIndex;
+        this.slotFloorMap = slotFloorMap;
+        for (ParkingFloor floor : unindexed) {
+            index(floor);
+        }
+        this.freeSlots = new FreeSlotIndex(allocationFloors, this::isAvailable);
+    }
+
+    private static int capacityFor(List<ParkingFloor> floors) {
+        int slotCount = 0;
+        for (ParkingFloor floor : floors) {
+            slotCount += floor.getSlots().size();
+        }
+        // Sized up front so large lots are indexed without rehashing
+        return slotCount * 4 / 3 + 1;
+    }
+
+    private void index(ParkingFloor floor) {
+        for (ParkingSlot slot : floor.getSlots()) {
+            if (slotIndex.put(slot.getSlotId(), slot) != null) {
+                throw new IllegalArgumentException("Slot " + slot.getSlotId() + " already exists");
+            }
+            slotFloorMap.put(slot.getSlotId(), floor);
+        }
+    }
+
+    /**
+     * Whether a slot could take a new vehicle right now: free, in service
+     * and on a floor that is not draining.
+     */
+    boolean isAvailable(ParkingSlot slot) {
+        return !slot.isOccupied() && isInService(slot);
+    }
+
+    /**
+     * Whether a slot counts towards the lot's working capacity: in service
+     * and on a floor that is not draining, free or not.
+     */
+    boolean isInService(ParkingSlot slot) {
+        return !slot.isOutOfService() && !isDrained(slotFloorMap.get(slot.getSlotId()));
+    }
+
+    /**
+     * Brings the free slot index up to date for a slot whose state changed.
+     */
+    void refresh(ParkingSlot slot) {
+        freeSlots.update(slot, isAvailable(slot));
+    }
+
+    boolean isDrained(ParkingFloor floor) {
+        return !drainedFloors.isEmpty() && drainedFloors.contains(floor.getFloorId());
+    }
+
+    ParkingFloor floor(String floorId) {
+        for (ParkingFloor floor : floors) {
+            if (floor.getFloorId().equals(floorId)) {
+                return floor;
+            }
+        }
+        throw new IllegalArgumentException("Unknown floor: " + floorId);
+    }
+
+    ParkingSlot slot(String slotId) {
+        ParkingSlot slot = slotIndex.get(slotId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown slot: " + slotId);
+        }
+        return slot;
+    }
+
+    LotLayout withFloorAdded(ParkingFloor floor) {
+        List<ParkingFloor> updated = new ArrayList<>(floors.size() + 1);
+        updated.addAll(floors);
+        updated.add(floor);
+        return new LotLayout(updated, drainedFloors, new HashMap<>(slotIndex), new HashMap<>(slotFloorMap), List.of(floor));
+    }
+
+    /**
+     * Returns a layout with the floor closed to, or reopened for, new
+     * vehicles. The slot maps are unchanged and shared.
+     */
+    LotLayout withDrained(String floorId, boolean drained) {
+        floor(floorId);
+        Set<String> updated = new HashSet<>(drainedFloors);
+        if (drained) {
+            updated.add(floorId);
+        } else {
+            updated.remove(floorId);
+        }
+        return new LotLayout(floors, updated, slotIndex, slotFloorMap, List.of());
+    }
+
+    /**
+     * Returns a layout in which the floor holding the slot is rebuilt with
+     * the slot replaced by the mapped slot, or dropped if that is null.
+     */
+    LotLayout withSlotReplaced(String slotId, UnaryOperator<ParkingSlot> replacement) {
+        ParkingFloor owner = slotFloorMap.get(slotId);
+        if (owner == null) {
+            throw new IllegalArgumentException("Unknown slot: " + slotId);
+        }
+        ParkingFloor rebuilt = new ParkingFloor(owner.getFloorId(), owner.getSlots().size());
+        for (ParkingSlot slot : owner.getSlots()) {
+            ParkingSlot kept = slot.getSlotId().equals(slotId) ? replacement.apply(slot) : slot;
+            if (kept != null) {
+                rebuilt.addSlot(kept);
+            }
+        }
+        List<ParkingFloor> updated = new ArrayList<>(floors);
+        updated.set(updated.indexOf(owner), rebuilt);
+
+        Map<String, ParkingSlot> index = new HashMap<>(slotIndex);
+        Map<String, ParkingFloor> floorMap = new HashMap<>(slotFloorMap);
+        index.remove(slotId);
+        floorMap.remove(slotId);
+        for (ParkingSlot slot : rebuilt.getSlots()) {
+            index.put(slot.getSlotId(), slot);
+            floorMap.put(slot.getSlotId(), rebuilt);
+        }
+        return new LotLayout(updated, drainedFloors, index, floorMap, List.of());
+    }
+}
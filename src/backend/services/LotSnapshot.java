@@ -0,0 +1,508 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.utils.VehicleFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Binary image of a lot: floors, slots, parked vehicles with their tokens,
+ * and hash indexes by plate and token ID.
+ *
+ * {@link #write} copies nothing under the service lock: it grabs the
+ * current immutable layout and read model (an O(1) copy-on-write
+ * checkpoint) and serializes them while gates keep running. Out-of-service
+ * flags are read as the writer passes each slot, so they may be slightly
+ * fuzzy.
+ *
+ * {@link #open} memory-maps the image and checks only the header. Plate,
+ * token and availability queries read the mapped index directly, so a
+ * restarted service can answer gates before any slot, vehicle or token
+ * object exists; {@link ParkingService#restore} builds those in the
+ * background.
+ *
+ * <pre>
+ * header   magic, version, created, counts and section offsets (128 bytes)
+ * types    nameRef, available, capacity                       (12 bytes each)
+ * floors   idRef, firstSlot, slotCount, flags (bit 0 drained) (16 bytes each)
+ * slots    idRef, type, flags (bit 0 out of service), pad,
+ *          distance, parked record or -1                      (16 bytes each)
+ * parked   tokenRef, plateRef, vehicle type, pad, slot,
+ *          entry time (epoch millis, UTC-coded local time)    (24 bytes each)
+ * indexes  open-addressing tables of parked record + 1, by plate then by token
+ * strings  length-prefixed UTF-8, referenced by offset from the section start
+ * </pre>
+ */
+public final class LotSnapshot {
+
+    private static final int MAGIC = 0x504C534E;    // "PLSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 128;
+    private static final int TYPE_BYTES = 12;
+    private static final int FLOOR_BYTES = 16;
+    private static final int SLOT_BYTES = 16;
+    private static final int PARKED_BYTES = 24;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final long createdAtMillis;
+    private final int typeCount;
+    private final int floorCount;
+    private final int slotCount;
+    private final int parkedCount;
+    private final int indexMask;
+    private final int typesOffset;
+    private final int floorsOffset;
+    private final int slotsOffset;
+    private final int parkedOffset;
+    private final int plateIndexOffset;
+    private final int tokenIndexOffset;
+    private final int stringsOffset;
+    private final Map<String, Integer> typeIndexes;      // Map type name -> row in the types section
+
+    private LotSnapshot(Path file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(file + " is not a lot snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(file + " has unsupported snapshot version " + buffer.getInt(4));
+        }
+        createdAtMillis = buffer.getLong(8);
+        typeCount = buffer.getInt(16);
+        floorCount = buffer.getInt(20);
+        slotCount = buffer.getInt(24);
+        parkedCount = buffer.getInt(28);
+        indexMask = buffer.getInt(32) - 1;
+        typesOffset = buffer.getInt(36);
+        floorsOffset = buffer.getInt(40);
+        slotsOffset = buffer.getInt(44);
+        parkedOffset = buffer.getInt(48);
+        plateIndexOffset = buffer.getInt(52);
+        tokenIndexOffset = buffer.getInt(56);
+        stringsOffset = buffer.getInt(60);
+        if (stringsOffset > buffer.capacity() || buffer.getInt(64) != buffer.capacity()) {
+            throw new IllegalArgumentException(file + " is truncated");
+        }
+        typeIndexes = new HashMap<>();
+        for (int t = 0; t < typeCount; t++) {
+            typeIndexes.put(string(buffer.getInt(typesOffset + t * TYPE_BYTES)), t);
+        }
+    }
+
+    /**
+     * Maps a snapshot file. Only the header and type table are read.
+     * @param file snapshot written by {@link #write}
+     * @throws IllegalArgumentException if the file is not a complete snapshot
+     */
+    public static LotSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(file + " is too large to map");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new LotSnapshot(file, mapped);
+        }
+    }
+
+    // ============================
+    // Queries served from the mapped image
+    // ============================
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getParkedCount() {
+        return parkedCount;
+    }
+
+    /**
+     * Free slots across the lot at the time of the snapshot.
+     */
+    public int getAvailableSlotCount() {
+        int total = 0;
+        for (int t = 0; t < typeCount; t++) {
+            total += buffer.getInt(typesOffset + t * TYPE_BYTES + 4);
+        }
+        return total;
+    }
+
+    /**
+     * Free slots of one type at the time of the snapshot.
+     */
+    public int getAvailableSlotCount(String vehicleType) {
+        Integer t = typeIndexes.get(vehicleType);
+        return t == null ? 0 : buffer.getInt(typesOffset + t * TYPE_BYTES + 4);
+    }
+
+    /**
+     * Slots of one type on floors that were accepting vehicles, free or not.
+     */
+    public int getSlotCount(String vehicleType) {
+        Integer t = typeIndexes.get(vehicleType);
+        return t == null ? 0 : buffer.getInt(typesOffset + t * TYPE_BYTES + 8);
+    }
+
+    /**
+     * Whether a vehicle was parked when the snapshot was taken.
+     */
+    public boolean isParked(String registrationNumber) {
+        return findParked(plateIndexOffset, 4, registrationNumber) >= 0;
+    }
+
+    /**
+     * Slot holding a vehicle at the time of the snapshot.
+     * @return slot ID, or null if the vehicle was not parked
+     */
+    public String findSlotIdByPlate(String registrationNumber) {
+        int parked = findParked(plateIndexOffset, 4, registrationNumber);
+        return parked < 0 ? null : string(buffer.getInt(slotOffset(buffer.getInt(parkedOffset(parked) + 12))));
+    }
+
+    /**
+     * Whether a token was active at the time of the snapshot.
+     */
+    public boolean isActiveToken(String tokenId) {
+        return findParked(tokenIndexOffset, 0, tokenId) >= 0;
+    }
+
+    private int findParked(int tableOffset, int keyField, String key) {
+        if (key == null || parkedCount == 0) {
+            return -1;
+        }
+        for (int probe = hash(key) & indexMask; ; probe = (probe + 1) & indexMask) {
+            int entry = buffer.getInt(tableOffset + probe * 4);
+            if (entry == 0) {
+                return -1;
+            }
+            int parked = entry - 1;
+            if (key.equals(string(buffer.getInt(parkedOffset(parked) + keyField)))) {
+                return parked;
+            }
+        }
+    }
+
+    private int slotOffset(int slot) {
+        return slotsOffset + slot * SLOT_BYTES;
+    }
+
+    private int parkedOffset(int parked) {
+        return parkedOffset + parked * PARKED_BYTES;
+    }
+
+    private String string(int ref) {
+        int at = stringsOffset + ref;
+        int length = buffer.getShort(at) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    // ============================
+    // Materialization for ParkingService.restore
+    // ============================
+
+    /**
+     * Lot objects rebuilt from the image.
+     */
+    static final class Contents {
+        final List<ParkingFloor> floors;
+        final Set<String> drainedFloors;
+        final ParkingReadModel.Entry[] parked;
+
+        Contents(List<ParkingFloor> floors, Set<String> drainedFloors, ParkingReadModel.Entry[] parked) {
+            this.floors = floors;
+            this.drainedFloors = drainedFloors;
+            this.parked = parked;
+        }
+    }
+
+    /**
+     * Creates every floor, slot, vehicle and token, with vehicles already
+     * placed in their slots. Floors and parked records are built in parallel.
+     */
+    Contents materialize() {
+        String[] types = new String[typeCount];
+        for (int t = 0; t < typeCount; t++) {
+            types[t] = string(buffer.getInt(typesOffset + t * TYPE_BYTES));
+        }
+        ParkingSlot[] slots = new ParkingSlot[slotCount];
+        ParkingFloor[] floors = new ParkingFloor[floorCount];
+        IntStream.range(0, floorCount).parallel().forEach(f -> {
+            int at = floorsOffset + f * FLOOR_BYTES;
+            int first = buffer.getInt(at + 4);
+            int count = buffer.getInt(at + 8);
+            ParkingFloor floor = new ParkingFloor(string(buffer.getInt(at)), count);
+            for (int s = first; s < first + count; s++) {
+                int slotAt = slotOffset(s);
+                ParkingSlot slot = new ParkingSlot(string(buffer.getInt(slotAt)), types[buffer.get(slotAt + 4)], buffer.getInt(slotAt + 8));
+                if (buffer.getInt(slotAt + 12) < 0) {
+                    // Occupied slots are closed after their vehicle is put back
+                    slot.setOutOfService((buffer.get(slotAt + 5) & 1) != 0);
+                }
+                floor.addSlot(slot);
+                slots[s] = slot;
+            }
+            floors[f] = floor;
+        });
+        Set<String> drained = new HashSet<>();
+        for (int f = 0; f < floorCount; f++) {
+            if ((buffer.getInt(floorsOffset + f * FLOOR_BYTES + 12) & 1) != 0) {
+                drained.add(floors[f].getFloorId());
+            }
+        }
+
+        ParkingReadModel.Entry[] parked = new ParkingReadModel.Entry[parkedCount];
+        IntStream.range(0, parkedCount).parallel().forEach(p -> {
+            int at = parkedOffset(p);
+            String plate = string(buffer.getInt(at + 4));
+            ParkingSlot slot = slots[buffer.getInt(at + 12)];
+            Vehicle vehicle = VehicleFactory.create(types[buffer.get(at + 8)], plate);
+            Token token = new Token(string(buffer.getInt(at)), slot.getSlotId(), vehicle.getRegistrationNumber());
+            long millis = buffer.getLong(at + 16);
+            token.setEntryTime(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                    (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC));
+            // Placed by the allocator before the snapshot; the slot still refuses a larger vehicle
+            slot.parkVehicle(vehicle, !slot.getCompatibleType().equals(vehicle.getType()));
+            slot.setOutOfService((buffer.get(slotOffset(buffer.getInt(at + 12)) + 5) & 1) != 0);
+            parked[p] = new ParkingReadModel.Entry(vehicle, slot, token);
+        });
+        return new Contents(List.of(floors), drained, parked);
+    }
+
+    // ============================
+    // Writing
+    // ============================
+
+    /**
+     * Writes a snapshot of a service without pausing it. The image goes to
+     * a temporary file that atomically replaces the target once synced.
+     * @param service service to capture
+     * @param file target file
+     * @return size of the image in bytes
+     */
+    public static long write(ParkingService service, Path file) throws IOException {
+        Map.Entry<LotLayout, ParkingReadModel> state = service.captureState();
+        LotLayout layout = state.getKey();
+        List<ParkingReadModel.Entry> entries = state.getValue().entries();
+
+        List<String> types = new ArrayList<>();
+        Map<String, Integer> typeIndexes = new HashMap<>();
+        for (String type : VehicleFactory.TYPES) {
+            typeIndexes.put(type, types.size());
+            types.add(type);
+        }
+        int slotTotal = 0;
+        for (ParkingFloor floor : layout.floors) {
+            for (ParkingSlot slot : floor.getSlots()) {
+                typeIndexes.computeIfAbsent(slot.getCompatibleType(), t -> {
+                    types.add(t);
+                    return types.size() - 1;
+                });
+            }
+            slotTotal += floor.getSlots().size();
+        }
+        if (types.size() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many slot types for a snapshot");
+        }
+
+        Map<String, Integer> parkedBySlot = new HashMap<>(entries.size() * 4 / 3 + 1);
+        for (int p = 0; p < entries.size(); p++) {
+            parkedBySlot.put(entries.get(p).getSlot().getSlotId(), p);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(2, entries.size() * 2) - 1) << 1;
+
+        int typesOffset = HEADER_BYTES;
+        int floorsOffset = typesOffset + types.size() * TYPE_BYTES;
+        long slotsOffset = floorsOffset + (long) layout.floors.size() * FLOOR_BYTES;
+        long parkedOffset = slotsOffset + (long) slotTotal * SLOT_BYTES;
+        long plateIndexOffset = parkedOffset + (long) entries.size() * PARKED_BYTES;
+        long tokenIndexOffset = plateIndexOffset + (long) tableSize * 4;
+        long stringsOffset = tokenIndexOffset + (long) tableSize * 4;
+
+        // Sized for typical IDs, plates and UUID tokens so large lots do not regrow the pool
+        StringPool strings = new StringPool((int) Math.min(Integer.MAX_VALUE - 8, slotTotal * 16L + entries.size() * 56L));
+        int[] typeRefs = new int[types.size()];
+        for (int t = 0; t < types.size(); t++) {
+            typeRefs[t] = strings.add(types.get(t));
+        }
+        int[] available = new int[types.size()];
+        int[] capacity = new int[types.size()];
+        int[] parkedSlots = new int[entries.size()];
+        long length;
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            // Header and type table are filled in last, once the counts are known
+            out.write(new byte[floorsOffset]);
+
+            int firstSlot = 0;
+            for (ParkingFloor floor : layout.floors) {
+                out.writeInt(strings.add(floor.getFloorId()));
+                out.writeInt(firstSlot);
+                out.writeInt(floor.getSlots().size());
+                out.writeInt(layout.isDrained(floor) ? 1 : 0);
+                firstSlot += floor.getSlots().size();
+            }
+
+            int slotNumber = 0;
+            for (ParkingFloor floor : layout.floors) {
+                boolean drained = layout.isDrained(floor);
+                for (ParkingSlot slot : floor.getSlots()) {
+                    int type = typeIndexes.get(slot.getCompatibleType());
+                    Integer parked = parkedBySlot.get(slot.getSlotId());
+                    boolean outOfService = slot.isOutOfService();
+                    out.writeInt(strings.add(slot.getSlotId()));
+                    out.writeByte(type);
+                    out.writeByte(outOfService ? 1 : 0);
+                    out.writeShort(0);
+                    out.writeInt(slot.getDistance());
+                    out.writeInt(parked == null ? -1 : parked);
+                    if (parked != null) {
+                        parkedSlots[parked] = slotNumber;
+                    } else if (!outOfService && !drained) {
+                        available[type]++;
+                    }
+                    if (!drained) {
+                        capacity[type]++;
+                    }
+                    slotNumber++;
+                }
+            }
+
+            int[] plateTable = new int[tableSize];
+            int[] tokenTable = new int[tableSize];
+            for (int p = 0; p < entries.size(); p++) {
+                ParkingReadModel.Entry entry = entries.get(p);
+                Token token = entry.getToken();
+                LocalDateTime entryTime = token.getEntryTime();
+                out.writeInt(strings.add(token.getTokenId()));
+                out.writeInt(strings.add(entry.getVehicle().getRegistrationNumber()));
+                out.writeByte(typeIndexes.getOrDefault(entry.getVehicle().getType(), 0));
+                out.writeByte(0);
+                out.writeShort(0);
+                out.writeInt(parkedSlots[p]);
+                out.writeLong(entryTime.toEpochSecond(ZoneOffset.UTC) * 1000 + entryTime.getNano() / 1_000_000);
+                insert(plateTable, entry.getVehicle().getRegistrationNumber(), p);
+                insert(tokenTable, token.getTokenId(), p);
+            }
+            for (int entry : plateTable) {
+                out.writeInt(entry);
+            }
+            for (int entry : tokenTable) {
+                out.writeInt(entry);
+            }
+            strings.writeTo(out);
+            out.flush();
+
+            length = stringsOffset + strings.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Lot too large for a single snapshot image");
+            }
+            ByteBuffer header = ByteBuffer.allocate(floorsOffset);
+            header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                    .putInt(types.size()).putInt(layout.floors.size()).putInt(slotTotal).putInt(entries.size())
+                    .putInt(tableSize).putInt(typesOffset).putInt(floorsOffset).putInt((int) slotsOffset)
+                    .putInt((int) parkedOffset).putInt((int) plateIndexOffset).putInt((int) tokenIndexOffset)
+                    .putInt((int) stringsOffset).putInt((int) length);
+            header.position(typesOffset);
+            for (int t = 0; t < types.size(); t++) {
+                header.putInt(typeRefs[t]).putInt(available[t]).putInt(capacity[t]);
+            }
+            header.flip();
+            FileChannel channel = stream.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return length;
+    }
+
+    private static void insert(int[] table, String key, int parked) {
+        int mask = table.length - 1;
+        int probe = hash(key) & mask;
+        while (table[probe] != 0) {
+            probe = (probe + 1) & mask;
+        }
+        table[probe] = parked + 1;
+    }
+
+    /**
+     * Length-prefixed UTF-8 strings, appended in order of first use.
+     */
+    private static final class StringPool {
+        private final ByteArrayOutputStream bytes;
+
+        StringPool(int expectedBytes) {
+            bytes = new ByteArrayOutputStream(Math.max(1 << 16, expectedBytes));
+        }
+
+        int add(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (encoded.length > 0xFFFF) {
+                throw new IllegalArgumentException("String too long for a snapshot: " + value.substring(0, 32) + "...");
+            }
+            int ref = bytes.size();
+            bytes.write(encoded.length >>> 8);
+            bytes.write(encoded.length);
+            bytes.write(encoded, 0, encoded.length);
+            return ref;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
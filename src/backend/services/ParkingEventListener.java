@@ -0,0 +1,35 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+
+/**
+ * Receives park and exit events from a ParkingService.
+ * Callbacks run on the caller's thread while the service lock is held,
+ * so implementations must be quick and must not call back into the service.
+ */
+public interface ParkingEventListener {
+
+    /**
+     * Called after a vehicle has been parked and its token issued.
+     * @param floor floor containing the slot
+     * @param slot slot now holding the vehicle
+     * @param vehicle parked vehicle
+     * @param token issued token, entry time set
+     */
+    default void vehicleParked(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token) {
+    }
+
+    /**
+     * Called after a vehicle has left and its slot was freed.
+     * @param floor floor containing the slot
+     * @param slot slot that was freed
+     * @param vehicle vehicle that left
+     * @param token used token, exit time set
+     * @param fee fee charged in rupees
+     */
+    default void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+    }
+}
@@ -0,0 +1,114 @@
+package backend.services;
+
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.utils.PersistentHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of who is parked where.
+ *
+ * ParkingService derives a new snapshot from the previous one on every park
+ * and exit (sharing all unchanged structure) and publishes it through a
+ * volatile field once the write, or the whole batch, is complete. Readers
+ * use whichever snapshot is current without taking the service lock, and a
+ * snapshot never changes after publication, so a dashboard iterating it
+ * sees one consistent state.
+ */
+public final class ParkingReadModel {
+
+    static final ParkingReadModel EMPTY = new ParkingReadModel(PersistentHashMap.empty(), PersistentHashMap.empty());
+
+    /**
+     * A parked vehicle with its slot and token.
+     */
+    public static final class Entry {
+        private final Vehicle vehicle;
+        private final ParkingSlot slot;
+        private final Token token;
+
+        Entry(Vehicle vehicle, ParkingSlot slot, Token token) {
+            this.vehicle = vehicle;
+            this.slot = slot;
+            this.token = token;
+        }
+
+        public Vehicle getVehicle() {
+            return vehicle;
+        }
+
+        public ParkingSlot getSlot() {
+            return slot;
+        }
+
+        public Token getToken() {
+            return token;
+        }
+    }
+
+    private final PersistentHashMap<String, Entry> byPlate;     // Map registrationNumber -> entry
+    private final PersistentHashMap<String, Entry> byToken;     // Map tokenId -> entry
+
+    private ParkingReadModel(PersistentHashMap<String, Entry> byPlate, PersistentHashMap<String, Entry> byToken) {
+        this.byPlate = byPlate;
+        this.byToken = byToken;
+    }
+
+    /**
+     * Builds a snapshot of many parked vehicles at once, e.g. on restart.
+     */
+    static ParkingReadModel of(Entry[] entries) {
+        String[] plates = new String[entries.length];
+        String[] tokens = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            plates[i] = entries[i].getVehicle().getRegistrationNumber();
+            tokens[i] = entries[i].getToken().getTokenId();
+        }
+        return new ParkingReadModel(PersistentHashMap.of(plates, entries), PersistentHashMap.of(tokens, entries));
+    }
+
+    ParkingReadModel withParked(Entry entry) {
+        return new ParkingReadModel(
+                byPlate.plus(entry.getVehicle().getRegistrationNumber(), entry),
+                byToken.plus(entry.getToken().getTokenId(), entry));
+    }
+
+    ParkingReadModel withExited(String registrationNumber, String tokenId) {
+        return new ParkingReadModel(byPlate.minus(registrationNumber), byToken.minus(tokenId));
+    }
+
+    /**
+     * Finds a parked vehicle by registration number.
+     * @return the entry, or null if the vehicle is not parked
+     */
+    public Entry findByPlate(String registrationNumber) {
+        return registrationNumber == null ? null : byPlate.get(registrationNumber);
+    }
+
+    /**
+     * Finds a parked vehicle by its active token.
+     * @return the entry, or null if the token is not active
+     */
+    public Entry findByToken(String tokenId) {
+        return tokenId == null ? null : byToken.get(tokenId);
+    }
+
+    /**
+     * Number of parked vehicles.
+     */
+    public int size() {
+        return byToken.size();
+    }
+
+    /**
+     * All parked vehicles, in no particular order.
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(byToken.size());
+        byToken.forEach((tokenId, entry) -> entries.add(entry));
+        return entries;
+    }
+}
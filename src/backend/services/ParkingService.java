@@ -4,8 +4,20 @@ import backend.exceptions.InvalidTokenException;
 import backend.exceptions.SlotNotAvailableException;
 import backend.exceptions.VehicleNotFoundException;
 import backend.models.*;
+import backend.utils.EventLog;
+import backend.utils.IdempotencyCache;
+import backend.utils.RecentTokenFilter;
 import backend.utils.TokenStorage;
+import backend.utils.VehicleFactory;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Core parking service managing vehicle entry, exit, searches,
@@ -13,22 +25,178 @@ import java.util.*;
  */
 public class ParkingService {
 
-    private final List<ParkingFloor> floors;
-    private final Map<String, Token> activeTokens;           // Map tokenId -> Token
-    private final Map<String, ParkingSlot> vehicleSlotMap;   // Map registrationNumber -> ParkingSlot
+    private static final int EXACT_EXITED_TOKENS = 16_384;
+    private static final int EXITED_TOKENS_PER_GENERATION = 262_144;
+    private static final int REMEMBERED_REQUESTS = 65_536;
+    private static final Duration REQUEST_KEY_TTL = Duration.ofMinutes(10);
+
+    private volatile LotLayout layout;                       // Floors and slot indexes, replaced on reconfiguration
+    private final Object reconfigurationLock = new Object(); // Serializes layout changes
+    private List<ParkingSlot> changedDuringRebuild;          // Slots parked or freed while a new layout is built, else null
+    private final Map<String, Token> activeTokens;           // Map tokenId -> Token, readable without the lock
+    private final RecentTokenFilter exitedTokens;            // Tokens already used to exit
+    private ParkingReadModel working;                        // Parked vehicles, updated under the lock
+    private volatile ParkingReadModel published;             // Last completed state, read without the lock
+    private int batchDepth;                                  // Nesting of runBatch calls
+    private final List<ParkingEventListener> listeners;
+    private ReservationEngine reservationEngine;             // Pre-bookings, null if not used
+    private DemandPricing demandPricing;                     // Occupancy surcharges, null for flat rates
+    private volatile IdempotencyCache<Token> parkRequests;   // Tokens issued by request key, for retries
+    private volatile IdempotencyCache<Integer> exitRequests; // Fees charged by request key, for retries
 
     private final SlotAllocator slotAllocator;
     private final FeeCalculator feeCalculator;
+    private final TokenStorage tokenStorage;
+    private final String tokenPrefix;                        // Prepended to issued token IDs, may be empty
+    private volatile LotSnapshot restoring;                  // Answers lookups until a restore completes, else null
+    private final CompletableFuture<Void> restored;          // Completed once the lot state is in memory
+
+    // Free slot counts, readable without taking the service lock
+    private final Map<String, AtomicInteger> availableByType;
+    private final AtomicInteger availableTotal;
+    private final Map<String, AtomicInteger> occupiedByType;    // By slot type, so overflow parks count where they sit; in-service slots only
 
     public ParkingService(List<ParkingFloor> floors) {
+        this(floors, TokenStorage.defaultStorage());
+    }
+
+    /**
+     * Creates a service persisting tokens to the given storage.
+     * @param floors floors managed by this service, in allocation priority order
+     * @param tokenStorage storage receiving issued tokens
+     */
+    public ParkingService(List<ParkingFloor> floors, TokenStorage tokenStorage) {
+        this(floors, tokenStorage, "");
+    }
+
+    /**
+     * Creates a service whose token IDs start with the given prefix, so a
+     * coordinator can route a token back to the service that issued it.
+     * @param floors floors managed by this service, in allocation priority order
+     * @param tokenStorage storage receiving issued tokens
+     * @param tokenPrefix prefix for issued token IDs (e.g., "S03:")
+     */
+    public ParkingService(List<ParkingFloor> floors, TokenStorage tokenStorage, String tokenPrefix) {
+        this(tokenStorage, tokenPrefix, null);
         if (floors == null || floors.isEmpty()) {
             throw new IllegalArgumentException("At least one floor must be provided");
         }
-        this.floors = floors;
-        this.activeTokens = new HashMap<>();
-        this.vehicleSlotMap = new HashMap<>();
+        install(floors, Collections.emptySet());
+    }
+
+    private ParkingService(TokenStorage tokenStorage, String tokenPrefix, LotSnapshot restoring) {
+        if (tokenStorage == null) {
+            throw new IllegalArgumentException("Token storage cannot be null");
+        }
+        this.activeTokens = restoring == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(restoring.getParkedCount());
+        this.exitedTokens = new RecentTokenFilter(EXACT_EXITED_TOKENS, EXITED_TOKENS_PER_GENERATION);
+        this.working = ParkingReadModel.EMPTY;
+        this.published = ParkingReadModel.EMPTY;
         this.slotAllocator = new SlotAllocator();
         this.feeCalculator = new FeeCalculator();
+        this.tokenStorage = tokenStorage;
+        this.tokenPrefix = tokenPrefix == null ? "" : tokenPrefix;
+        this.availableByType = new ConcurrentHashMap<>();
+        this.availableTotal = new AtomicInteger();
+        this.occupiedByType = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.parkRequests = new IdempotencyCache<>(REMEMBERED_REQUESTS, REQUEST_KEY_TTL);
+        this.exitRequests = new IdempotencyCache<>(REMEMBERED_REQUESTS, REQUEST_KEY_TTL);
+        this.restoring = restoring;
+        this.restored = restoring == null ? CompletableFuture.completedFuture(null) : new CompletableFuture<>();
+    }
+
+    private void install(List<ParkingFloor> floors, Set<String> drainedFloors) {
+        layout = new LotLayout(floors, drainedFloors);
+        for (ParkingFloor floor : floors) {
+            for (ParkingSlot slot : floor.getSlots()) {
+                if (layout.isAvailable(slot)) {
+                    countAvailable(slot, 1);
+                } else if (slot.isOccupied() && layout.isInService(slot)) {
+                    countOccupied(slot, 1);
+                }
+            }
+        }
+    }
+
+    // ============================
+    // Snapshots and restart
+    // ============================
+
+    /**
+     * Restarts a lot from a snapshot. Returns at once: plate and token
+     * checks and free counts are answered from the mapped snapshot while
+     * slots, vehicles and tokens are rebuilt on a background thread. Parks,
+     * exits, searches and reconfiguration wait until that finishes.
+     * Tokens used to exit before the snapshot are reported as unknown
+     * rather than already used.
+     * @param snapshot snapshot opened with {@link LotSnapshot#open}
+     * @param tokenStorage storage receiving tokens issued after the restart
+     * @param tokenPrefix prefix for issued token IDs, as given to the original service
+     */
+    public static ParkingService restore(LotSnapshot snapshot, TokenStorage tokenStorage, String tokenPrefix) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Snapshot cannot be null");
+        }
+        ParkingService service = new ParkingService(tokenStorage, tokenPrefix, snapshot);
+        Thread loader = new Thread(() -> service.hydrate(snapshot), "snapshot-restore");
+        loader.setDaemon(true);
+        loader.start();
+        return service;
+    }
+
+    /**
+     * Builds the in-memory state from the snapshot. Runs without the service
+     * lock: every method that reads that state first waits for the restore to
+     * complete, which publishes it.
+     */
+    private void hydrate(LotSnapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            LotSnapshot.Contents contents = snapshot.materialize();
+            install(contents.floors, contents.drainedFloors);
+            for (ParkingReadModel.Entry entry : contents.parked) {
+                activeTokens.put(entry.getToken().getTokenId(), entry.getToken());
+            }
+            ParkingReadModel model = ParkingReadModel.of(contents.parked);
+            working = model;
+            published = model;
+            restoring = null;
+            restored.complete(null);
+            EventLog.info("snapshot.restored", "file", snapshot.getFile(), "parked", contents.parked.length,
+                    "millis", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException | Error e) {
+            // Lookups keep being served from the snapshot; everything else reports the failure
+            restored.completeExceptionally(e);
+            EventLog.error("snapshot.restore_failed", "file", snapshot.getFile(), "error", e.toString());
+        }
+    }
+
+    /**
+     * Whether the service is still rebuilding its state from a snapshot.
+     */
+    public boolean isRestoring() {
+        return restoring != null;
+    }
+
+    private void awaitRestored() {
+        if (restoring != null) {
+            try {
+                restored.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Restore from snapshot failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Current layout and parked vehicles, taken together so a snapshot
+     * writer sees a consistent lot. Both are immutable, so this is O(1); a
+     * caller inside a batch gets the state before the batch.
+     */
+    synchronized Map.Entry<LotLayout, ParkingReadModel> captureState() {
+        awaitRestored();
+        return Map.entry(layout, batchDepth == 0 ? working : published);
     }
 
     /**
@@ -39,26 +207,239 @@ public class ParkingService {
      * @throws IllegalArgumentException if vehicle is already parked
      */
     public synchronized Token parkVehicle(Vehicle vehicle) throws SlotNotAvailableException {
+        return parkVehicle(vehicle, null);
+    }
+
+    /**
+     * Parks a vehicle with an explicit entry time, used when replaying or
+     * simulating traffic on a clock other than the wall clock.
+     * @param vehicle vehicle to park
+     * @param entryTime entry timestamp, or null for the current time
+     * @return token generated for parked vehicle
+     * @throws SlotNotAvailableException if no slots available
+     * @throws IllegalArgumentException if vehicle is already parked
+     */
+    public synchronized Token parkVehicle(Vehicle vehicle, java.time.LocalDateTime entryTime) throws SlotNotAvailableException {
+        awaitRestored();
+        String regNo = vehicle.getRegistrationNumber();
+        if (working.findByPlate(regNo) != null) {
+            throw new IllegalArgumentException("Vehicle with registration " + regNo + " is already parked");
+        }
+
+        java.time.LocalDateTime arrival = entryTime != null ? entryTime : java.time.LocalDateTime.now();
+        SlotAllocator.Placement placement = allocate(vehicle, arrival);
+        return occupy(vehicle, placement.slot, placement.overflow, entryTime);
+    }
+
+    /**
+     * Parks a vehicle at most once per request key, so a gate controller can
+     * retry a request whose answer it never received. A repeated key returns
+     * the token issued the first time, found without taking the service lock,
+     * for as long as the key is remembered. Failed attempts are not
+     * remembered and run again when retried.
+     * @param vehicle vehicle to park
+     * @param requestKey key chosen by the client, unique per park request
+     * @return token issued for the first attempt with this key
+     * @throws SlotNotAvailableException if no slots available
+     * @throws IllegalArgumentException if the key is blank or was used for another vehicle,
+     *         or the vehicle is already parked under a different request
+     */
+    public Token parkVehicleOnce(Vehicle vehicle, String requestKey) throws SlotNotAvailableException {
+        requireRequestKey(requestKey);
+        IdempotencyCache<Token> requests = parkRequests;
+        String regNo = vehicle.getRegistrationNumber();
+        Token issued = requests.get(requestKey, regNo);
+        if (issued != null) {
+            return issued;
+        }
+        synchronized (this) {
+            // A duplicate in flight may have completed while this one waited for the lock
+            issued = requests.get(requestKey, regNo);
+            if (issued == null) {
+                issued = parkVehicle(vehicle);
+                requests.put(requestKey, regNo, issued);
+            }
+            return issued;
+        }
+    }
+
+    /**
+     * Parks a vehicle holding a reservation in its booked slot. If the booked
+     * slot is still occupied, the vehicle gets the best other free slot.
+     * @param vehicle arriving vehicle
+     * @param reservationId booking made through the reservation engine
+     * @return token generated for parked vehicle
+     * @throws SlotNotAvailableException if the booked slot is taken and no other slot is free; the booking is kept
+     * @throws IllegalArgumentException if the booking is unknown or for another vehicle
+     * @throws IllegalStateException if no reservation engine is attached
+     */
+    public synchronized Token parkReservedVehicle(Vehicle vehicle, String reservationId) throws SlotNotAvailableException {
+        if (reservationEngine == null) {
+            throw new IllegalStateException("No reservation engine attached");
+        }
+        awaitRestored();
+        Reservation reservation = reservationEngine.getReservation(reservationId);
+        if (reservation == null) {
+            throw new IllegalArgumentException("Unknown reservation: " + reservationId);
+        }
         String regNo = vehicle.getRegistrationNumber();
-        if (vehicleSlotMap.containsKey(regNo)) {
+        if (!reservation.getVehicleType().equals(vehicle.getType())
+                || (reservation.getVehicleRegNumber() != null && !reservation.getVehicleRegNumber().equals(regNo))) {
+            throw new IllegalArgumentException("Reservation " + reservationId + " is not for vehicle " + regNo);
+        }
+        if (working.findByPlate(regNo) != null) {
             throw new IllegalArgumentException("Vehicle with registration " + regNo + " is already parked");
         }
 
-        ParkingSlot slot = slotAllocator.findBestSlot(vehicle, floors);
-        slot.parkVehicle(vehicle);
+        // The booked slot may have been taken, closed, retired or retyped since booking;
+        // if no other slot is free either, the booking is kept for a later attempt
+        ParkingSlot slot = layout.slotIndex.get(reservation.getSlotId());
+        boolean overflow = false;
+        if (slot == null || !layout.isAvailable(slot) || !slot.getCompatibleType().equals(vehicle.getType())) {
+            SlotAllocator.Placement placement = allocate(vehicle, java.time.LocalDateTime.now());
+            slot = placement.slot;
+            overflow = placement.overflow;
+        }
+        // The booking is consumed on arrival so its hold no longer blocks the slot
+        reservationEngine.cancel(reservationId);
+        return occupy(vehicle, slot, overflow, null);
+    }
 
-        Token token = new Token(slot.getSlotId(), regNo);
+    /**
+     * Attaches a reservation engine; walk-ins then skip slots held for bookings.
+     * @param engine engine built over this service's floors, or null to detach
+     */
+    public synchronized void setReservationEngine(ReservationEngine engine) {
+        this.reservationEngine = engine;
+        slotAllocator.setReservationEngine(engine);
+    }
+
+    /**
+     * Switches exit fees to occupancy-driven pricing, which from now on
+     * samples this service's counters on every park and exit.
+     * @param pricing pricing built over this service, or null for flat rates
+     */
+    public synchronized void setDemandPricing(DemandPricing pricing) {
+        if (demandPricing != null) {
+            removeListener(demandPricing);
+        }
+        demandPricing = pricing;
+        if (pricing != null) {
+            addListener(pricing);
+        }
+        feeCalculator.setDemandPricing(pricing);
+    }
+
+    /**
+     * Picks the best free slot on the floors currently accepting vehicles.
+     */
+    private SlotAllocator.Placement allocate(Vehicle vehicle, java.time.LocalDateTime arrival) throws SlotNotAvailableException {
+        return slotAllocator.findBestSlot(vehicle, layout.freeSlots, arrival);
+    }
+
+    /**
+     * Lets vehicles of one type overflow into free slots of a larger type
+     * when their own type is full; see {@link SlotAllocator#setOverflowCost}.
+     */
+    public void setOverflowCost(String vehicleType, String slotType, int cost) {
+        slotAllocator.setOverflowCost(vehicleType, slotType, cost);
+    }
+
+    /**
+     * Stops vehicles of one type from overflowing into slots of another.
+     */
+    public void clearOverflow(String vehicleType, String slotType) {
+        slotAllocator.clearOverflow(vehicleType, slotType);
+    }
+
+    /**
+     * Total number of times a vehicle has been parked in a larger slot than
+     * its own type since the service started. Exits do not reduce it.
+     */
+    public long getOverflowPlacements() {
+        return slotAllocator.getOverflowPlacements();
+    }
+
+    /**
+     * Puts a vehicle into a chosen free slot and issues its token.
+     */
+    private Token occupy(Vehicle vehicle, ParkingSlot slot, boolean overflow, java.time.LocalDateTime entryTime) {
+        String regNo = vehicle.getRegistrationNumber();
+        Token token = tokenPrefix.isEmpty()
+                ? new Token(slot.getSlotId(), regNo)
+                : new Token(tokenPrefix + UUID.randomUUID(), slot.getSlotId(), regNo);
+        if (entryTime != null) {
+            token.setEntryTime(entryTime);
+        }
+        place(vehicle, slot, overflow, token);
+        return token;
+    }
+
+    /**
+     * Puts a vehicle into a free slot under an already issued token.
+     * @param overflow true if the slot is of a larger type than the vehicle
+     */
+    private void place(Vehicle vehicle, ParkingSlot slot, boolean overflow, Token token) {
+        String regNo = vehicle.getRegistrationNumber();
+        slot.parkVehicle(vehicle, overflow);
+        slotTaken(slot);
 
         // ============================
         // Save token to file for persistence
         // ============================
-        TokenStorage.saveToken(token);
-        System.out.println("Token saved: " + token.getTokenId() + " | Vehicle: " + regNo + " | Slot: " + slot.getSlotId());
+        tokenStorage.append(token);
+        EventLog.info("token.saved", "token", token.getTokenId(), "vehicle", regNo, "slot", slot.getSlotId());
 
         activeTokens.put(token.getTokenId(), token);
-        vehicleSlotMap.put(regNo, slot);
+        working = working.withParked(new ParkingReadModel.Entry(vehicle, slot, token));
+        publish();
 
-        return token;
+        ParkingFloor floor = layout.slotFloorMap.get(slot.getSlotId());
+        for (ParkingEventListener listener : listeners) {
+            listener.vehicleParked(floor, slot, vehicle, token);
+        }
+    }
+
+    /**
+     * Applies a park replicated from a primary: the vehicle goes into the
+     * same slot under the same token and entry time. Does nothing if the
+     * token is already active, so a resent record is harmless.
+     * @throws IllegalStateException if the slot is unknown or taken, or the vehicle is parked elsewhere
+     */
+    synchronized void applyPark(String tokenId, String slotId, Vehicle vehicle, java.time.LocalDateTime entryTime) {
+        awaitRestored();
+        if (activeTokens.containsKey(tokenId)) {
+            return;
+        }
+        ParkingSlot slot = layout.slotIndex.get(slotId);
+        if (slot == null) {
+            throw new IllegalStateException("Unknown slot: " + slotId);
+        }
+        String regNo = vehicle.getRegistrationNumber();
+        if (working.findByPlate(regNo) != null) {
+            throw new IllegalStateException("Vehicle with registration " + regNo + " is already parked");
+        }
+        Token token = new Token(tokenId, slotId, regNo);
+        token.setEntryTime(entryTime);
+        // The primary's allocator fitted the vehicle; the slot still refuses one larger than itself
+        place(vehicle, slot, !slot.getCompatibleType().equals(vehicle.getType()), token);
+    }
+
+    /**
+     * Applies an exit replicated from a primary. Does nothing if the token
+     * is not active.
+     */
+    synchronized void applyExit(String tokenId, java.time.LocalDateTime exitTime) {
+        awaitRestored();
+        Token token = activeTokens.get(tokenId);
+        if (token == null) {
+            return;
+        }
+        try {
+            exitActiveTokenWithTimes(tokenId, token.getEntryTime(), exitTime);
+        } catch (InvalidTokenException e) {
+            throw new IllegalStateException("Token index out of sync for " + tokenId, e);
+        }
     }
 
     /**
@@ -67,13 +448,53 @@ public class ParkingService {
      * @return fee calculated for the parking duration
      * @throws InvalidTokenException if token invalid or already used
      */
-    public synchronized int exitVehicle(String tokenId) throws InvalidTokenException {
+    public int exitVehicle(String tokenId) throws InvalidTokenException {
+        rejectIfInactive(tokenId);
+        return exitActiveToken(tokenId);
+    }
+
+    /**
+     * Exits a vehicle at most once per request key. A repeated key returns
+     * the fee charged the first time instead of rejecting the used token.
+     * @param tokenId token received when parking
+     * @param requestKey key chosen by the client, unique per exit request
+     * @return fee charged for the first attempt with this key
+     * @throws InvalidTokenException if the token is invalid or was used by a different request
+     * @throws IllegalArgumentException if the key is blank or was used for another exit
+     */
+    public int exitVehicleOnce(String tokenId, String requestKey) throws InvalidTokenException {
+        requireRequestKey(requestKey);
+        IdempotencyCache<Integer> requests = exitRequests;
+        Integer charged = requests.get(requestKey, tokenId);
+        if (charged != null) {
+            return charged;
+        }
+        try {
+            rejectIfInactive(tokenId);
+        } catch (InvalidTokenException e) {
+            // The duplicate in flight may just have used the token
+            charged = requests.get(requestKey, tokenId);
+            if (charged != null) {
+                return charged;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            charged = requests.get(requestKey, tokenId);
+            if (charged == null) {
+                charged = exitActiveToken(tokenId);
+                requests.put(requestKey, tokenId, charged);
+            }
+            return charged;
+        }
+    }
+
+    private synchronized int exitActiveToken(String tokenId) throws InvalidTokenException {
+    awaitRestored();
     Token token = activeTokens.get(tokenId);
     if (token == null) {
-        throw new InvalidTokenException(tokenId);
-    }
-    if (token.getExitTime() != null) {
-        throw new InvalidTokenException("Token " + tokenId + " has already been used to exit");
+        // Another gate used the token after the unlocked check
+        throw rejection(tokenId);
     }
 
     // Record the exit time
@@ -87,23 +508,31 @@ public class ParkingService {
 
     // Free the parking slot
     slot.freeSlot();
+    slotReleased(slot);
 
     // Remove vehicle from vehicle to slot lookup
-    vehicleSlotMap.remove(vehicle.getRegistrationNumber());
+    working = working.withExited(vehicle.getRegistrationNumber(), tokenId);
+    publish();
 
-    // Remove token from active tokens
+    // Remove token from active tokens, remembering it for replay detection
     activeTokens.remove(tokenId);
+    exitedTokens.add(tokenId);
+    tokenStorage.recordExit(token);
 
     // Calculate parking fee
-    return feeCalculator.calculateFee(vehicle, token.getEntryTime(), token.getExitTime());
+    int fee = feeCalculator.calculateFee(vehicle, token.getEntryTime(), token.getExitTime());
+    fireExited(slot, vehicle, token, fee);
+    return fee;
 }
-public synchronized int exitVehicleWithTimes(String tokenId, java.time.LocalDateTime entryTime, java.time.LocalDateTime exitTime) throws InvalidTokenException {
+public int exitVehicleWithTimes(String tokenId, java.time.LocalDateTime entryTime, java.time.LocalDateTime exitTime) throws InvalidTokenException {
+    rejectIfInactive(tokenId);
+    return exitActiveTokenWithTimes(tokenId, entryTime, exitTime);
+}
+private synchronized int exitActiveTokenWithTimes(String tokenId, java.time.LocalDateTime entryTime, java.time.LocalDateTime exitTime) throws InvalidTokenException {
+    awaitRestored();
     Token token = activeTokens.get(tokenId);
     if (token == null) {
-        throw new InvalidTokenException(tokenId);
-    }
-    if (token.getExitTime() != null) {
-        throw new InvalidTokenException("Token " + tokenId + " has already been used to exit");
+        throw rejection(tokenId);
     }
 
     // Set the entry and exit timestamps on the token
@@ -114,53 +543,517 @@ public synchronized int exitVehicleWithTimes(String tokenId, java.time.LocalDate
     Vehicle vehicle = slot.getParkedVehicle();
 
     slot.freeSlot();
-    vehicleSlotMap.remove(vehicle.getRegistrationNumber());
+    slotReleased(slot);
+    working = working.withExited(vehicle.getRegistrationNumber(), tokenId);
+    publish();
     activeTokens.remove(tokenId);
+    exitedTokens.add(tokenId);
+    tokenStorage.recordExit(token);
 
-    return feeCalculator.calculateFee(vehicle, entryTime, exitTime);
+    int fee = feeCalculator.calculateFee(vehicle, entryTime, exitTime);
+    fireExited(slot, vehicle, token, fee);
+    return fee;
 }
 
+    /**
+     * Exits a vehicle identified by its registration number, for gates that
+     * read plates instead of tokens.
+     * @param registrationNumber vehicle registration
+     * @return fee calculated for the parking duration
+     * @throws VehicleNotFoundException if the vehicle is not parked
+     */
+    public synchronized int exitVehicleByRegistration(String registrationNumber) throws VehicleNotFoundException {
+        awaitRestored();
+        ParkingReadModel.Entry entry = working.findByPlate(registrationNumber);
+        if (entry == null) {
+            throw new VehicleNotFoundException(registrationNumber);
+        }
+        try {
+            return exitVehicle(entry.getToken().getTokenId());
+        } catch (InvalidTokenException e) {
+            throw new IllegalStateException("Token index out of sync for " + registrationNumber, e);
+        }
+    }
 
     /**
-     * Searches for a parked vehicle by registration number.
+     * Exits a vehicle by registration at most once per request key; see
+     * {@link #exitVehicleOnce}.
+     * @param registrationNumber vehicle registration
+     * @param requestKey key chosen by the client, unique per exit request
+     * @return fee charged for the first attempt with this key
+     * @throws VehicleNotFoundException if the vehicle is not parked and the key is not remembered
+     * @throws IllegalArgumentException if the key is blank or was used for another exit
+     */
+    public int exitVehicleByRegistrationOnce(String registrationNumber, String requestKey) throws VehicleNotFoundException {
+        requireRequestKey(requestKey);
+        IdempotencyCache<Integer> requests = exitRequests;
+        Integer charged = requests.get(requestKey, registrationNumber);
+        if (charged != null) {
+            return charged;
+        }
+        synchronized (this) {
+            charged = requests.get(requestKey, registrationNumber);
+            if (charged == null) {
+                charged = exitVehicleByRegistration(registrationNumber);
+                requests.put(requestKey, registrationNumber, charged);
+            }
+            return charged;
+        }
+    }
+
+    /**
+     * Changes how many request keys are remembered for retries and for how
+     * long. Keys remembered so far are forgotten.
+     * @param capacity most park keys and most exit keys remembered at once
+     * @param ttl how long a key is remembered after its request completed
+     */
+    public synchronized void setRequestKeyWindow(int capacity, Duration ttl) {
+        parkRequests = new IdempotencyCache<>(capacity, ttl);
+        exitRequests = new IdempotencyCache<>(capacity, ttl);
+    }
+
+    private static void requireRequestKey(String requestKey) {
+        if (requestKey == null || requestKey.isBlank()) {
+            throw new IllegalArgumentException("Request key cannot be blank");
+        }
+    }
+
+    /**
+     * Runs a batch of operations under a single acquisition of the service
+     * lock, so gateways can amortize locking over many requests. Readers
+     * outside the batch see its effects all at once when it completes.
+     * @param batch operations calling back into this service
+     */
+    public synchronized void runBatch(Runnable batch) {
+        awaitRestored();
+        batchDepth++;
+        try {
+            batch.run();
+        } finally {
+            batchDepth--;
+            publish();
+        }
+    }
+
+    /**
+     * Publishes the working state to lock-free readers unless a batch is still running.
+     */
+    private void publish() {
+        if (batchDepth == 0) {
+            published = working;
+        }
+    }
+
+    /**
+     * Returns the latest published snapshot of parked vehicles. Threads inside
+     * a write or batch see their own uncommitted changes. Waits for a
+     * restore from a snapshot to complete.
+     */
+    public ParkingReadModel getReadModel() {
+        awaitRestored();
+        return Thread.holdsLock(this) ? working : published;
+    }
+
+    /**
+     * Searches for a parked vehicle by registration number, without taking the service lock.
      * @param registrationNumber vehicle registration
      * @return ParkingSlot where vehicle is parked
      * @throws VehicleNotFoundException if not found
      */
-    public synchronized ParkingSlot searchVehicle(String registrationNumber) throws VehicleNotFoundException {
-        ParkingSlot slot = vehicleSlotMap.get(registrationNumber);
-        if (slot == null) {
+    public ParkingSlot searchVehicle(String registrationNumber) throws VehicleNotFoundException {
+        ParkingReadModel.Entry entry = getReadModel().findByPlate(registrationNumber);
+        if (entry == null) {
             throw new VehicleNotFoundException(registrationNumber);
         }
-        return slot;
+        return entry.getSlot();
+    }
+
+    /**
+     * Checks whether a vehicle is currently parked, without the cost of
+     * a VehicleNotFoundException when it is not.
+     * @param registrationNumber vehicle registration
+     */
+    public boolean isVehicleParked(String registrationNumber) {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null) {
+            return snapshot.isParked(registrationNumber);
+        }
+        return getReadModel().findByPlate(registrationNumber) != null;
     }
 
     /**
      * Returns all floors managed by the service.
      */
     public List<ParkingFloor> getFloors() {
-        return Collections.unmodifiableList(floors);
+        awaitRestored();
+        return layout.floors;
     }
 
     /**
-     * Helper to find slot by its ID across all floors.
+     * Number of free slots across all floors. Reads a counter maintained by
+     * park and exit, so it does not wait for the service lock.
      */
-    private ParkingSlot findSlotById(String slotId) throws InvalidTokenException {
-        for (ParkingFloor floor : floors) {
+    public int getAvailableSlotCount() {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null) {
+            return snapshot.getAvailableSlotCount();
+        }
+        return availableTotal.get();
+    }
+
+    /**
+     * Number of free slots of one type, read without the service lock.
+     * @param vehicleType Type string (e.g., "TWO_WHEELER")
+     */
+    public int getAvailableSlotCount(String vehicleType) {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null) {
+            return snapshot.getAvailableSlotCount(vehicleType);
+        }
+        AtomicInteger count = availableByType.get(vehicleType);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Number of slots of one type on floors accepting vehicles, free or not,
+     * including slots that are out of service.
+     * @param vehicleType Type string (e.g., "TWO_WHEELER")
+     */
+    public int getSlotCount(String vehicleType) {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null) {
+            return snapshot.getSlotCount(vehicleType);
+        }
+        return layout.freeSlots.capacity(vehicleType);
+    }
+
+    /**
+     * Number of occupied slots of one type that are in service and on floors
+     * accepting vehicles, read without the service lock. Vehicles still in
+     * disabled slots or on draining floors are left out, as their slots are
+     * left out of {@link #getAvailableSlotCount(String)}, so the two together
+     * give the occupancy of the working lot. While restoring from a snapshot,
+     * out-of-service slots are counted as occupied.
+     * @param slotType Type string (e.g., "TWO_WHEELER")
+     */
+    public int getOccupiedSlotCount(String slotType) {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null) {
+            return snapshot.getSlotCount(slotType) - snapshot.getAvailableSlotCount(slotType);
+        }
+        AtomicInteger count = occupiedByType.get(slotType);
+        return count == null ? 0 : count.get();
+    }
+
+    private void slotTaken(ParkingSlot slot) {
+        countAvailable(slot, -1);
+        if (layout.isInService(slot)) {
+            countOccupied(slot, 1);
+        }
+        slotChanged(slot);
+    }
+
+    /**
+     * Moves a freed slot from occupied to available unless it was closed or
+     * its floor is draining, in which case it was counted as neither.
+     */
+    private void slotReleased(ParkingSlot slot) {
+        if (layout.isAvailable(slot)) {
+            countOccupied(slot, -1);
+            countAvailable(slot, 1);
+        }
+        slotChanged(slot);
+    }
+
+    private void slotChanged(ParkingSlot slot) {
+        layout.refresh(slot);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(slot);
+        }
+    }
+
+    private void countAvailable(ParkingSlot slot, int delta) {
+        availableByType.computeIfAbsent(slot.getCompatibleType(), t -> new AtomicInteger()).addAndGet(delta);
+        availableTotal.addAndGet(delta);
+    }
+
+    private void countOccupied(ParkingSlot slot, int delta) {
+        occupiedByType.computeIfAbsent(slot.getCompatibleType(), t -> new AtomicInteger()).addAndGet(delta);
+    }
+
+    // ============================
+    // Online reconfiguration
+    // ============================
+
+    /**
+     * Adds a floor after the existing ones in allocation order.
+     * @param floor new floor; its ID and slot IDs must not already exist in the lot
+     * @throws IllegalArgumentException if the floor or one of its slots already exists
+     */
+    public void addFloor(ParkingFloor floor) {
+        if (floor == null) {
+            throw new IllegalArgumentException("Floor cannot be null");
+        }
+        reconfigure(current -> current.withFloorAdded(floor), (before, after) -> {
             for (ParkingSlot slot : floor.getSlots()) {
-                if (slot.getSlotId().equals(slotId)) {
-                    return slot;
+                if (after.isAvailable(slot)) {
+                    countAvailable(slot, 1);
+                }
+            }
+            return null;
+        });
+        EventLog.info("lot.floor_added", "floor", floor.getFloorId(), "slots", floor.getSlots().size());
+    }
+
+    /**
+     * Stops allocating a slot, e.g. for maintenance. A vehicle parked there
+     * stays until it exits; the slot is not reused until re-enabled.
+     * @param slotId slot to close
+     * @throws IllegalArgumentException if the slot does not exist
+     */
+    public void disableSlot(String slotId) {
+        setOutOfService(slotId, true);
+    }
+
+    /**
+     * Returns a disabled slot to service.
+     * @param slotId slot to reopen
+     * @throws IllegalArgumentException if the slot does not exist
+     */
+    public void enableSlot(String slotId) {
+        setOutOfService(slotId, false);
+    }
+
+    private void setOutOfService(String slotId, boolean outOfService) {
+        reconfigure(Function.identity(), (before, after) -> {
+            ParkingSlot slot = before.slot(slotId);
+            boolean wasAvailable = before.isAvailable(slot);
+            boolean wasInService = before.isInService(slot);
+            slot.setOutOfService(outOfService);
+            after.refresh(slot);
+            int delta = (before.isAvailable(slot) ? 1 : 0) - (wasAvailable ? 1 : 0);
+            if (delta != 0) {
+                countAvailable(slot, delta);
+            }
+            if (slot.isOccupied() && wasInService != before.isInService(slot)) {
+                countOccupied(slot, wasInService ? -1 : 1);
+            }
+            return null;
+        });
+        EventLog.info(outOfService ? "lot.slot_disabled" : "lot.slot_enabled", "slot", slotId);
+    }
+
+    /**
+     * Removes a slot from the lot permanently.
+     * @param slotId slot to remove; disable it first and wait for the vehicle to leave if it is occupied
+     * @throws IllegalArgumentException if the slot does not exist
+     * @throws IllegalStateException if a vehicle is parked in the slot
+     */
+    public void retireSlot(String slotId) {
+        reconfigure(current -> current.withSlotReplaced(slotId, slot -> null), (before, after) -> {
+            ParkingSlot slot = requireFree(before, slotId);
+            if (before.isAvailable(slot)) {
+                countAvailable(slot, -1);
+            }
+            return null;
+        });
+        EventLog.info("lot.slot_retired", "slot", slotId);
+    }
+
+    /**
+     * Changes the vehicle type a slot accepts, e.g. when a bay is converted
+     * for EV charging. The slot keeps its ID, position, distance and service state.
+     * @param slotId slot to change; must be free
+     * @param vehicleType new compatible type (e.g., "FOUR_WHEELER")
+     * @throws IllegalArgumentException if the slot or type is unknown
+     * @throws IllegalStateException if a vehicle is parked in the slot
+     */
+    public void changeSlotType(String slotId, String vehicleType) {
+        if (VehicleFactory.indexOf(vehicleType) < 0) {
+            throw new IllegalArgumentException("Unknown vehicle type: " + vehicleType);
+        }
+        reconfigure(current -> current.withSlotReplaced(slotId, slot -> {
+            ParkingSlot retyped = new ParkingSlot(slot.getSlotId(), vehicleType, slot.getDistance());
+            retyped.setOutOfService(slot.isOutOfService());
+            return retyped;
+        }), (before, after) -> {
+            ParkingSlot slot = requireFree(before, slotId);
+            if (before.isAvailable(slot)) {
+                countAvailable(slot, -1);
+            }
+            ParkingSlot retyped = after.slot(slotId);
+            if (after.isAvailable(retyped)) {
+                countAvailable(retyped, 1);
+            }
+            return null;
+        });
+        EventLog.info("lot.slot_retyped", "slot", slotId, "type", vehicleType);
+    }
+
+    /**
+     * Stops allocating slots on a floor, e.g. before cleaning. Vehicles
+     * already there exit normally.
+     * @param floorId floor to drain
+     * @return number of vehicles still parked on the floor
+     * @throws IllegalArgumentException if the floor does not exist
+     */
+    public int drainFloor(String floorId) {
+        int parked = setDrained(floorId, true);
+        EventLog.info("lot.floor_draining", "floor", floorId, "parked", parked);
+        return parked;
+    }
+
+    /**
+     * Returns a drained floor to service.
+     * @param floorId floor to reopen
+     * @throws IllegalArgumentException if the floor does not exist
+     */
+    public void reopenFloor(String floorId) {
+        setDrained(floorId, false);
+        EventLog.info("lot.floor_reopened", "floor", floorId);
+    }
+
+    private int setDrained(String floorId, boolean drained) {
+        return reconfigure(current -> current.withDrained(floorId, drained), (before, after) -> {
+            int parked = 0;
+            for (ParkingSlot slot : before.floor(floorId).getSlots()) {
+                if (slot.isOccupied()) {
+                    parked++;
+                    int inService = (after.isInService(slot) ? 1 : 0) - (before.isInService(slot) ? 1 : 0);
+                    if (inService != 0) {
+                        countOccupied(slot, inService);
+                    }
+                }
+                int delta = (after.isAvailable(slot) ? 1 : 0) - (before.isAvailable(slot) ? 1 : 0);
+                if (delta != 0) {
+                    countAvailable(slot, delta);
                 }
             }
+            return parked;
+        });
+    }
+
+    private static ParkingSlot requireFree(LotLayout layout, String slotId) {
+        ParkingSlot slot = layout.slot(slotId);
+        if (slot.isOccupied()) {
+            throw new IllegalStateException("Slot " + slotId + " is occupied by " + slot.getParkedVehicle().getRegistrationNumber());
         }
-        throw new InvalidTokenException("Parking slot not found: " + slotId);
+        return slot;
     }
-    public synchronized String getAllParkedVehiclesInfo() {
+
+    /**
+     * Applies a layout change read-copy-update style. The new layout is
+     * built from the current one without the service lock, so parks and
+     * exits keep running meanwhile; the lock is held only to check the change
+     * against live occupancy, adjust the free counts, bring the new free slot
+     * index up to date with slots parked or freed during the build, and swap
+     * the reference.
+     * @param derive builds the new layout from the current one
+     * @param commit runs under the service lock with the old and new layouts; may throw to abandon the change
+     */
+    private <T> T reconfigure(Function<LotLayout, LotLayout> derive, BiFunction<LotLayout, LotLayout, T> commit) {
+        if (Thread.holdsLock(this)) {
+            // Taking the reconfiguration lock here could deadlock with a change waiting for the service lock
+            throw new IllegalStateException("The lot cannot be reconfigured from inside a batch or listener");
+        }
+        awaitRestored();
+        synchronized (reconfigurationLock) {
+            synchronized (this) {
+                changedDuringRebuild = new ArrayList<>();
+            }
+            try {
+                LotLayout next = derive.apply(layout);
+                synchronized (this) {
+                    T result = commit.apply(layout, next);
+                    for (ParkingSlot slot : changedDuringRebuild) {
+                        next.refresh(slot);
+                    }
+                    layout = next;
+                    return result;
+                }
+            } finally {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks a token without taking the service lock.
+     * @param tokenId token to check
+     * @return whether the token is active, was already used to exit, or is unknown
+     */
+    public TokenStatus getTokenStatus(String tokenId) {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null) {
+            return snapshot.isActiveToken(tokenId) ? TokenStatus.ACTIVE : TokenStatus.UNKNOWN;
+        }
+        if (tokenId != null && activeTokens.containsKey(tokenId)) {
+            return TokenStatus.ACTIVE;
+        }
+        return exitedTokens.mightContain(tokenId) ? TokenStatus.USED : TokenStatus.UNKNOWN;
+    }
+
+    /**
+     * Rejects inactive tokens before the service lock is taken, so replayed
+     * or bogus tickets cost two concurrent lookups and a stackless exception.
+     */
+    private void rejectIfInactive(String tokenId) throws InvalidTokenException {
+        LotSnapshot snapshot = restoring;
+        if (snapshot != null ? !snapshot.isActiveToken(tokenId) : tokenId == null || !activeTokens.containsKey(tokenId)) {
+            throw rejection(tokenId);
+        }
+    }
+
+    private InvalidTokenException rejection(String tokenId) {
+        return InvalidTokenException.rejected(tokenId, exitedTokens.mightContain(tokenId)
+                ? InvalidTokenException.Reason.ALREADY_USED : InvalidTokenException.Reason.UNKNOWN);
+    }
+
+    /**
+     * Helper to find slot by its ID across all floors.
+     */
+    private ParkingSlot findSlotById(String slotId) throws InvalidTokenException {
+        ParkingSlot slot = layout.slotIndex.get(slotId);
+        if (slot == null) {
+            throw new InvalidTokenException("Parking slot not found: " + slotId);
+        }
+        return slot;
+    }
+
+    /**
+     * Registers a listener for park and exit events.
+     * @param listener listener to add
+     */
+    public void addListener(ParkingEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     */
+    public void removeListener(ParkingEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireExited(ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        ParkingFloor floor = layout.slotFloorMap.get(slot.getSlotId());
+        for (ParkingEventListener listener : listeners) {
+            listener.vehicleExited(floor, slot, vehicle, token, fee);
+        }
+    }
+    public String getAllParkedVehiclesInfo() {
     StringBuilder sb = new StringBuilder();
-    if (activeTokens.isEmpty()) {
+    ParkingReadModel snapshot = getReadModel();
+    if (snapshot.size() == 0) {
         sb.append("No vehicles currently parked.");
     } else {
-        for (Token token : activeTokens.values()) {
+        for (ParkingReadModel.Entry entry : snapshot.entries()) {
+            Token token = entry.getToken();
             sb.append("Registration: ").append(token.getVehicleRegNumber())
               .append("\nSlot: ").append(token.getSlotId())
               .append("\nToken: ").append(token.getTokenId())
@@ -169,13 +1062,12 @@ public synchronized int exitVehicleWithTimes(String tokenId, java.time.LocalDate
     }
     return sb.toString();
 }
-public synchronized int calculateFeeForToken(String tokenId, java.time.LocalDateTime entryTime, java.time.LocalDateTime exitTime) throws InvalidTokenException {
-    Token token = activeTokens.get(tokenId);
-    if (token == null) {
+public int calculateFeeForToken(String tokenId, java.time.LocalDateTime entryTime, java.time.LocalDateTime exitTime) throws InvalidTokenException {
+    ParkingReadModel.Entry entry = getReadModel().findByToken(tokenId);
+    if (entry == null) {
         throw new InvalidTokenException(tokenId);
     }
-    Vehicle vehicle = findSlotById(token.getSlotId()).getParkedVehicle();
-    return feeCalculator.calculateFee(vehicle, entryTime, exitTime);
+    return feeCalculator.calculateFee(entry.getVehicle(), entryTime, exitTime);
 }
 
 }
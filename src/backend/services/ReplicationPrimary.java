@@ -0,0 +1,363 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.utils.EventLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import backend.services.ReplicationProtocol.Record;
+
+/**
+ * Ships every park and exit of a service to hot standbys.
+ *
+ * As a listener it runs under the service lock and only numbers the event
+ * and drops it into a ring of recent records; each connected standby has
+ * its own sender thread that drains the ring in batches, so a slow or dead
+ * standby never holds up a gate. A standby that reconnects resumes from the
+ * record after the last one it applied. One that is too far behind for the
+ * ring, or that last followed a different primary, first gets the complete
+ * set of parked vehicles as of a sequence number, captured under the
+ * service lock so no event falls between the state and the stream.
+ *
+ * Standbys acknowledge what they have applied, which gives the replication
+ * lag: how long the oldest unacknowledged record has been waiting.
+ * Layout changes are not replicated; a standby must be started with the
+ * same layout as the primary.
+ */
+public class ReplicationPrimary implements ParkingEventListener, AutoCloseable {
+
+    private static final int MAX_BATCH = 1024;
+
+    private final ParkingService service;
+    private final ServerSocket serverSocket;
+    private final long epoch;                   // Identifies this primary's sequence numbering
+    private final Record[] ring;                // Recent records by sequence & mask
+    private final int mask;
+    private final long heartbeatMillis;
+    private final List<Link> links;
+
+    private volatile long lastSequence;         // Written under this lock, read without it
+    private int idleSenders;                    // Senders waiting for records, guarded by this lock
+    private volatile boolean running;
+    private Thread acceptor;
+
+    /**
+     * Creates a primary keeping the last million records for reconnecting standbys.
+     * @param service service whose events are shipped
+     * @param port port standbys connect to, or 0 for any free port
+     */
+    public ReplicationPrimary(ParkingService service, int port) throws IOException {
+        this(service, port, 1 << 20, Duration.ofMillis(200));
+    }
+
+    /**
+     * Constructor
+     * @param service service whose events are shipped
+     * @param port port standbys connect to, or 0 for any free port
+     * @param retainedRecords records kept for standbys catching up, rounded up to a power of two
+     * @param heartbeat interval at which idle standbys are told the primary is alive
+     */
+    public ReplicationPrimary(ParkingService service, int port, int retainedRecords, Duration heartbeat) throws IOException {
+        if (service == null || retainedRecords <= 0 || heartbeat == null || heartbeat.isNegative() || heartbeat.isZero()) {
+            throw new IllegalArgumentException("Service, a positive retention and a positive heartbeat are required");
+        }
+        this.service = service;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(port));
+        this.epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        int capacity = Integer.highestOneBit(Math.max(2, retainedRecords) - 1) << 1;
+        this.ring = new Record[capacity];
+        this.mask = capacity - 1;
+        this.heartbeatMillis = heartbeat.toMillis();
+        this.links = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Starts recording events and accepting standbys.
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Replication already started");
+        }
+        running = true;
+        service.addListener(this);
+        acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        EventLog.info("replication.primary_started", "port", getPort(), "epoch", Long.toHexString(epoch));
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Sequence number of the latest park or exit.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Number of standbys currently connected.
+     */
+    public int getStandbyCount() {
+        return links.size();
+    }
+
+    /**
+     * Highest sequence applied by every connected standby.
+     * @return the sequence, or -1 if no standby is connected
+     */
+    public long getAckedSequence() {
+        long acked = Long.MAX_VALUE;
+        for (Link link : links) {
+            acked = Math.min(acked, link.acked);
+        }
+        return acked == Long.MAX_VALUE ? -1 : acked;
+    }
+
+    /**
+     * How long the oldest record not yet applied by every connected standby
+     * has been waiting.
+     * @return lag in milliseconds; 0 if all standbys are caught up, -1 if none is connected
+     */
+    public long getLagMillis() {
+        long acked = getAckedSequence();
+        if (acked < 0) {
+            return -1;
+        }
+        if (acked >= lastSequence) {
+            return 0;
+        }
+        Record oldest;
+        synchronized (this) {
+            oldest = ring[(int) ((acked + 1) & mask)];
+        }
+        if (oldest == null || oldest.sequence != acked + 1) {
+            // Already overwritten: the standby is at least a full ring behind
+            return Long.MAX_VALUE;
+        }
+        return (System.nanoTime() - oldest.createdNanos) / 1_000_000;
+    }
+
+    @Override
+    public void vehicleParked(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token) {
+        append(ReplicationProtocol.PARK, ReplicationProtocol.toMillis(token.getEntryTime()), token.getTokenId(),
+                slot.getSlotId(), vehicle.getRegistrationNumber(), vehicle.getType());
+    }
+
+    @Override
+    public void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        append(ReplicationProtocol.EXIT, ReplicationProtocol.toMillis(token.getExitTime()), token.getTokenId(),
+                null, null, null);
+    }
+
+    private synchronized void append(byte op, long timeMillis, String tokenId, String slotId, String registration, String type) {
+        long sequence = lastSequence + 1;
+        ring[(int) (sequence & mask)] = new Record(sequence, op, timeMillis, tokenId, slotId, registration, type, System.nanoTime());
+        lastSequence = sequence;
+        if (idleSenders > 0) {
+            // Busy senders pick the record up on their next pass, so only idle ones are woken
+            notifyAll();
+        }
+    }
+
+    // ============================
+    // Standby connections
+    // ============================
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Link link = new Link(socket);
+                Thread sender = new Thread(link, "replication-sender-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    EventLog.error("replication.accept_failed", "error", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * One connected standby: this thread sends, a second one reads acknowledgements.
+     */
+    private final class Link implements Runnable {
+        final Socket socket;
+        volatile long acked = -1;
+
+        Link(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            String peer = String.valueOf(socket.getRemoteSocketAddress());
+            try (Socket s = socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 1 << 16));
+                if (in.readInt() != ReplicationProtocol.MAGIC) {
+                    throw new IOException("Not a replication standby");
+                }
+                long standbyEpoch = in.readLong();
+                long applied = in.readLong();
+                out.writeByte(ReplicationProtocol.HELLO);
+                out.writeLong(epoch);
+
+                long next;
+                synchronized (ReplicationPrimary.this) {
+                    boolean resumable = standbyEpoch == epoch && applied <= lastSequence && retained(applied + 1);
+                    next = resumable ? applied + 1 : -1;
+                }
+                if (next < 0) {
+                    // Nothing counts as applied until the standby acknowledges the full state
+                    acked = 0;
+                    next = sendSync(out);
+                } else {
+                    acked = applied;
+                }
+                out.flush();
+                links.add(this);
+                EventLog.info("replication.standby_connected", "standby", peer, "from", next);
+                startAckReader(in);
+
+                List<Record> batch = new ArrayList<>(MAX_BATCH);
+                while (running && !s.isClosed()) {
+                    boolean behind = false;
+                    synchronized (ReplicationPrimary.this) {
+                        if (lastSequence < next) {
+                            idleSenders++;
+                            try {
+                                ReplicationPrimary.this.wait(heartbeatMillis);
+                            } finally {
+                                idleSenders--;
+                            }
+                        }
+                        if (lastSequence >= next && !retained(next)) {
+                            behind = true;
+                        } else {
+                            for (long seq = next; seq <= lastSequence && batch.size() < MAX_BATCH; seq++) {
+                                batch.add(ring[(int) (seq & mask)]);
+                            }
+                        }
+                    }
+                    if (behind) {
+                        EventLog.warn("replication.standby_resync", "standby", peer, "from", next);
+                        next = sendSync(out);
+                    } else if (batch.isEmpty()) {
+                        out.writeByte(ReplicationProtocol.HEARTBEAT);
+                        out.writeLong(next - 1);
+                    } else {
+                        out.writeByte(ReplicationProtocol.BATCH);
+                        out.writeInt(batch.size());
+                        for (Record record : batch) {
+                            record.writeTo(out);
+                        }
+                        next += batch.size();
+                        batch.clear();
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (running) {
+                    EventLog.warn("replication.standby_lost", "standby", peer, "error", e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                links.remove(this);
+            }
+        }
+
+        /**
+         * Whether a sequence number is still in the ring.
+         */
+        private boolean retained(long sequence) {
+            return sequence > lastSequence - ring.length;
+        }
+
+        /**
+         * Sends every parked vehicle as of the current sequence number.
+         * @return the first sequence number to stream afterwards
+         */
+        private long sendSync(DataOutputStream out) throws IOException {
+            ParkingReadModel[] model = new ParkingReadModel[1];
+            long[] sequence = new long[1];
+            // Events are appended under the service lock, so none can fall between these two reads
+            service.runBatch(() -> {
+                model[0] = service.getReadModel();
+                sequence[0] = lastSequence;
+            });
+            List<ParkingReadModel.Entry> entries = model[0].entries();
+            out.writeByte(ReplicationProtocol.SYNC);
+            out.writeLong(sequence[0]);
+            out.writeInt(entries.size());
+            for (ParkingReadModel.Entry entry : entries) {
+                Token token = entry.getToken();
+                new Record(sequence[0], ReplicationProtocol.PARK, ReplicationProtocol.toMillis(token.getEntryTime()),
+                        token.getTokenId(), entry.getSlot().getSlotId(), entry.getVehicle().getRegistrationNumber(),
+                        entry.getVehicle().getType(), 0).writeTo(out);
+            }
+            return sequence[0] + 1;
+        }
+
+        private void startAckReader(DataInputStream in) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (true) {
+                        acked = in.readLong();
+                    }
+                } catch (IOException e) {
+                    // The sender notices the closed socket on its next write
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                        // Already closed
+                    }
+                }
+            }, "replication-acks-" + socket.getRemoteSocketAddress());
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Stops shipping events and disconnects all standbys.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        service.removeListener(this);
+        serverSocket.close();
+        for (Link link : links) {
+            try {
+                link.socket.close();
+            } catch (IOException e) {
+                // Already closed by the peer
+            }
+        }
+    }
+}
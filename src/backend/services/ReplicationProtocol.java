@@ -0,0 +1,98 @@
+package backend.services;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Wire format shared by {@link ReplicationPrimary} and {@link ReplicationStandby}.
+ *
+ * <pre>
+ * standby -> primary   MAGIC, epoch, last applied sequence; then one ack (applied sequence) per message
+ * primary -> standby   HELLO epoch
+ *                      SYNC sequence, count, park records    (full state as of sequence)
+ *                      BATCH count, records                  (consecutive sequences)
+ *                      HEARTBEAT last sequence
+ * park record          'P', sequence, entry millis, token, slot, registration, vehicle type
+ * exit record          'X', sequence, exit millis, token
+ * </pre>
+ *
+ * Times are local date-times encoded as UTC epoch millis, so both sides
+ * agree regardless of their zone settings.
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x50524550;    // "PREP"
+    static final byte HELLO = 1;
+    static final byte SYNC = 2;
+    static final byte BATCH = 3;
+    static final byte HEARTBEAT = 4;
+    static final byte PARK = 'P';
+    static final byte EXIT = 'X';
+
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * One park or exit, as shipped to standbys.
+     */
+    static final class Record {
+        final long sequence;
+        final byte op;
+        final long timeMillis;
+        final String tokenId;
+        final String slotId;            // Park records only
+        final String registration;      // Park records only
+        final String vehicleType;       // Park records only
+        final long createdNanos;        // Local to the primary, for lag measurement
+
+        Record(long sequence, byte op, long timeMillis, String tokenId, String slotId,
+               String registration, String vehicleType, long createdNanos) {
+            this.sequence = sequence;
+            this.op = op;
+            this.timeMillis = timeMillis;
+            this.tokenId = tokenId;
+            this.slotId = slotId;
+            this.registration = registration;
+            this.vehicleType = vehicleType;
+            this.createdNanos = createdNanos;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeByte(op);
+            out.writeLong(sequence);
+            out.writeLong(timeMillis);
+            out.writeUTF(tokenId);
+            if (op == PARK) {
+                out.writeUTF(slotId);
+                out.writeUTF(registration);
+                out.writeUTF(vehicleType);
+            }
+        }
+
+        static Record readFrom(DataInputStream in) throws IOException {
+            byte op = in.readByte();
+            long sequence = in.readLong();
+            long timeMillis = in.readLong();
+            String tokenId = in.readUTF();
+            if (op == PARK) {
+                return new Record(sequence, op, timeMillis, tokenId, in.readUTF(), in.readUTF(), in.readUTF(), 0);
+            }
+            if (op == EXIT) {
+                return new Record(sequence, op, timeMillis, tokenId, null, null, null, 0);
+            }
+            throw new IOException("Unknown replication record type " + op);
+        }
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,267 @@
+package backend.services;
+
+import backend.utils.EventLog;
+import backend.utils.VehicleFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import backend.services.ReplicationProtocol.Record;
+
+/**
+ * Keeps a service in step with a {@link ReplicationPrimary} so it can take
+ * over when the primary dies.
+ *
+ * A background thread connects to the primary, applies each batch of parks
+ * and exits under one acquisition of the service lock, and acknowledges the
+ * last sequence number applied. Applied events reach the standby's own
+ * token storage and listeners just as local ones would. If the connection
+ * drops the thread reconnects and resumes where it left off; a full state
+ * sync replaces the standby's parked vehicles with the primary's when the
+ * gap cannot be replayed. The standby service must not take gate traffic
+ * of its own until {@link #promote} is called.
+ */
+public class ReplicationStandby implements AutoCloseable {
+
+    private static final long MAX_RETRY_MILLIS = 1000;
+
+    private final ParkingService service;
+    private final InetSocketAddress primary;
+    private final int timeoutMillis;
+
+    private volatile long epoch;                // Primary whose sequence we follow, 0 before the first sync
+    private volatile long appliedSequence;
+    private volatile long lastContactNanos;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread worker;
+
+    /**
+     * Creates a standby that treats one second without contact as a lost primary.
+     * @param service service started with the same layout as the primary's
+     * @param host primary host
+     * @param port primary replication port
+     */
+    public ReplicationStandby(ParkingService service, String host, int port) {
+        this(service, host, port, Duration.ofSeconds(1));
+    }
+
+    /**
+     * Constructor
+     * @param service service started with the same layout as the primary's
+     * @param host primary host
+     * @param port primary replication port
+     * @param timeout silence after which the connection is dropped and retried; several primary heartbeats
+     */
+    public ReplicationStandby(ParkingService service, String host, int port, Duration timeout) {
+        if (service == null || host == null || timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Service, primary address and a positive timeout are required");
+        }
+        this.service = service;
+        this.primary = new InetSocketAddress(host, port);
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+        this.lastContactNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts following the primary on a background thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Standby already started");
+        }
+        running = true;
+        worker = new Thread(this::followLoop, "replication-standby");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Sequence number of the last park or exit applied.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Whether the standby is currently connected to the primary.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Time since the last message from the primary, data or heartbeat.
+     */
+    public long getMillisSinceContact() {
+        return (System.nanoTime() - lastContactNanos) / 1_000_000;
+    }
+
+    private void followLoop() {
+        long retryMillis = 50;
+        while (running) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                s.connect(primary, timeoutMillis);
+                s.setSoTimeout(timeoutMillis);
+                s.setTcpNoDelay(true);
+                follow(s);
+            } catch (IOException e) {
+                if (running && connected) {
+                    EventLog.warn("replication.primary_lost", "primary", primary, "applied", appliedSequence, "error", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                // The records could not be applied here; start over from a full sync
+                EventLog.error("replication.apply_failed", "primary", primary, "applied", appliedSequence, "error", e.getMessage());
+                epoch = 0;
+            } finally {
+                connected = false;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                retryMillis = Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+            }
+        }
+    }
+
+    private void follow(Socket s) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        out.writeLong(epoch);
+        out.writeLong(appliedSequence);
+        out.flush();
+        if (in.readByte() != ReplicationProtocol.HELLO) {
+            throw new IOException("Not a replication primary");
+        }
+        long primaryEpoch = in.readLong();
+        lastContactNanos = System.nanoTime();
+        connected = true;
+        EventLog.info("replication.following", "primary", primary, "from", appliedSequence + 1);
+
+        while (running) {
+            byte type = in.readByte();
+            if (type == ReplicationProtocol.SYNC) {
+                long sequence = in.readLong();
+                applySync(readRecords(in));
+                epoch = primaryEpoch;
+                appliedSequence = sequence;
+            } else if (type == ReplicationProtocol.BATCH) {
+                List<Record> records = readRecords(in);
+                if (epoch != primaryEpoch || records.get(0).sequence != appliedSequence + 1) {
+                    throw new IOException("Replication stream out of order at " + records.get(0).sequence);
+                }
+                service.runBatch(() -> {
+                    for (Record record : records) {
+                        apply(record);
+                    }
+                });
+                appliedSequence = records.get(records.size() - 1).sequence;
+            } else if (type == ReplicationProtocol.HEARTBEAT) {
+                in.readLong();
+            } else {
+                throw new IOException("Unknown replication message " + type);
+            }
+            lastContactNanos = System.nanoTime();
+            out.writeLong(appliedSequence);
+            out.flush();
+        }
+    }
+
+    private static List<Record> readRecords(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(Record.readFrom(in));
+        }
+        return records;
+    }
+
+    /**
+     * Makes the parked vehicles match the primary's: vehicles the primary
+     * no longer has are exited now, missing ones are parked.
+     */
+    private void applySync(List<Record> parked) {
+        Set<String> tokens = new HashSet<>(parked.size() * 4 / 3 + 1);
+        for (Record record : parked) {
+            tokens.add(record.tokenId);
+        }
+        service.runBatch(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (ParkingReadModel.Entry entry : service.getReadModel().entries()) {
+                if (!tokens.contains(entry.getToken().getTokenId())) {
+                    service.applyExit(entry.getToken().getTokenId(), now);
+                }
+            }
+            for (Record record : parked) {
+                apply(record);
+            }
+        });
+        EventLog.info("replication.synced", "primary", primary, "parked", parked.size());
+    }
+
+    private void apply(Record record) {
+        LocalDateTime time = ReplicationProtocol.fromMillis(record.timeMillis);
+        if (record.op == ReplicationProtocol.PARK) {
+            service.applyPark(record.tokenId, record.slotId, VehicleFactory.create(record.vehicleType, record.registration), time);
+        } else {
+            service.applyExit(record.tokenId, time);
+        }
+    }
+
+    /**
+     * Stops following the primary so the service can take gate traffic.
+     * Records the primary sent but this standby had not applied are lost.
+     * @return the service, now holding every park and exit applied so far
+     */
+    public ParkingService promote() {
+        close();
+        EventLog.info("replication.promoted", "applied", appliedSequence);
+        return service;
+    }
+
+    /**
+     * Stops following the primary.
+     */
+    @Override
+    public void close() {
+        Thread following;
+        synchronized (this) {
+            running = false;
+            following = worker;
+            worker = null;
+        }
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        if (following != null) {
+            following.interrupt();
+            try {
+                following.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package backend.services;
+
+import backend.exceptions.SlotNotAvailableException;
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Reservation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Holds pre-bookings per slot and answers availability over time windows.
+ *
+ * Each slot keeps its bookings in a TreeMap keyed by start time; bookings on
+ * a slot never overlap, so checking a window is a single floor lookup,
+ * O(log b). Per vehicle type, slots are also indexed by the end of their last
+ * booking and the start of their first one. A window that starts after a
+ * slot's last booking or ends before its first booking (including slots
+ * with no bookings at all) is therefore found in O(log n) without looking at
+ * individual bookings. Windows squeezed between existing bookings are
+ * answered by a {@link FreeGapIndex} of the gaps between consecutive
+ * bookings, also in O(log n). A candidate occupied right now is skipped for
+ * the next one in the same order, so each such slot adds one more step.
+ *
+ * The allocator asks {@link #isHeld} whether a walk-in may take a slot: a
+ * slot is held if a booking is active now or starts within the hold-ahead
+ * period, since a walk-in's departure time is unknown.
+ */
+public class ReservationEngine {
+
+    private static final long NONE_BEFORE = Long.MIN_VALUE;
+    private static final long NONE_AFTER = Long.MAX_VALUE;
+
+    private final ZoneId zone;
+    private final long holdAheadSeconds;
+    private final Map<String, SlotCalendar> calendars;              // Map slotId -> calendar
+    private final Map<String, TypeIndex> typeIndexes;               // Map vehicleType -> index
+    private final Map<String, Reservation> reservations;            // Map reservationId -> reservation
+
+    /**
+     * Bookings of one slot.
+     */
+    private static final class SlotCalendar {
+        final ParkingSlot slot;
+        final int order;                                            // Allocation order of the slot
+        final TreeMap<Long, Reservation> byStart = new TreeMap<>();
+        final Map<Reservation, Long> ends = new HashMap<>();
+        long lastEnd = NONE_BEFORE;
+        long firstStart = NONE_AFTER;
+
+        SlotCalendar(ParkingSlot slot, int order) {
+            this.slot = slot;
+            this.order = order;
+        }
+
+        boolean isFree(long start, long end) {
+            Map.Entry<Long, Reservation> before = byStart.lowerEntry(end);
+            return before == null || ends.get(before.getValue()) <= start;
+        }
+    }
+
+    /**
+     * Slots of one vehicle type ordered by their booking bounds.
+     */
+    private static final class TypeIndex {
+        final TreeSet<SlotCalendar> byLastEnd = new TreeSet<>(
+                Comparator.<SlotCalendar>comparingLong(c -> c.lastEnd).thenComparingInt(c -> c.order));
+        final TreeSet<SlotCalendar> byFirstStart = new TreeSet<>(
+                Comparator.<SlotCalendar>comparingLong(c -> c.firstStart).thenComparingInt(c -> -c.order));
+        final FreeGapIndex<SlotCalendar> innerGaps = new FreeGapIndex<>();
+    }
+
+    /**
+     * Creates an engine for the given floors.
+     * @param floors floors whose slots can be booked, in allocation priority order
+     * @param holdAhead how long before a booking starts its slot is withheld from walk-ins
+     */
+    public ReservationEngine(List<ParkingFloor> floors, Duration holdAhead) {
+        this(floors, holdAhead, ZoneId.systemDefault());
+    }
+
+    public ReservationEngine(List<ParkingFloor> floors, Duration holdAhead, ZoneId zone) {
+        if (floors == null || holdAhead == null || holdAhead.isNegative() || zone == null) {
+            throw new IllegalArgumentException("Floors, a non-negative hold-ahead and a zone must be provided");
+        }
+        this.zone = zone;
+        this.holdAheadSeconds = holdAhead.getSeconds();
+        this.calendars = new HashMap<>();
+        this.typeIndexes = new HashMap<>();
+        this.reservations = new HashMap<>();
+        int order = 0;
+        for (ParkingFloor floor : floors) {
+            for (ParkingSlot slot : floor.getSlots()) {
+                SlotCalendar calendar = new SlotCalendar(slot, order++);
+                calendars.put(slot.getSlotId(), calendar);
+                TypeIndex index = typeIndexes.computeIfAbsent(slot.getCompatibleType(), t -> new TypeIndex());
+                index.byLastEnd.add(calendar);
+                index.byFirstStart.add(calendar);
+            }
+        }
+    }
+
+    /**
+     * Books a slot of the given type for a time window.
+     * @param vehicleType vehicle type to book for
+     * @param vehicleRegNumber expected vehicle, or null for any vehicle of the type
+     * @param start window start
+     * @param end window end
+     * @return the booking
+     * @throws SlotNotAvailableException if no slot of the type is free for the whole window
+     */
+    public synchronized Reservation reserve(String vehicleType, String vehicleRegNumber,
+                                            LocalDateTime start, LocalDateTime end) throws SlotNotAvailableException {
+        ParkingSlot slot = findFreeSlot(vehicleType, start, end);
+        if (slot == null) {
+            throw new SlotNotAvailableException(vehicleType);
+        }
+        Reservation reservation = new Reservation(slot.getSlotId(), vehicleType, vehicleRegNumber, start, end);
+        add(calendars.get(slot.getSlotId()), reservation);
+        return reservation;
+    }
+
+    /**
+     * Finds a slot of the given type with no booking overlapping the window.
+     * Slots that are occupied now are skipped if the window starts within the hold-ahead period.
+     * @return a free slot, or null if none
+     */
+    public synchronized ParkingSlot findFreeSlot(String vehicleType, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !end.isAfter(start)) {
+            throw new IllegalArgumentException("Window must end after it starts");
+        }
+        TypeIndex index = typeIndexes.get(vehicleType);
+        if (index == null) {
+            return null;
+        }
+        long s = toSeconds(start);
+        long e = toSeconds(end);
+        long now = toSeconds(LocalDateTime.now());
+
+        // Slots whose bookings all end before the window, earliest first
+        for (SlotCalendar candidate : index.byLastEnd) {
+            if (candidate.lastEnd > s) {
+                break;
+            }
+            if (usableNow(candidate, s, now)) {
+                return candidate.slot;
+            }
+        }
+        // Slots whose bookings all start after the window, latest first
+        for (SlotCalendar candidate : index.byFirstStart.descendingSet()) {
+            if (candidate.firstStart < e) {
+                break;
+            }
+            if (usableNow(candidate, s, now)) {
+                return candidate.slot;
+            }
+        }
+        // Gap between two bookings of one slot
+        SlotCalendar candidate = index.innerGaps.findCovering(s, e, calendar -> usableNow(calendar, s, now));
+        return candidate == null ? null : candidate.slot;
+    }
+
+    /**
+     * A slot occupied right now cannot be promised for a window starting soon.
+     */
+    private boolean usableNow(SlotCalendar calendar, long start, long now) {
+        return !(calendar.slot.isOccupied() && start < now + holdAheadSeconds);
+    }
+
+    /**
+     * Checks whether a walk-in arriving at the given time must not take the slot.
+     * @return true if a booking is active at that time or starts within the hold-ahead period
+     */
+    public synchronized boolean isHeld(ParkingSlot slot, LocalDateTime at) {
+        SlotCalendar calendar = calendars.get(slot.getSlotId());
+        if (calendar == null || calendar.byStart.isEmpty()) {
+            return false;
+        }
+        long t = toSeconds(at);
+        return !calendar.isFree(t, t + Math.max(1, holdAheadSeconds));
+    }
+
+    /**
+     * Returns a booking by ID.
+     * @return the booking, or null if unknown, cancelled or consumed
+     */
+    public synchronized Reservation getReservation(String reservationId) {
+        return reservations.get(reservationId);
+    }
+
+    /**
+     * Cancels a booking, releasing its window.
+     * @return true if the booking existed
+     */
+    public synchronized boolean cancel(String reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        remove(calendars.get(reservation.getSlotId()), reservation);
+        return true;
+    }
+
+    /**
+     * Drops bookings that ended before the given time.
+     * @return number of bookings removed
+     */
+    public synchronized int purgeBefore(LocalDateTime time) {
+        long t = toSeconds(time);
+        int removed = 0;
+        for (SlotCalendar calendar : calendars.values()) {
+            Iterator<Reservation> it = calendar.byStart.values().iterator();
+            List<Reservation> expired = new ArrayList<>();
+            while (it.hasNext()) {
+                Reservation reservation = it.next();
+                if (calendar.ends.get(reservation) > t) {
+                    break;
+                }
+                expired.add(reservation);
+            }
+            for (Reservation reservation : expired) {
+                remove(calendar, reservation);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Number of bookings currently held.
+     */
+    public synchronized int size() {
+        return reservations.size();
+    }
+
+    private void add(SlotCalendar calendar, Reservation reservation) {
+        TypeIndex index = typeIndexes.get(calendar.slot.getCompatibleType());
+        index.byLastEnd.remove(calendar);
+        index.byFirstStart.remove(calendar);
+        long start = toSeconds(reservation.getStart());
+        long end = toSeconds(reservation.getEnd());
+        Map.Entry<Long, Reservation> prev = calendar.byStart.lowerEntry(start);
+        Map.Entry<Long, Reservation> next = calendar.byStart.higherEntry(start);
+        long prevEnd = prev == null ? NONE_BEFORE : calendar.ends.get(prev.getValue());
+        long nextStart = next == null ? NONE_AFTER : next.getKey();
+        if (prev != null && next != null) {
+            removeGap(index, calendar, prevEnd, nextStart);
+        }
+        if (prev != null) {
+            addGap(index, calendar, prevEnd, start);
+        }
+        if (next != null) {
+            addGap(index, calendar, end, nextStart);
+        }
+        calendar.byStart.put(start, reservation);
+        calendar.ends.put(reservation, end);
+        calendar.lastEnd = Math.max(calendar.lastEnd, end);
+        calendar.firstStart = Math.min(calendar.firstStart, start);
+        index.byLastEnd.add(calendar);
+        index.byFirstStart.add(calendar);
+        reservations.put(reservation.getReservationId(), reservation);
+    }
+
+    private void remove(SlotCalendar calendar, Reservation reservation) {
+        TypeIndex index = typeIndexes.get(calendar.slot.getCompatibleType());
+        index.byLastEnd.remove(calendar);
+        index.byFirstStart.remove(calendar);
+        long start = toSeconds(reservation.getStart());
+        long end = calendar.ends.get(reservation);
+        Map.Entry<Long, Reservation> prev = calendar.byStart.lowerEntry(start);
+        Map.Entry<Long, Reservation> next = calendar.byStart.higherEntry(start);
+        long prevEnd = prev == null ? NONE_BEFORE : calendar.ends.get(prev.getValue());
+        long nextStart = next == null ? NONE_AFTER : next.getKey();
+        if (prev != null) {
+            removeGap(index, calendar, prevEnd, start);
+        }
+        if (next != null) {
+            removeGap(index, calendar, end, nextStart);
+        }
+        if (prev != null && next != null) {
+            addGap(index, calendar, prevEnd, nextStart);
+        }
+        calendar.byStart.remove(start);
+        calendar.ends.remove(reservation);
+        calendar.lastEnd = calendar.byStart.isEmpty()
+                ? NONE_BEFORE : calendar.ends.get(calendar.byStart.lastEntry().getValue());
+        calendar.firstStart = calendar.byStart.isEmpty() ? NONE_AFTER : calendar.byStart.firstKey();
+        index.byLastEnd.add(calendar);
+        index.byFirstStart.add(calendar);
+        reservations.remove(reservation.getReservationId());
+    }
+
+    /**
+     * Indexes the free gap [from, to) between two bookings; empty gaps are not kept.
+     */
+    private static void addGap(TypeIndex index, SlotCalendar calendar, long from, long to) {
+        if (from < to) {
+            index.innerGaps.insert(from, to, calendar.order, calendar);
+        }
+    }
+
+    private static void removeGap(TypeIndex index, SlotCalendar calendar, long from, long to) {
+        if (from < to) {
+            index.innerGaps.remove(from, calendar.order);
+        }
+    }
+
+    private long toSeconds(LocalDateTime time) {
+        return time.atZone(zone).toEpochSecond();
+    }
+}
@@ -4,13 +4,115 @@ import backend.exceptions.SlotNotAvailableException;
 import backend.models.ParkingFloor;
 import backend.models.ParkingSlot;
 import backend.models.Vehicle;
+import backend.utils.EventLog;
+import backend.utils.VehicleFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 /**
  * Service responsible for smart allocation of parking slots to vehicles.
+ *
+ * A vehicle always gets a slot of its own type when one is free. Smaller
+ * vehicles may also be allowed into larger slots, each such fit with a cost;
+ * when the vehicle's own type is full, the cheapest allowed larger type with
+ * a free slot is used, and the fallback is counted and logged.
  */
 public class SlotAllocator {
 
+    /**
+     * A slot type a vehicle type may use, and what it costs to do so.
+     */
+    private static final class Fit {
+        final String slotType;
+        final int cost;
+
+        Fit(String slotType, int cost) {
+            this.slotType = slotType;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * A slot chosen for a vehicle, and whether it is of a larger type than the vehicle.
+     */
+    static final class Placement {
+        final ParkingSlot slot;
+        final boolean overflow;
+
+        Placement(ParkingSlot slot, boolean overflow) {
+            this.slot = slot;
+            this.overflow = overflow;
+        }
+    }
+
+    private volatile ReservationEngine reservations;     // Pre-bookings to respect, null if none
+    private final Map<String, List<Fit>> fits = new ConcurrentHashMap<>();  // Map vehicle type -> slot types to try, cheapest first
+    private final LongAdder overflows = new LongAdder();    // Running total, not decremented on exit
+
+    /**
+     * Lets vehicles of one type use free slots of a larger type when their
+     * own type is full. Among several allowed types the lowest cost wins.
+     * @param vehicleType smaller vehicle type (e.g., "TWO_WHEELER")
+     * @param slotType larger slot type (e.g., "FOUR_WHEELER")
+     * @param cost relative cost of the fit, at least 1
+     * @throws IllegalArgumentException if either type is unknown, the slot type is not larger, or the cost is not positive
+     */
+    public void setOverflowCost(String vehicleType, String slotType, int cost) {
+        int vehicleSize = VehicleFactory.indexOf(vehicleType);
+        int slotSize = VehicleFactory.indexOf(slotType);
+        if (vehicleSize < 0 || slotSize < 0) {
+            throw new IllegalArgumentException("Unknown vehicle type: " + (vehicleSize < 0 ? vehicleType : slotType));
+        }
+        if (slotSize <= vehicleSize) {
+            throw new IllegalArgumentException(slotType + " slots are not larger than " + vehicleType);
+        }
+        if (cost < 1) {
+            throw new IllegalArgumentException("Overflow cost must be positive");
+        }
+        fits.compute(vehicleType, (type, current) -> {
+            List<Fit> updated = new ArrayList<>();
+            if (current != null) {
+                current.stream().filter(fit -> !fit.slotType.equals(slotType)).forEach(updated::add);
+            }
+            updated.add(new Fit(slotType, cost));
+            updated.sort(Comparator.comparingInt((Fit fit) -> fit.cost));
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Stops vehicles of one type from using slots of another type.
+     */
+    public void clearOverflow(String vehicleType, String slotType) {
+        fits.computeIfPresent(vehicleType, (type, current) -> {
+            List<Fit> updated = new ArrayList<>(current);
+            updated.removeIf(fit -> fit.slotType.equals(slotType));
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Total number of times a vehicle has been placed in a larger slot than
+     * its own type since this allocator was created. Exits do not reduce it.
+     */
+    public long getOverflowPlacements() {
+        return overflows.sum();
+    }
+
+    /**
+     * Makes allocation skip slots held for upcoming reservations.
+     * @param reservations reservation engine, or null to ignore bookings
+     */
+    public void setReservationEngine(ReservationEngine reservations) {
+        this.reservations = reservations;
+    }
+
     /**
      * Finds the best available parking slot for the given vehicle.
      *
@@ -25,23 +127,76 @@ public class SlotAllocator {
      * @throws SlotNotAvailableException if no suitable slot is available.
      */
     public ParkingSlot findBestSlot(Vehicle vehicle, List<ParkingFloor> floors) throws SlotNotAvailableException {
+        return findBestSlot(vehicle, floors, LocalDateTime.now());
+    }
+
+    /**
+     * Finds the best available slot for a vehicle arriving at the given time,
+     * skipping slots held by a reservation at that time.
+     *
+     * @param vehicle Vehicle to allocate slot for.
+     * @param floors List of parking floors to search.
+     * @param arrival Arrival time checked against reservations.
+     * @return Allocated ParkingSlot.
+     * @throws SlotNotAvailableException if no suitable slot is available.
+     */
+    public ParkingSlot findBestSlot(Vehicle vehicle, List<ParkingFloor> floors, LocalDateTime arrival) throws SlotNotAvailableException {
         if (vehicle == null || floors == null || floors.isEmpty()) {
             throw new IllegalArgumentException("Vehicle and floors must be provided");
         }
 
-        String vehicleType = vehicle.getType();
+        ParkingSlot slot = firstFree(vehicle.getType(), floors, arrival);
+        if (slot != null) {
+            return slot;
+        }
+        for (Fit fit : fits.getOrDefault(vehicle.getType(), List.of())) {
+            slot = firstFree(fit.slotType, floors, arrival);
+            if (slot != null) {
+                return overflowed(vehicle, slot, fit);
+            }
+        }
+        throw new SlotNotAvailableException(vehicle.getType());
+    }
 
+    private ParkingSlot firstFree(String slotType, List<ParkingFloor> floors, LocalDateTime arrival) {
+        ReservationEngine held = reservations;
         for (ParkingFloor floor : floors) {
-            List<ParkingSlot> slots = floor.getSlots();
-
             // Find first available compatible slot
-            for (ParkingSlot slot : slots) {
-                if (!slot.isOccupied() && vehicleType.equals(slot.getCompatibleType())) {
+            for (ParkingSlot slot : floor.getSlots()) {
+                if (!slot.isOccupied() && !slot.isOutOfService() && slotType.equals(slot.getCompatibleType())
+                        && (held == null || !held.isHeld(slot, arrival))) {
                     return slot;
                 }
             }
         }
+        return null;
+    }
 
+    /**
+     * Finds the same slot as {@link #findBestSlot(Vehicle, List, LocalDateTime)}
+     * through the free slot index, in O(log n) per slot type tried.
+     * @return the slot, flagged as an overflow when it is of a larger type
+     */
+    Placement findBestSlot(Vehicle vehicle, FreeSlotIndex index, LocalDateTime arrival) throws SlotNotAvailableException {
+        ReservationEngine held = reservations;
+        Predicate<ParkingSlot> notHeld = held == null ? null : slot -> !held.isHeld(slot, arrival);
+        ParkingSlot slot = index.first(vehicle.getType(), notHeld);
+        if (slot != null) {
+            return new Placement(slot, false);
+        }
+        for (Fit fit : fits.getOrDefault(vehicle.getType(), List.of())) {
+            slot = index.first(fit.slotType, notHeld);
+            if (slot != null) {
+                return new Placement(overflowed(vehicle, slot, fit), true);
+            }
+        }
         throw new SlotNotAvailableException(vehicle.getType());
     }
+
+    private ParkingSlot overflowed(Vehicle vehicle, ParkingSlot slot, Fit fit) {
+        overflows.increment();
+        EventLog.info("allocation.overflow", "vehicle", vehicle.getRegistrationNumber(),
+                "slot", slot.getSlotId(), "cost", fit.cost);
+        return slot;
+    }
 }
@@ -0,0 +1,291 @@
+package backend.services;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Reservation;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.utils.EventLog;
+import backend.utils.TimingWheel;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks per-token and per-reservation deadlines on a timing wheel.
+ *
+ * Registered as a ParkingEventListener, the monitor schedules a max-stay
+ * deadline when a vehicle parks and cancels every deadline of the token when
+ * it exits, both in O(1). Prepaid time and reservation no-shows are scheduled
+ * explicitly. Expired deadlines are logged and handed to the registered
+ * {@link DeadlineListener}s; a reservation whose holder never arrived is
+ * also released from the ReservationEngine.
+ *
+ * Time advances through {@link #advanceTo}, either from a simulation clock
+ * or from the wall clock via {@link #start}.
+ */
+public class StayMonitor implements ParkingEventListener, AutoCloseable {
+
+    /**
+     * Kind of deadline being tracked.
+     */
+    public enum Kind { MAX_STAY, PREPAID_EXPIRY, RESERVATION_EXPIRY }
+
+    /**
+     * A deadline that has been reached.
+     */
+    public static final class Deadline {
+        private final Kind kind;
+        private final String id;                    // Token ID or reservation ID
+        private final String slotId;
+        private final String vehicleRegNumber;
+        private final LocalDateTime due;
+
+        Deadline(Kind kind, String id, String slotId, String vehicleRegNumber, LocalDateTime due) {
+            this.kind = kind;
+            this.id = id;
+            this.slotId = slotId;
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.due = due;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getSlotId() {
+            return slotId;
+        }
+
+        public String getVehicleRegNumber() {
+            return vehicleRegNumber;
+        }
+
+        public LocalDateTime getDue() {
+            return due;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "[" + id + ", slot=" + slotId + ", vehicle=" + vehicleRegNumber + ", due=" + due + "]";
+        }
+    }
+
+    /**
+     * Receives expired deadlines, outside the monitor's lock.
+     */
+    public interface DeadlineListener {
+        void deadlineReached(Deadline deadline);
+    }
+
+    private final ZoneId zone;
+    private final TimingWheel<Deadline> wheel;
+    private final Map<Kind, Map<String, TimingWheel.Timeout<Deadline>>> pending;  // Kind -> id -> timeout
+    private final Map<String, Duration> maxStay;                                     // Map vehicleType -> limit
+    private final List<DeadlineListener> listeners;
+    private ReservationEngine reservationEngine;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a monitor.
+     * @param tick resolution of deadlines
+     * @param start current time
+     */
+    public StayMonitor(Duration tick, LocalDateTime start) {
+        this(tick, start, ZoneId.systemDefault());
+    }
+
+    public StayMonitor(Duration tick, LocalDateTime start, ZoneId zone) {
+        if (tick == null || tick.toMillis() <= 0 || start == null || zone == null) {
+            throw new IllegalArgumentException("A positive tick, a start time and a zone must be provided");
+        }
+        this.zone = zone;
+        this.wheel = new TimingWheel<>(tick.toMillis(), toMillis(start));
+        this.pending = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            pending.put(kind, new HashMap<>());
+        }
+        this.maxStay = new HashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Sets the longest allowed stay for a vehicle type; applies to vehicles parked afterwards.
+     * @param vehicleType vehicle type
+     * @param limit maximum stay, or null to remove the limit
+     */
+    public synchronized void setMaxStay(String vehicleType, Duration limit) {
+        if (limit == null) {
+            maxStay.remove(vehicleType);
+        } else if (limit.isNegative() || limit.isZero()) {
+            throw new IllegalArgumentException("Maximum stay must be positive");
+        } else {
+            maxStay.put(vehicleType, limit);
+        }
+    }
+
+    /**
+     * Lets no-show reservations be released when their expiry is reached.
+     */
+    public synchronized void setReservationEngine(ReservationEngine reservationEngine) {
+        this.reservationEngine = reservationEngine;
+    }
+
+    public void addListener(DeadlineListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(DeadlineListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public synchronized void vehicleParked(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token) {
+        Duration limit = maxStay.get(vehicle.getType());
+        if (limit != null && token.getEntryTime() != null) {
+            schedule(Kind.MAX_STAY, token.getTokenId(), slot.getSlotId(), vehicle.getRegistrationNumber(),
+                    token.getEntryTime().plus(limit));
+        }
+    }
+
+    @Override
+    public synchronized void vehicleExited(ParkingFloor floor, ParkingSlot slot, Vehicle vehicle, Token token, int fee) {
+        cancel(Kind.MAX_STAY, token.getTokenId());
+        cancel(Kind.PREPAID_EXPIRY, token.getTokenId());
+    }
+
+    /**
+     * Schedules the end of prepaid time for a parked token, replacing any earlier one.
+     * @param token active token
+     * @param paidUntil time the prepaid period runs out
+     */
+    public synchronized void schedulePrepaidExpiry(Token token, LocalDateTime paidUntil) {
+        if (token == null || paidUntil == null) {
+            throw new IllegalArgumentException("Token and prepaid end must be provided");
+        }
+        cancel(Kind.PREPAID_EXPIRY, token.getTokenId());
+        schedule(Kind.PREPAID_EXPIRY, token.getTokenId(), token.getSlotId(), token.getVehicleRegNumber(), paidUntil);
+    }
+
+    /**
+     * Watches a reservation for a no-show.
+     * @param reservation booking to watch
+     * @param grace how long after the booked start the holder may still arrive
+     */
+    public synchronized void watchReservation(Reservation reservation, Duration grace) {
+        if (reservation == null || grace == null || grace.isNegative()) {
+            throw new IllegalArgumentException("Reservation and a non-negative grace period must be provided");
+        }
+        cancel(Kind.RESERVATION_EXPIRY, reservation.getReservationId());
+        schedule(Kind.RESERVATION_EXPIRY, reservation.getReservationId(), reservation.getSlotId(),
+                reservation.getVehicleRegNumber(), reservation.getStart().plus(grace));
+    }
+
+    /**
+     * Cancels a pending deadline.
+     * @return true if it was pending
+     */
+    public synchronized boolean cancel(Kind kind, String id) {
+        TimingWheel.Timeout<Deadline> timeout = pending.get(kind).remove(id);
+        return wheel.cancel(timeout);
+    }
+
+    /**
+     * Number of pending deadlines.
+     */
+    public synchronized int pendingCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Advances the clock, firing every deadline reached by the given time.
+     * @param now current time
+     * @return deadlines that fired, in due order; reservation expiries only
+     *         for bookings that were never used
+     */
+    public List<Deadline> advanceTo(LocalDateTime now) {
+        List<Deadline> expired = new ArrayList<>();
+        synchronized (this) {
+            wheel.advanceTo(toMillis(now), expired);
+            Iterator<Deadline> it = expired.iterator();
+            while (it.hasNext()) {
+                Deadline deadline = it.next();
+                pending.get(deadline.getKind()).remove(deadline.getId());
+                // Consumed bookings are gone from the engine: only no-shows are released and reported
+                if (deadline.getKind() == Kind.RESERVATION_EXPIRY && reservationEngine != null
+                        && !reservationEngine.cancel(deadline.getId())) {
+                    it.remove();
+                }
+            }
+        }
+        for (Deadline deadline : expired) {
+            EventLog.warn("stay.deadline", "kind", deadline.getKind(), "id", deadline.getId(),
+                    "vehicle", deadline.getVehicleRegNumber());
+            for (DeadlineListener listener : listeners) {
+                listener.deadlineReached(deadline);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Starts advancing on the wall clock from a daemon thread.
+     * @param interval how often to advance
+     */
+    public synchronized void start(Duration interval) {
+        if (ticker != null) {
+            throw new IllegalStateException("Monitor already started");
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stay-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                advanceTo(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                EventLog.error("stay.tick_failed", "error", e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the wall-clock ticker, if started.
+     */
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private void schedule(Kind kind, String id, String slotId, String vehicleRegNumber, LocalDateTime due) {
+        Deadline deadline = new Deadline(kind, id, slotId, vehicleRegNumber, due);
+        pending.get(kind).put(id, wheel.schedule(deadline, toMillis(due)));
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+}
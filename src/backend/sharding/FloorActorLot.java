@@ -0,0 +1,348 @@
+package backend.sharding;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.ParkingFloor;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingReadModel;
+import backend.services.ParkingService;
+import backend.utils.TokenStorage;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A lot run as one actor per floor instead of under a single service lock.
+ *
+ * Each floor has its own ParkingService that is only ever touched by the
+ * floor's actor thread (a virtual thread on JDKs that have them), which
+ * takes requests from a mailbox one at a time. Gates never block on another
+ * floor's work: a park goes to the mailbox of the chosen floor, an exit to
+ * the floor named by its token's prefix, and queries spanning floors are
+ * sent to every mailbox and their answers gathered. Results come back as
+ * futures, completed on the actor thread. Free-slot counts are read from
+ * the floors' lock-free counters without a message.
+ */
+public class FloorActorLot implements AutoCloseable {
+
+    /**
+     * One floor, its service and the thread that owns them.
+     */
+    private static final class FloorActor {
+        private static final Runnable STOP = () -> { };
+
+        final String floorId;
+        final ParkingService service;
+        final BlockingQueue<Runnable> mailbox = new LinkedBlockingQueue<>();
+        final Thread thread;
+        volatile boolean closed;        // No new work accepted
+        volatile boolean stopped;       // Actor has left its loop; queued work is failed instead of run
+
+        FloorActor(ParkingFloor floor, TokenStorage storage) {
+            ShardedParkingService.validateShardId(floor.getFloorId());
+            this.floorId = floor.getFloorId();
+            this.service = new ParkingService(Collections.singletonList(floor), storage,
+                    floorId + ShardedParkingService.ID_SEPARATOR);
+            this.thread = newThread(this::run, "floor-actor-" + floorId);
+        }
+
+        /**
+         * Queues work for this floor.
+         * @return future completed with the work's result on the actor thread
+         */
+        <T> CompletableFuture<T> ask(Callable<T> work) {
+            CompletableFuture<T> reply = new CompletableFuture<>();
+            if (closed) {
+                reply.completeExceptionally(new IllegalStateException("Floor " + floorId + " is closed"));
+                return reply;
+            }
+            mailbox.add(() -> {
+                if (stopped) {
+                    reply.completeExceptionally(new IllegalStateException("Floor " + floorId + " is closed"));
+                    return;
+                }
+                try {
+                    reply.complete(work.call());
+                } catch (Exception e) {
+                    reply.completeExceptionally(e);
+                }
+            });
+            if (stopped) {
+                // Passed the closed check just before close(): the actor may already have drained its mailbox
+                failQueued();
+            }
+            return reply;
+        }
+
+        private void run() {
+            List<Runnable> batch = new ArrayList<>();
+            try {
+                while (true) {
+                    batch.add(mailbox.take());
+                    mailbox.drainTo(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (batch.get(i) == STOP) {
+                            stopped = true;
+                            // Work queued behind STOP is answered, not dropped
+                            for (Runnable message : batch.subList(i + 1, batch.size())) {
+                                message.run();
+                            }
+                            return;
+                        }
+                        batch.get(i).run();
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped = true;
+                failQueued();
+            }
+        }
+
+        /**
+         * Fails every request still in the mailbox; once stopped, running a
+         * message only completes its reply exceptionally.
+         */
+        private void failQueued() {
+            Runnable message;
+            while ((message = mailbox.poll()) != null) {
+                if (message != STOP) {
+                    message.run();
+                }
+            }
+        }
+    }
+
+    private final List<FloorActor> actors;                  // In allocation priority order
+    private final Map<String, FloorActor> actorsByFloor;
+    private final Map<String, String> parkedPlates;         // Map registrationNumber -> floorId, "" while being parked
+
+    /**
+     * Creates the lot and starts one actor per floor.
+     * @param floors floors in allocation priority order; their IDs prefix the tokens they issue
+     * @param tokenStorage storage receiving every floor's tokens
+     */
+    public FloorActorLot(List<ParkingFloor> floors, TokenStorage tokenStorage) {
+        if (floors == null || floors.isEmpty() || tokenStorage == null) {
+            throw new IllegalArgumentException("At least one floor and a token storage must be provided");
+        }
+        this.actors = new ArrayList<>(floors.size());
+        this.actorsByFloor = new LinkedHashMap<>();
+        for (ParkingFloor floor : floors) {
+            FloorActor actor = new FloorActor(floor, tokenStorage);
+            if (actorsByFloor.putIfAbsent(actor.floorId, actor) != null) {
+                throw new IllegalArgumentException("Duplicate floor ID: " + actor.floorId);
+            }
+            actors.add(actor);
+        }
+        this.parkedPlates = new ConcurrentHashMap<>();
+        for (FloorActor actor : actors) {
+            actor.thread.start();
+        }
+    }
+
+    /**
+     * Parks a vehicle on the first floor, in priority order, with a free
+     * slot of its type.
+     * @return future completing with the token, or failing with SlotNotAvailableException
+     *         if every floor is full, or IllegalArgumentException if the vehicle is already parked
+     */
+    public CompletableFuture<Token> parkVehicle(Vehicle vehicle) {
+        return parkVehicle(vehicle, null);
+    }
+
+    /**
+     * Parks a vehicle, trying one floor first, e.g. the floor a gate opens onto.
+     * @param vehicle vehicle to park
+     * @param preferredFloorId floor to try first, or null for priority order
+     * @return future completing with the token; see {@link #parkVehicle(Vehicle)}
+     */
+    public CompletableFuture<Token> parkVehicle(Vehicle vehicle, String preferredFloorId) {
+        String regNo = vehicle.getRegistrationNumber();
+        // Claim the plate first so the same vehicle cannot enter two floors concurrently
+        if (parkedPlates.putIfAbsent(regNo, "") != null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Vehicle with registration " + regNo + " is already parked"));
+        }
+        List<FloorActor> candidates = actors;
+        FloorActor preferred = preferredFloorId == null ? null : actorsByFloor.get(preferredFloorId);
+        if (preferred != null && preferred != actors.get(0)) {
+            candidates = new ArrayList<>(actors.size());
+            candidates.add(preferred);
+            for (FloorActor actor : actors) {
+                if (actor != preferred) {
+                    candidates.add(actor);
+                }
+            }
+        }
+        CompletableFuture<Token> result = new CompletableFuture<>();
+        tryFloors(vehicle, candidates, 0, result);
+        return result;
+    }
+
+    /**
+     * Sends the park to the next candidate floor whose counter shows a free
+     * slot, moving on if the floor turns out to be full by the time it runs.
+     */
+    private void tryFloors(Vehicle vehicle, List<FloorActor> candidates, int from, CompletableFuture<Token> result) {
+        String regNo = vehicle.getRegistrationNumber();
+        for (int i = from; i < candidates.size(); i++) {
+            FloorActor actor = candidates.get(i);
+            if (actor.service.getAvailableSlotCount(vehicle.getType()) == 0) {
+                continue;
+            }
+            int next = i + 1;
+            actor.ask(() -> actor.service.parkVehicle(vehicle)).whenComplete((token, error) -> {
+                if (error == null) {
+                    parkedPlates.put(regNo, actor.floorId);
+                    result.complete(token);
+                } else if (error instanceof SlotNotAvailableException) {
+                    tryFloors(vehicle, candidates, next, result);
+                } else {
+                    parkedPlates.remove(regNo, "");
+                    result.completeExceptionally(error);
+                }
+            });
+            return;
+        }
+        parkedPlates.remove(regNo, "");
+        result.completeExceptionally(new SlotNotAvailableException(vehicle.getType()));
+    }
+
+    /**
+     * Exits a vehicle on the floor that issued its token.
+     * @return future completing with the fee, or failing with InvalidTokenException
+     */
+    public CompletableFuture<Integer> exitVehicle(String tokenId) {
+        FloorActor actor = actorForToken(tokenId);
+        if (actor == null) {
+            return CompletableFuture.failedFuture(new InvalidTokenException(tokenId));
+        }
+        return actor.ask(() -> {
+            ParkingReadModel.Entry entry = actor.service.getReadModel().findByToken(tokenId);
+            int fee = actor.service.exitVehicle(tokenId);
+            if (entry != null) {
+                parkedPlates.remove(entry.getVehicle().getRegistrationNumber(), actor.floorId);
+            }
+            return fee;
+        });
+    }
+
+    /**
+     * Asks every floor whether the vehicle is parked there.
+     * @return future completing with the slot ID, or failing with VehicleNotFoundException
+     */
+    public CompletableFuture<String> searchVehicle(String registrationNumber) {
+        List<CompletableFuture<String>> answers = new ArrayList<>(actors.size());
+        for (FloorActor actor : actors) {
+            answers.add(actor.ask(() -> actor.service.isVehicleParked(registrationNumber)
+                    ? actor.service.searchVehicle(registrationNumber).getSlotId() : null));
+        }
+        return CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            for (CompletableFuture<String> answer : answers) {
+                String slotId = answer.join();
+                if (slotId != null) {
+                    return slotId;
+                }
+            }
+            throw new CompletionException(new VehicleNotFoundException(registrationNumber));
+        });
+    }
+
+    /**
+     * Asks every floor how many vehicles it holds.
+     * @return future completing with parked counts by floor ID, in priority order
+     */
+    public CompletableFuture<Map<String, Integer>> getParkedCountByFloor() {
+        List<CompletableFuture<Integer>> answers = new ArrayList<>(actors.size());
+        for (FloorActor actor : actors) {
+            answers.add(actor.ask(() -> actor.service.getReadModel().size()));
+        }
+        return CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (int i = 0; i < actors.size(); i++) {
+                counts.put(actors.get(i).floorId, answers.get(i).join());
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Free slots on all floors, summed from lock-free counters.
+     */
+    public int getAvailableSlotCount() {
+        int total = 0;
+        for (FloorActor actor : actors) {
+            total += actor.service.getAvailableSlotCount();
+        }
+        return total;
+    }
+
+    /**
+     * Free slots of one vehicle type on all floors, summed from lock-free counters.
+     */
+    public int getAvailableSlotCount(String vehicleType) {
+        int total = 0;
+        for (FloorActor actor : actors) {
+            total += actor.service.getAvailableSlotCount(vehicleType);
+        }
+        return total;
+    }
+
+    private FloorActor actorForToken(String tokenId) {
+        int end = tokenId == null ? -1 : tokenId.indexOf(ShardedParkingService.ID_SEPARATOR);
+        return end < 0 ? null : actorsByFloor.get(tokenId.substring(0, end));
+    }
+
+    /**
+     * Stops every actor once the requests already in its mailbox are done.
+     * Requests that arrive while closing fail with IllegalStateException.
+     */
+    @Override
+    public void close() {
+        for (FloorActor actor : actors) {
+            actor.closed = true;
+            actor.mailbox.add(FloorActor.STOP);
+        }
+        for (FloorActor actor : actors) {
+            try {
+                actor.thread.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates an unstarted virtual thread on JDKs that have them (21+),
+     * and a daemon platform thread otherwise.
+     */
+    private static Thread newThread(Runnable task, String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class).invoke(builder, name);
+            Method unstarted = builderType.getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package backend.sharding;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.ParkingFloor;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingService;
+import backend.utils.TokenStorage;
+
+import java.util.List;
+
+/**
+ * Shard running in the current JVM, backed by its own ParkingService.
+ * The service's monitor is the shard lock and its TokenStorage the shard journal.
+ */
+public class LocalLotShard implements LotShard {
+
+    private final String shardId;
+    private final ParkingService parkingService;
+
+    /**
+     * Constructor
+     * @param shardId shard identifier, used as the token ID prefix
+     * @param floors floors owned by this shard
+     * @param journal storage receiving this shard's tokens
+     */
+    public LocalLotShard(String shardId, List<ParkingFloor> floors, TokenStorage journal) {
+        ShardedParkingService.validateShardId(shardId);
+        this.shardId = shardId;
+        this.parkingService = new ParkingService(floors, journal, shardId + ShardedParkingService.ID_SEPARATOR);
+    }
+
+    @Override
+    public String getShardId() {
+        return shardId;
+    }
+
+    /**
+     * Returns the service behind this shard, e.g. to expose it over a socket.
+     */
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    @Override
+    public Token parkVehicle(Vehicle vehicle) throws SlotNotAvailableException {
+        return parkingService.parkVehicle(vehicle);
+    }
+
+    @Override
+    public int exitVehicle(String tokenId) throws InvalidTokenException {
+        return parkingService.exitVehicle(tokenId);
+    }
+
+    @Override
+    public String searchVehicle(String registrationNumber) throws VehicleNotFoundException {
+        return parkingService.searchVehicle(registrationNumber).getSlotId();
+    }
+
+    @Override
+    public int getAvailableSlotCount() {
+        return parkingService.getAvailableSlotCount();
+    }
+
+    @Override
+    public int getAvailableSlotCount(String vehicleType) {
+        return parkingService.getAvailableSlotCount(vehicleType);
+    }
+}
@@ -0,0 +1,53 @@
+package backend.sharding;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.Token;
+import backend.models.Vehicle;
+
+/**
+ * One partition of the parking estate: a set of floors served by its own
+ * ParkingService, lock and token journal. Implementations may live in the
+ * same JVM or behind a socket in another process.
+ */
+public interface LotShard extends AutoCloseable {
+
+    /**
+     * Identifier of this shard; every token it issues starts with
+     * this ID followed by {@link ShardedParkingService#ID_SEPARATOR}.
+     */
+    String getShardId();
+
+    /**
+     * Parks a vehicle on one of this shard's floors.
+     * @return token issued by the shard
+     */
+    Token parkVehicle(Vehicle vehicle) throws SlotNotAvailableException;
+
+    /**
+     * Exits the vehicle holding the given token.
+     * @return fee payable in rupees
+     */
+    int exitVehicle(String tokenId) throws InvalidTokenException;
+
+    /**
+     * Finds the slot a vehicle is parked in.
+     * @return slot ID
+     */
+    String searchVehicle(String registrationNumber) throws VehicleNotFoundException;
+
+    /**
+     * Number of free slots on this shard.
+     */
+    int getAvailableSlotCount();
+
+    /**
+     * Number of free slots of one vehicle type on this shard.
+     */
+    int getAvailableSlotCount(String vehicleType);
+
+    @Override
+    default void close() {
+    }
+}
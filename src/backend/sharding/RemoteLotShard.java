@@ -0,0 +1,128 @@
+package backend.sharding;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.Token;
+import backend.models.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Client side of {@link ShardServer}: a shard living in another process on
+ * the same machine. Calls are serialized over one connection.
+ */
+public class RemoteLotShard implements LotShard {
+
+    private static final String SEP = ShardServer.SEP;
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+    private final String shardId;
+
+    /**
+     * Connects to a shard server on the loopback interface.
+     * @param port port the server listens on
+     * @throws IOException if the connection fails
+     */
+    public RemoteLotShard(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        this.shardId = call("ID")[1];
+    }
+
+    @Override
+    public String getShardId() {
+        return shardId;
+    }
+
+    @Override
+    public Token parkVehicle(Vehicle vehicle) throws SlotNotAvailableException {
+        String[] reply = call("PARK" + SEP + vehicle.getType() + SEP + vehicle.getRegistrationNumber());
+        if (isError(reply, "SLOT")) {
+            throw new SlotNotAvailableException(reply[2]);
+        }
+        Token token = new Token(reply[1], reply[2], vehicle.getRegistrationNumber());
+        token.setEntryTime(LocalDateTime.parse(reply[3]));
+        return token;
+    }
+
+    @Override
+    public int exitVehicle(String tokenId) throws InvalidTokenException {
+        String[] reply = call("EXIT" + SEP + tokenId);
+        if (isError(reply, "TOKEN")) {
+            throw new InvalidTokenException(reply[2]);
+        }
+        return Integer.parseInt(reply[1]);
+    }
+
+    @Override
+    public String searchVehicle(String registrationNumber) throws VehicleNotFoundException {
+        String[] reply = call("SEARCH" + SEP + registrationNumber);
+        if (isError(reply, "VEHICLE")) {
+            throw new VehicleNotFoundException(reply[2]);
+        }
+        return reply[1];
+    }
+
+    @Override
+    public int getAvailableSlotCount() {
+        return Integer.parseInt(call("AVAIL")[1]);
+    }
+
+    @Override
+    public int getAvailableSlotCount(String vehicleType) {
+        return Integer.parseInt(call("AVAIL" + SEP + vehicleType)[1]);
+    }
+
+    /**
+     * Sends one request and reads its reply. ARG errors are rethrown as
+     * IllegalArgumentException and SERVER errors as IllegalStateException;
+     * other errors are left to the caller.
+     */
+    private synchronized String[] call(String request) {
+        try {
+            out.write(request);
+            out.newLine();
+            out.flush();
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("Shard server closed the connection");
+            }
+            String[] reply = line.split(SEP, -1);
+            if (isError(reply, "ARG")) {
+                throw new IllegalArgumentException(reply[2]);
+            }
+            if (isError(reply, "SERVER")) {
+                throw new IllegalStateException("Shard " + shardId + " failed: " + reply[2]);
+            }
+            return reply;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard call failed: " + request, e);
+        }
+    }
+
+    private static boolean isError(String[] reply, String kind) {
+        return reply[0].equals("ERR") && reply[1].equals(kind);
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package backend.sharding;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.Token;
+import backend.simulation.ParkingSimulator;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+import backend.utils.VehicleFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exposes a {@link LotShard} to other processes over a loopback socket.
+ *
+ * The protocol is one tab-separated request line per call, answered by one
+ * line starting with "OK" or "ERR":
+ * <pre>
+ * ID                      -> OK  shardId
+ * PARK   type  regNo      -> OK  tokenId  slotId  entryTime
+ * EXIT   tokenId          -> OK  fee
+ * SEARCH regNo            -> OK  slotId
+ * AVAIL  [type]           -> OK  count
+ * any failure             -> ERR kind  argument
+ * </pre>
+ * where kind is SLOT, TOKEN, VEHICLE, ARG, or SERVER for a failure inside the
+ * shard, whose argument is the error. {@link RemoteLotShard} is the client.
+ */
+public class ShardServer implements AutoCloseable {
+
+    static final String SEP = "\t";
+
+    private final LotShard shard;
+    private final ServerSocket serverSocket;
+    private volatile boolean running;
+
+    /**
+     * Binds a server for the shard on the loopback interface.
+     * @param shard shard to serve
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ShardServer(LotShard shard, int port) throws IOException {
+        if (shard == null) {
+            throw new IllegalArgumentException("Shard cannot be null");
+        }
+        this.shard = shard;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public void start() {
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "shard-" + shard.getShardId() + "-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread worker = new Thread(() -> serve(socket), "shard-" + shard.getShardId() + "-conn");
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                if (running) {
+                    EventLog.error("shard.accept_failed", "shard", shard.getShardId(), "error", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(handle(line.split(SEP, -1)));
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away; nothing to clean up
+        }
+    }
+
+    private String handle(String[] request) {
+        try {
+            switch (request[0]) {
+                case "ID":
+                    return "OK" + SEP + shard.getShardId();
+                case "PARK": {
+                    Token token = shard.parkVehicle(VehicleFactory.create(request[1], request[2]));
+                    return "OK" + SEP + token.getTokenId() + SEP + token.getSlotId() + SEP + token.getEntryTime();
+                }
+                case "EXIT":
+                    return "OK" + SEP + shard.exitVehicle(request[1]);
+                case "SEARCH":
+                    return "OK" + SEP + shard.searchVehicle(request[1]);
+                case "AVAIL":
+                    return "OK" + SEP + (request.length > 1
+                            ? shard.getAvailableSlotCount(request[1])
+                            : shard.getAvailableSlotCount());
+                default:
+                    return "ERR" + SEP + "ARG" + SEP + "Unknown command " + request[0];
+            }
+        } catch (SlotNotAvailableException e) {
+            return "ERR" + SEP + "SLOT" + SEP + request[1];
+        } catch (InvalidTokenException e) {
+            return "ERR" + SEP + "TOKEN" + SEP + request[1];
+        } catch (VehicleNotFoundException e) {
+            return "ERR" + SEP + "VEHICLE" + SEP + request[1];
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return "ERR" + SEP + "ARG" + SEP + e.getMessage();
+        } catch (RuntimeException e) {
+            // Answered rather than dropped, so the client sees an error instead of a closed socket
+            EventLog.error("shard.request_failed", "shard", shard.getShardId(), "command", request[0],
+                    "error", String.valueOf(e));
+            return "ERR" + SEP + "SERVER" + SEP + String.valueOf(e).replaceAll("[\\t\\r\\n]", " ");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        shard.close();
+    }
+
+    /**
+     * Runs a single shard as its own process with the default two-floor layout.
+     * Usage: ShardServer shardId port
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardServer <shardId> <port>");
+            return;
+        }
+        LotShard shard = new LocalLotShard(args[0], ParkingSimulator.buildLot(2, 5, 7, 3),
+                new TokenStorage(args[0] + "-tokens.txt"));
+        ShardServer server = new ShardServer(shard, Integer.parseInt(args[1]));
+        server.start();
+        System.out.println("Shard " + args[0] + " listening on port " + server.getPort());
+    }
+}
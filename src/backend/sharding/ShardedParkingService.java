@@ -0,0 +1,194 @@
+package backend.sharding;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.Token;
+import backend.models.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Coordinator spreading many lots over independent {@link LotShard}s.
+ *
+ * Each lot is served by one or more shards (a large lot can be split by
+ * floors), and each shard has its own lock and journal, so traffic at one lot
+ * never waits on another. Token IDs carry the issuing shard's ID as a prefix,
+ * which lets exits be routed with a single map lookup; plates are routed
+ * through a concurrent plate-to-token index. Availability is summed from the
+ * shards' lock-free counters without any global lock.
+ */
+public class ShardedParkingService implements AutoCloseable {
+
+    /**
+     * Separates the shard ID from the rest of a token ID.
+     */
+    public static final String ID_SEPARATOR = ":";
+
+    private final Map<String, LotShard> shardsById;          // Map shardId -> shard
+    private final Map<String, List<LotShard>> shardsByLot;   // Map lotId -> shards in allocation order
+    private final Map<String, String> plateIndex;            // Map registrationNumber -> tokenId
+    private final Map<String, String> tokenPlates;           // Map tokenId -> registrationNumber
+
+    public ShardedParkingService() {
+        this.shardsById = new ConcurrentHashMap<>();
+        this.shardsByLot = new ConcurrentHashMap<>();
+        this.plateIndex = new ConcurrentHashMap<>();
+        this.tokenPlates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a shard serving (part of) a lot. Shards of the same lot are tried
+     * in the order they were added.
+     * @param lotId lot the shard belongs to
+     * @param shard shard to add
+     * @throws IllegalArgumentException if a shard with the same ID exists
+     */
+    public void addShard(String lotId, LotShard shard) {
+        if (lotId == null || lotId.isBlank() || shard == null) {
+            throw new IllegalArgumentException("Lot ID and shard must be provided");
+        }
+        if (shardsById.putIfAbsent(shard.getShardId(), shard) != null) {
+            throw new IllegalArgumentException("Shard " + shard.getShardId() + " already registered");
+        }
+        shardsByLot.computeIfAbsent(lotId, id -> new CopyOnWriteArrayList<>()).add(shard);
+    }
+
+    /**
+     * Parks a vehicle at the given lot, trying the lot's shards in order.
+     * @param lotId lot the vehicle is entering
+     * @param vehicle vehicle to park
+     * @return token issued by the shard that took the vehicle
+     * @throws SlotNotAvailableException if no shard of the lot has a free slot
+     * @throws IllegalArgumentException if the lot is unknown or the vehicle is already parked anywhere
+     */
+    public Token parkVehicle(String lotId, Vehicle vehicle) throws SlotNotAvailableException {
+        List<LotShard> shards = shardsByLot.get(lotId);
+        if (shards == null) {
+            throw new IllegalArgumentException("Unknown lot: " + lotId);
+        }
+        String regNo = vehicle.getRegistrationNumber();
+        // Claim the plate first so the same vehicle cannot enter two shards concurrently
+        if (plateIndex.putIfAbsent(regNo, "") != null) {
+            throw new IllegalArgumentException("Vehicle with registration " + regNo + " is already parked");
+        }
+        try {
+            for (LotShard shard : shards) {
+                if (shard.getAvailableSlotCount(vehicle.getType()) == 0) {
+                    continue;
+                }
+                try {
+                    Token token = shard.parkVehicle(vehicle);
+                    tokenPlates.put(token.getTokenId(), regNo);
+                    plateIndex.put(regNo, token.getTokenId());
+                    return token;
+                } catch (SlotNotAvailableException e) {
+                    // Counter was stale, try the next shard
+                }
+            }
+        } catch (RuntimeException e) {
+            plateIndex.remove(regNo, "");
+            throw e;
+        }
+        plateIndex.remove(regNo, "");
+        throw new SlotNotAvailableException(vehicle.getType());
+    }
+
+    /**
+     * Exits a vehicle, routing the token to its shard by ID prefix.
+     * @param tokenId token received when parking
+     * @return fee calculated by the shard
+     * @throws InvalidTokenException if the token's shard is unknown or the shard rejects it
+     */
+    public int exitVehicle(String tokenId) throws InvalidTokenException {
+        LotShard shard = shardForToken(tokenId);
+        int fee = shard.exitVehicle(tokenId);
+        String regNo = tokenPlates.remove(tokenId);
+        if (regNo != null) {
+            plateIndex.remove(regNo, tokenId);
+        }
+        return fee;
+    }
+
+    /**
+     * Finds where a vehicle is parked.
+     * @return slot ID within the owning shard
+     * @throws VehicleNotFoundException if the vehicle is not parked in any shard
+     */
+    public String searchVehicle(String registrationNumber) throws VehicleNotFoundException {
+        String tokenId = plateIndex.get(registrationNumber);
+        LotShard shard = tokenId == null ? null : shardsById.get(shardIdOf(tokenId));
+        if (shard == null) {
+            throw new VehicleNotFoundException(registrationNumber);
+        }
+        return shard.searchVehicle(registrationNumber);
+    }
+
+    /**
+     * Returns the shard that issued a token.
+     * @throws InvalidTokenException if the prefix does not name a known shard
+     */
+    public LotShard shardForToken(String tokenId) throws InvalidTokenException {
+        LotShard shard = tokenId == null ? null : shardsById.get(shardIdOf(tokenId));
+        if (shard == null) {
+            throw new InvalidTokenException(tokenId);
+        }
+        return shard;
+    }
+
+    /**
+     * Free slots across every shard, summed from lock-free counters.
+     */
+    public int getAvailableSlotCount() {
+        int total = 0;
+        for (LotShard shard : shardsById.values()) {
+            total += shard.getAvailableSlotCount();
+        }
+        return total;
+    }
+
+    /**
+     * Free slots of one vehicle type at one lot.
+     */
+    public int getAvailableSlotCount(String lotId, String vehicleType) {
+        int total = 0;
+        for (LotShard shard : shardsByLot.getOrDefault(lotId, Collections.emptyList())) {
+            total += shard.getAvailableSlotCount(vehicleType);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the IDs of all registered lots.
+     */
+    public List<String> getLotIds() {
+        return new ArrayList<>(shardsByLot.keySet());
+    }
+
+    @Override
+    public void close() {
+        for (LotShard shard : shardsById.values()) {
+            shard.close();
+        }
+    }
+
+    private static String shardIdOf(String tokenId) {
+        int end = tokenId.indexOf(ID_SEPARATOR);
+        return end < 0 ? "" : tokenId.substring(0, end);
+    }
+
+    /**
+     * Checks that a shard ID can be used as a token prefix.
+     */
+    static void validateShardId(String shardId) {
+        if (shardId == null || shardId.isBlank() || shardId.contains(ID_SEPARATOR)
+                || shardId.contains(",") || shardId.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Invalid shard ID: " + shardId);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package backend.simulation;
+
+import backend.models.FourWheeler;
+import backend.models.ParkingFloor;
+import backend.models.Token;
+import backend.services.ParkingService;
+import backend.sharding.FloorActorLot;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares park/exit throughput of one synchronized ParkingService with a
+ * {@link FloorActorLot} over the same floors, for a growing number of gate
+ * threads. Each gate keeps a fixed number of its own vehicles parked,
+ * exiting the oldest and parking a new one in a loop; in actor mode gate g
+ * prefers floor g mod floors, as a gate opening onto that floor would.
+ * Meant for many-core machines: on few cores the actor hand-offs cost more
+ * than the lock contention they remove.
+ * Usage: FloorActorBenchmark [maxGates] [floors] [secondsPerRun]
+ */
+public class FloorActorBenchmark {
+
+    private static final int SLOTS_PER_FLOOR = 2_000;
+    private static final int PARKED_PER_GATE = 64;
+
+    /**
+     * Park and exit as seen by a gate, whichever mode is behind them.
+     */
+    private interface Gate {
+        Token park(FourWheeler vehicle, int gate) throws Exception;
+
+        void exit(String tokenId) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxGates = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int floors = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+        System.out.printf("%d cores, %d floors of %,d slots%n", Runtime.getRuntime().availableProcessors(), floors, SLOTS_PER_FLOOR);
+
+        System.out.printf("%-8s %18s %18s%n", "gates", "synchronized op/s", "floor actors op/s");
+        for (int gates = 1; gates <= maxGates; gates *= 2) {
+            ParkingService service = new ParkingService(ParkingSimulator.buildLot(floors, 0, SLOTS_PER_FLOOR, 0),
+                    TokenStorage.discarding());
+            long locked = run(gates, seconds, new Gate() {
+                public Token park(FourWheeler vehicle, int gate) throws Exception {
+                    return service.parkVehicle(vehicle);
+                }
+
+                public void exit(String tokenId) throws Exception {
+                    service.exitVehicle(tokenId);
+                }
+            });
+
+            long actors;
+            List<ParkingFloor> lotFloors = ParkingSimulator.buildLot(floors, 0, SLOTS_PER_FLOOR, 0);
+            String[] floorIds = lotFloors.stream().map(ParkingFloor::getFloorId).toArray(String[]::new);
+            try (FloorActorLot lot = new FloorActorLot(lotFloors, TokenStorage.discarding())) {
+                actors = run(gates, seconds, new Gate() {
+                    public Token park(FourWheeler vehicle, int gate) throws Exception {
+                        return lot.parkVehicle(vehicle, floorIds[gate % floorIds.length]).get();
+                    }
+
+                    public void exit(String tokenId) throws Exception {
+                        lot.exitVehicle(tokenId).get();
+                    }
+                });
+            }
+            System.out.printf("%-8d %,18d %,18d%n", gates, locked, actors);
+            if (gates < maxGates && gates * 2 > maxGates) {
+                gates = maxGates / 2;
+            }
+        }
+    }
+
+    /**
+     * @return park and exit operations per second across all gates
+     */
+    private static long run(int gates, int seconds, Gate gate) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder ops = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int g = 0; g < gates; g++) {
+            int id = g;
+            workers.add(new Thread(() -> {
+                ArrayDeque<Token> parked = new ArrayDeque<>(PARKED_PER_GATE);
+                int n = 0;
+                try {
+                    while (parked.size() < PARKED_PER_GATE) {
+                        parked.add(gate.park(vehicle(id, n++), id));
+                    }
+                    long local = 0;
+                    while (running.get()) {
+                        gate.exit(parked.poll().getTokenId());
+                        parked.add(gate.park(vehicle(id, n++), id));
+                        local += 2;
+                    }
+                    ops.add(local);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "gate-" + g));
+        }
+        for (Thread worker : workers) worker.start();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) worker.join();
+        return ops.sum() / seconds;
+    }
+
+    private static FourWheeler vehicle(int gate, int n) {
+        return new FourWheeler(String.format("G%03dV%07d", gate, n % 10_000_000));
+    }
+}
@@ -0,0 +1,65 @@
+package backend.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Collects raw latency samples in nanoseconds and reports percentiles.
+ * Samples go into a growable primitive array so recording stays cheap.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private boolean sorted = true;
+
+    /**
+     * Records one latency sample.
+     * @param nanos elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        sorted = false;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the latency at the given percentile.
+     * @param percentile value between 0 and 100
+     * @return latency in nanoseconds, 0 when nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return samples[Math.max(0, Math.min(rank, count - 1))];
+    }
+
+    /**
+     * Formats the usual percentiles in microseconds.
+     */
+    public String summary() {
+        return String.format(
+            "n=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+            count,
+            percentile(50) / 1000.0,
+            percentile(90) / 1000.0,
+            percentile(99) / 1000.0,
+            percentile(99.9) / 1000.0,
+            percentile(100) / 1000.0
+        );
+    }
+}
@@ -0,0 +1,228 @@
+package backend.simulation;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingService;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+import backend.utils.VehicleFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Discrete-event simulator driving a ParkingService with synthetic traffic.
+ *
+ * Arrivals per vehicle type follow a non-homogeneous Poisson process shaped by
+ * the profile's rush-hour curve (generated by thinning), and each admitted
+ * vehicle leaves after a sampled dwell time. Events are processed from a
+ * priority queue on a virtual clock, so a simulated day takes as long as its
+ * park and exit calls, not 24 hours.
+ */
+public class ParkingSimulator {
+
+    private static final int ARRIVAL = 0;
+    private static final int DEPARTURE = 1;
+
+    private final ParkingService parkingService;
+    private final TrafficProfile profile;
+    private final Random random;
+    private final LocalDateTime start;
+
+    /**
+     * Constructor
+     * @param parkingService service under test
+     * @param profile traffic to generate
+     * @param seed random seed, fixed for reproducible runs
+     * @param start virtual time at which the simulation begins
+     */
+    public ParkingSimulator(ParkingService parkingService, TrafficProfile profile, long seed, LocalDateTime start) {
+        if (parkingService == null || profile == null || start == null) {
+            throw new IllegalArgumentException("Service, profile and start time must be provided");
+        }
+        this.parkingService = parkingService;
+        this.profile = profile;
+        this.random = new Random(seed);
+        this.start = start;
+    }
+
+    /**
+     * A scheduled arrival or departure on the virtual clock.
+     */
+    private static final class Event implements Comparable<Event> {
+        final long time;        // Seconds since simulation start
+        final long sequence;    // Tie breaker keeping runs deterministic
+        final int kind;
+        final int typeIndex;
+        final Token token;
+
+        Event(long time, long sequence, int kind, int typeIndex, Token token) {
+            this.time = time;
+            this.sequence = sequence;
+            this.kind = kind;
+            this.typeIndex = typeIndex;
+            this.token = token;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            int c = Long.compare(time, o.time);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    /**
+     * Runs the simulation for the given span of virtual time.
+     * Vehicles still parked at the end are left in the service.
+     * @param span virtual time to simulate
+     * @return report with throughput, rejections and latency percentiles
+     */
+    public SimulationReport run(Duration span) {
+        if (span == null || span.isNegative() || span.isZero()) {
+            throw new IllegalArgumentException("Simulated span must be positive");
+        }
+        int types = VehicleFactory.TYPES.length;
+        long end = span.getSeconds();
+        long[] arrivals = new long[types];
+        long[] rejected = new long[types];
+        long exits = 0;
+        long revenue = 0;
+        int parked = 0;
+        long sequence = 0;
+        long plateCounter = 0;
+        LatencyRecorder parkLatency = new LatencyRecorder();
+        LatencyRecorder exitLatency = new LatencyRecorder();
+
+        PriorityQueue<Event> queue = new PriorityQueue<>();
+        for (int type = 0; type < types; type++) {
+            long first = nextArrival(type, 0);
+            if (first < end) {
+                queue.add(new Event(first, sequence++, ARRIVAL, type, null));
+            }
+        }
+
+        long wallStart = System.nanoTime();
+        while (!queue.isEmpty()) {
+            Event event = queue.poll();
+            if (event.time >= end) {
+                break;
+            }
+            LocalDateTime now = start.plusSeconds(event.time);
+
+            if (event.kind == ARRIVAL) {
+                int type = event.typeIndex;
+                arrivals[type]++;
+                Vehicle vehicle = VehicleFactory.create(VehicleFactory.TYPES[type], "SIM" + (1_000_000 + plateCounter++));
+                long t0 = System.nanoTime();
+                try {
+                    Token token = parkingService.parkVehicle(vehicle, now);
+                    parkLatency.record(System.nanoTime() - t0);
+                    parked++;
+                    long leave = event.time + profile.sampleDwellSeconds(type, random);
+                    queue.add(new Event(leave, sequence++, DEPARTURE, type, token));
+                } catch (SlotNotAvailableException e) {
+                    parkLatency.record(System.nanoTime() - t0);
+                    rejected[type]++;
+                }
+                long next = nextArrival(type, event.time);
+                if (next < end) {
+                    queue.add(new Event(next, sequence++, ARRIVAL, type, null));
+                }
+            } else {
+                long t0 = System.nanoTime();
+                try {
+                    revenue += parkingService.exitVehicleWithTimes(
+                            event.token.getTokenId(), event.token.getEntryTime(), now);
+                    exitLatency.record(System.nanoTime() - t0);
+                    exits++;
+                    parked--;
+                } catch (InvalidTokenException e) {
+                    throw new IllegalStateException("Simulated exit rejected: " + e.getMessage(), e);
+                }
+            }
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+
+        return new SimulationReport(span, wallNanos, arrivals, rejected, exits, revenue, parked,
+                parkLatency, exitLatency);
+    }
+
+    /**
+     * Draws the next arrival of a type after the given time by thinning a
+     * homogeneous process running at the type's peak rate.
+     * @return arrival time in seconds since start, Long.MAX_VALUE if the type never arrives
+     */
+    private long nextArrival(int typeIndex, long after) {
+        double peakPerSecond = profile.peakArrivalRate(typeIndex) / 3600.0;
+        if (peakPerSecond <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double t = after;
+        while (true) {
+            t += -Math.log(1.0 - random.nextDouble()) / peakPerSecond;
+            int hour = start.plusSeconds((long) t).getHour();
+            double acceptance = profile.arrivalRate(typeIndex, hour) / 3600.0 / peakPerSecond;
+            if (random.nextDouble() < acceptance) {
+                return Math.max((long) t, after + 1);
+            }
+        }
+    }
+
+    /**
+     * Builds a lot of identical floors using the repository's slot naming
+     * (e.g., "G1-TW-1"), with two-wheeler, four-wheeler and heavy-vehicle slots
+     * numbered consecutively.
+     */
+    public static List<ParkingFloor> buildLot(int floorCount, int twoWheelerSlots, int fourWheelerSlots, int heavySlots) {
+        if (floorCount <= 0) {
+            throw new IllegalArgumentException("Floor count must be positive");
+        }
+        List<ParkingFloor> floors = new ArrayList<>(floorCount);
+        for (int f = 0; f < floorCount; f++) {
+            String floorId = f == 0 ? "G1" : "F" + f;
+            ParkingFloor floor = new ParkingFloor(floorId, twoWheelerSlots + fourWheelerSlots + heavySlots);
+            int n = 1;
+            for (int i = 0; i < twoWheelerSlots; i++, n++) {
+                floor.addSlot(new ParkingSlot(floorId + "-TW-" + n, "TWO_WHEELER"));
+            }
+            for (int i = 0; i < fourWheelerSlots; i++, n++) {
+                floor.addSlot(new ParkingSlot(floorId + "-FW-" + n, "FOUR_WHEELER"));
+            }
+            for (int i = 0; i < heavySlots; i++, n++) {
+                floor.addSlot(new ParkingSlot(floorId + "-HV-" + n, "HEAVY_VEHICLE"));
+            }
+            floors.add(floor);
+        }
+        return floors;
+    }
+
+    /**
+     * Runs the standard regression workload.
+     * Usage: ParkingSimulator [days] [trafficScale] [floors] [seed]
+     */
+    public static void main(String[] args) {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        double scale = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        int floorCount = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+
+        List<ParkingFloor> floors = buildLot(floorCount, 60, 140, 10);
+        ParkingService service = new ParkingService(floors, TokenStorage.discarding());
+        ParkingSimulator simulator = new ParkingSimulator(
+                service, TrafficProfile.standardWorkload().scaled(scale), seed, LocalDate.now().atStartOfDay());
+
+        // Per-park INFO records would only fill the log ring during the run
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+        SimulationReport report = simulator.run(Duration.ofDays(days));
+        System.out.println(report);
+    }
+}
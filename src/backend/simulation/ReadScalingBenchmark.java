@@ -0,0 +1,112 @@
+package backend.simulation;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.FourWheeler;
+import backend.models.ParkingFloor;
+import backend.models.Token;
+import backend.services.ParkingService;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures plate lookups per second against a busy lot, with one thread
+ * parking and exiting vehicles throughout. Each thread count is run twice:
+ * reading from the published snapshot, and forcing every read through the
+ * service lock as searches used to, so the scaling difference is visible.
+ * Usage: ReadScalingBenchmark [maxThreads] [secondsPerRun]
+ */
+public class ReadScalingBenchmark {
+
+    private static final int PARKED = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+
+        List<ParkingFloor> floors = ParkingSimulator.buildLot(10, 0, 2_100, 0);
+        ParkingService service = new ParkingService(floors, TokenStorage.discarding());
+        String[] plates = new String[PARKED];
+        for (int i = 0; i < PARKED; i++) {
+            plates[i] = "RD" + (1_000_000 + i);
+            service.parkVehicle(new FourWheeler(plates[i]));
+        }
+
+        System.out.printf("%-8s %18s %18s %14s%n", "threads", "snapshot reads/s", "locked reads/s", "writes/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] snapshot = run(service, plates, threads, seconds, false);
+            long[] locked = run(service, plates, threads, seconds, true);
+            System.out.printf("%-8d %,18d %,18d %,14d%n", threads, snapshot[0], locked[0], snapshot[1]);
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                threads = maxThreads / 2;
+            }
+        }
+    }
+
+    /**
+     * @return reads per second and writes per second
+     */
+    private static long[] run(ParkingService service, String[] plates, int threads, int seconds, boolean locked)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+
+        Thread writer = new Thread(() -> {
+            int n = 0;
+            while (running.get()) {
+                try {
+                    Token token = service.parkVehicle(new FourWheeler("WR" + (1_000_000 + (n++ % 500_000))));
+                    service.exitVehicle(token.getTokenId());
+                    writes.add(2);
+                } catch (SlotNotAvailableException | InvalidTokenException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, "writer");
+        workers.add(writer);
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while (running.get()) {
+                    String plate = plates[random.nextInt(plates.length)];
+                    if (locked) {
+                        service.runBatch(() -> lookup(service, plate));
+                    } else {
+                        lookup(service, plate);
+                    }
+                    if (++local == 1024) {
+                        reads.add(local);
+                        local = 0;
+                    }
+                }
+                reads.add(local);
+            }, "reader-" + t));
+        }
+
+        for (Thread worker : workers) worker.start();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread worker : workers) worker.join();
+        return new long[] {reads.sum() / seconds, writes.sum() / seconds};
+    }
+
+    private static void lookup(ParkingService service, String plate) {
+        try {
+            service.searchVehicle(plate);
+        } catch (VehicleNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
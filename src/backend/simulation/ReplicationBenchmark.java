@@ -0,0 +1,152 @@
+package backend.simulation;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.models.FourWheeler;
+import backend.models.Token;
+import backend.services.ParkingService;
+import backend.services.ReplicationPrimary;
+import backend.services.ReplicationStandby;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures primary/standby replication with two JVMs on one machine.
+ *
+ * The primary runs a park/exit workload twice, first without replication
+ * and then shipping to a connected standby, and prints throughput for both
+ * and the replication lag sampled during the second run. It then stops
+ * abruptly, as a crashed server would. The standby applies the stream,
+ * notices the silence, promotes itself and parks a vehicle to show it is
+ * serving; its parked count should match the primary's last report.
+ *
+ * Usage: ReplicationBenchmark primary [port] [secondsPerRun]
+ *        ReplicationBenchmark standby [host] [port]
+ */
+public class ReplicationBenchmark {
+
+    private static final int PARKED = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+        String mode = args.length > 0 ? args[0] : "primary";
+        if (mode.equals("primary")) {
+            runPrimary(args.length > 1 ? Integer.parseInt(args[1]) : 7070, args.length > 2 ? Integer.parseInt(args[2]) : 5);
+        } else if (mode.equals("standby")) {
+            runStandby(args.length > 1 ? args[1] : "127.0.0.1", args.length > 2 ? Integer.parseInt(args[2]) : 7070);
+        } else {
+            System.err.println("Usage: ReplicationBenchmark primary [port] [secondsPerRun] | standby [host] [port]");
+        }
+    }
+
+    private static ParkingService buildService() {
+        return new ParkingService(ParkingSimulator.buildLot(4, 0, 10_000, 0), TokenStorage.discarding());
+    }
+
+    private static void runPrimary(int port, int seconds) throws Exception {
+        ParkingService service = buildService();
+        ArrayDeque<Token> parked = new ArrayDeque<>();
+        for (int i = 0; i < PARKED; i++) {
+            parked.add(service.parkVehicle(new FourWheeler("PR" + (1_000_000 + i))));
+        }
+
+        long baseline = workload(service, parked, seconds, null);
+        System.out.printf("without replication: %,d ops/s%n", baseline);
+
+        try (ReplicationPrimary primary = new ReplicationPrimary(service, port)) {
+            primary.start();
+            System.out.println("waiting for a standby on port " + primary.getPort());
+            while (primary.getStandbyCount() == 0 || primary.getAckedSequence() < primary.getLastSequence()) {
+                Thread.sleep(50);
+            }
+            long[] lags = new long[seconds * 100];
+            long replicated = workload(service, parked, seconds, () -> {
+                for (int i = 0; i < lags.length; i++) {
+                    lags[i] = primary.getLagMillis();
+                    Thread.sleep(10);
+                }
+            });
+            Arrays.sort(lags);
+            System.out.printf("with replication:    %,d ops/s (%.1f%% overhead)%n",
+                    replicated, 100.0 * (baseline - replicated) / baseline);
+            System.out.printf("lag ms: p50 %d, p99 %d, max %d%n",
+                    lags[lags.length / 2], lags[lags.length * 99 / 100], lags[lags.length - 1]);
+
+            while (primary.getAckedSequence() < primary.getLastSequence()) {
+                Thread.sleep(10);
+            }
+            System.out.printf("primary stopping at sequence %d with %d parked%n",
+                    primary.getLastSequence(), service.getReadModel().size());
+            System.out.flush();
+            // Simulates a crash: no orderly disconnect from the standby
+            Runtime.getRuntime().halt(0);
+        }
+    }
+
+    /**
+     * Parks and exits vehicles as fast as one gate thread can, keeping the lot half full.
+     * @return operations per second
+     */
+    private static long workload(ParkingService service, ArrayDeque<Token> parked, int seconds, Sampler sampler)
+            throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        long[] ops = new long[1];
+        Thread gate = new Thread(() -> {
+            int n = 0;
+            while (running.get()) {
+                try {
+                    Token oldest = parked.poll();
+                    service.exitVehicle(oldest.getTokenId());
+                    parked.add(service.parkVehicle(new FourWheeler("GT" + (1_000_000 + (n++ % 5_000_000)))));
+                    ops[0] += 2;
+                } catch (SlotNotAvailableException | InvalidTokenException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, "gate");
+        long start = System.nanoTime();
+        gate.start();
+        if (sampler != null) {
+            sampler.run();
+        } else {
+            Thread.sleep(seconds * 1000L);
+        }
+        running.set(false);
+        gate.join();
+        return ops[0] * 1_000_000_000L / (System.nanoTime() - start);
+    }
+
+    private interface Sampler {
+        void run() throws InterruptedException;
+    }
+
+    private static void runStandby(String host, int port) throws Exception {
+        ParkingService service = buildService();
+        ReplicationStandby standby = new ReplicationStandby(service, host, port);
+        standby.start();
+        boolean seen = false;
+        long lastApplied = 0;
+        while (true) {
+            Thread.sleep(100);
+            seen |= standby.isConnected();
+            if (seen && !standby.isConnected() && standby.getMillisSinceContact() >= 1000) {
+                break;
+            }
+            if (standby.getAppliedSequence() / 100_000 != lastApplied / 100_000) {
+                System.out.printf("applied through %,d%n", standby.getAppliedSequence());
+            }
+            lastApplied = standby.getAppliedSequence();
+        }
+        long silence = standby.getMillisSinceContact();
+        long start = System.nanoTime();
+        ParkingService promoted = standby.promote();
+        Token token = promoted.parkVehicle(new FourWheeler("FAILOVR1"));
+        System.out.printf("promoted %d ms after the last message (%.1f ms to promote); applied through %d with %d parked; first park in %s%n",
+                silence, (System.nanoTime() - start) / 1e6, standby.getAppliedSequence(),
+                promoted.getReadModel().size() - 1, token.getSlotId());
+    }
+}
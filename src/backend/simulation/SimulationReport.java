@@ -0,0 +1,119 @@
+package backend.simulation;
+
+import backend.utils.VehicleFactory;
+
+import java.time.Duration;
+
+/**
+ * Result of a simulation run: admitted and rejected traffic per vehicle type,
+ * throughput, and park/exit latency distributions.
+ */
+public class SimulationReport {
+
+    private final Duration simulatedTime;
+    private final long wallNanos;
+    private final long[] arrivals;
+    private final long[] rejected;
+    private final long exits;
+    private final long revenue;
+    private final int stillParked;
+    private final LatencyRecorder parkLatency;
+    private final LatencyRecorder exitLatency;
+
+    SimulationReport(Duration simulatedTime, long wallNanos, long[] arrivals, long[] rejected,
+                     long exits, long revenue, int stillParked,
+                     LatencyRecorder parkLatency, LatencyRecorder exitLatency) {
+        this.simulatedTime = simulatedTime;
+        this.wallNanos = wallNanos;
+        this.arrivals = arrivals;
+        this.rejected = rejected;
+        this.exits = exits;
+        this.revenue = revenue;
+        this.stillParked = stillParked;
+        this.parkLatency = parkLatency;
+        this.exitLatency = exitLatency;
+    }
+
+    // Getters
+    public Duration getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getTotalArrivals() {
+        long total = 0;
+        for (long a : arrivals) {
+            total += a;
+        }
+        return total;
+    }
+
+    public long getTotalRejected() {
+        long total = 0;
+        for (long r : rejected) {
+            total += r;
+        }
+        return total;
+    }
+
+    public long getExits() {
+        return exits;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public LatencyRecorder getParkLatency() {
+        return parkLatency;
+    }
+
+    public LatencyRecorder getExitLatency() {
+        return exitLatency;
+    }
+
+    /**
+     * Fraction of arrivals turned away with SlotNotAvailableException.
+     */
+    public double getRejectionRate() {
+        long total = getTotalArrivals();
+        return total == 0 ? 0 : (double) getTotalRejected() / total;
+    }
+
+    /**
+     * Park and exit operations completed per wall-clock second.
+     */
+    public double getOperationsPerSecond() {
+        long ops = getTotalArrivals() + exits;
+        return wallNanos == 0 ? 0 : ops * 1_000_000_000.0 / wallNanos;
+    }
+
+    /**
+     * How many times faster than real time the virtual clock ran.
+     */
+    public double getSpeedup() {
+        return wallNanos == 0 ? 0 : simulatedTime.toNanos() / (double) wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Simulated %d h in %.2f s (%.0fx real time)%n",
+                simulatedTime.toHours(), wallNanos / 1e9, getSpeedup()));
+        sb.append(String.format("Throughput: %.0f ops/s, exits: %d, revenue: ₹%d, still parked: %d%n",
+                getOperationsPerSecond(), exits, revenue, stillParked));
+        sb.append(String.format("Arrivals: %d, rejected: %d (%.2f%%)%n",
+                getTotalArrivals(), getTotalRejected(), getRejectionRate() * 100));
+        for (int i = 0; i < arrivals.length; i++) {
+            double rate = arrivals[i] == 0 ? 0 : 100.0 * rejected[i] / arrivals[i];
+            sb.append(String.format("  %-13s arrivals=%d rejected=%d (%.2f%%)%n",
+                    VehicleFactory.TYPES[i], arrivals[i], rejected[i], rate));
+        }
+        sb.append("Park latency: ").append(parkLatency.summary()).append(System.lineSeparator());
+        sb.append("Exit latency: ").append(exitLatency.summary());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package backend.simulation;
+
+import backend.utils.VehicleFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Describes the traffic a simulated lot receives: Poisson arrival rates per
+ * vehicle type, a 24-hour rush-hour curve scaling those rates, and a
+ * log-normal dwell-time distribution per type.
+ * Arrays are indexed like {@link VehicleFactory#TYPES}.
+ */
+public class TrafficProfile {
+
+    private final double[] arrivalsPerHour;     // Base arrival rate per type
+    private final double[] meanDwellMinutes;    // Mean stay per type
+    private final double dwellSigma;            // Log-normal shape, higher = longer tail
+    private final double[] hourlyMultipliers;   // Rush-hour curve, one entry per hour of day
+    private final double peakMultiplier;
+
+    /**
+     * Constructor
+     * @param arrivalsPerHour base arrivals per hour for each vehicle type
+     * @param meanDwellMinutes mean dwell time in minutes for each vehicle type
+     * @param dwellSigma shape of the log-normal dwell distribution
+     * @param hourlyMultipliers 24 factors applied to the base rate by hour of day
+     */
+    public TrafficProfile(double[] arrivalsPerHour, double[] meanDwellMinutes,
+                          double dwellSigma, double[] hourlyMultipliers) {
+        int types = VehicleFactory.TYPES.length;
+        if (arrivalsPerHour == null || arrivalsPerHour.length != types
+                || meanDwellMinutes == null || meanDwellMinutes.length != types) {
+            throw new IllegalArgumentException("Rates and dwell times must be given for " + types + " vehicle types");
+        }
+        if (hourlyMultipliers == null || hourlyMultipliers.length != 24) {
+            throw new IllegalArgumentException("Rush-hour curve must have 24 hourly multipliers");
+        }
+        if (dwellSigma < 0) {
+            throw new IllegalArgumentException("Dwell sigma cannot be negative");
+        }
+        this.arrivalsPerHour = arrivalsPerHour.clone();
+        this.meanDwellMinutes = meanDwellMinutes.clone();
+        this.dwellSigma = dwellSigma;
+        this.hourlyMultipliers = hourlyMultipliers.clone();
+        this.peakMultiplier = Arrays.stream(hourlyMultipliers).max().orElse(1.0);
+    }
+
+    /**
+     * The standard regression workload: a weekday with morning and evening
+     * peaks, short two-wheeler stays and long heavy-vehicle stays.
+     */
+    public static TrafficProfile standardWorkload() {
+        double[] curve = {
+            0.10, 0.05, 0.05, 0.05, 0.10, 0.30,     // 00:00 - 05:59
+            0.80, 1.80, 2.50, 1.60, 1.00, 0.90,     // 06:00 - 11:59
+            1.10, 1.00, 0.90, 1.00, 1.40, 2.20,     // 12:00 - 17:59
+            2.40, 1.50, 0.90, 0.60, 0.30, 0.20      // 18:00 - 23:59
+        };
+        return new TrafficProfile(
+            new double[]{120, 200, 15},
+            new double[]{75, 150, 360},
+            0.8,
+            curve
+        );
+    }
+
+    /**
+     * Returns a copy of this profile with every arrival rate multiplied.
+     * @param factor scale factor, e.g. 2.0 for twice the traffic
+     */
+    public TrafficProfile scaled(double factor) {
+        if (factor <= 0) {
+            throw new IllegalArgumentException("Scale factor must be positive");
+        }
+        double[] rates = arrivalsPerHour.clone();
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] *= factor;
+        }
+        return new TrafficProfile(rates, meanDwellMinutes, dwellSigma, hourlyMultipliers);
+    }
+
+    /**
+     * Arrival rate for a type at the given hour of day.
+     * @return expected arrivals per hour
+     */
+    public double arrivalRate(int typeIndex, int hourOfDay) {
+        return arrivalsPerHour[typeIndex] * hourlyMultipliers[hourOfDay];
+    }
+
+    /**
+     * Highest arrival rate a type reaches during the day, used as the
+     * envelope when thinning the non-homogeneous Poisson process.
+     */
+    public double peakArrivalRate(int typeIndex) {
+        return arrivalsPerHour[typeIndex] * peakMultiplier;
+    }
+
+    /**
+     * Draws a dwell time from the type's log-normal distribution.
+     * @return dwell time in seconds, at least one minute
+     */
+    public long sampleDwellSeconds(int typeIndex, Random random) {
+        double mu = Math.log(meanDwellMinutes[typeIndex]) - dwellSigma * dwellSigma / 2;
+        double minutes = Math.exp(mu + dwellSigma * random.nextGaussian());
+        return Math.max(60, (long) (minutes * 60));
+    }
+}
@@ -33,7 +33,7 @@ public class DisplayHelper{
         for (ParkingFloor floor : floors) {
             System.out.println(floor.getFloorId() + ": ");
             for (ParkingSlot slot : floor.getSlots()) {
-                String symbol = slot.isOccupied() ? "[X]" : "[ ]";
+                String symbol = slot.isOccupied() ? "[X]" : slot.isOutOfService() ? "[-]" : "[ ]";
                 System.out.print(symbol);
             }
             System.out.println();
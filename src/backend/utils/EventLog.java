@@ -0,0 +1,295 @@
+package backend.utils;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, structured event log for the backend.
+ *
+ * Producers claim a slot in a preallocated ring buffer, copy the event name
+ * and up to three key/value pairs into it and return; a single background
+ * thread formats drained records as {@code timestamp LEVEL event key=value ...}
+ * and writes them to the sink. Gate threads therefore never wait on console
+ * or disk I/O. Records below the current level are discarded before a slot
+ * is claimed. When the ring is full the configured {@link FullPolicy}
+ * decides whether to drop the record (counted) or wait for space.
+ *
+ * Core code logs through the static methods, which use a shared default
+ * instance writing to System.err.
+ */
+public final class EventLog implements AutoCloseable {
+
+    /**
+     * Severity of a record, lowest first.
+     */
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    /**
+     * What producers do when the ring buffer is full.
+     */
+    public enum FullPolicy { DROP, BLOCK }
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static volatile EventLog defaultLog;
+
+    /**
+     * One preallocated record in the ring.
+     */
+    private static final class Record {
+        long timestamp;
+        Level level;
+        String event;
+        String k1, k2, k3;
+        Object v1, v2, v3;
+    }
+
+    private final Record[] ring;
+    private final int mask;
+    private final AtomicLong claimed;           // Next sequence producers will claim
+    private final AtomicLong consumed;          // Next sequence the drainer will read
+    private final AtomicLongArray published;    // Sequence last published in each slot
+    private final LongAdder dropped;
+    private final FullPolicy policy;
+    private final PrintStream sink;
+    private final Thread drainer;
+    private volatile Level level;
+    private volatile boolean running;
+
+    /**
+     * Creates and starts a log.
+     * @param capacity ring size, rounded up to a power of two
+     * @param policy behaviour when the ring is full
+     * @param level minimum level recorded
+     * @param sink stream receiving formatted records
+     */
+    public EventLog(int capacity, FullPolicy policy, Level level, PrintStream sink) {
+        if (capacity <= 0 || policy == null || level == null || sink == null) {
+            throw new IllegalArgumentException("Capacity, policy, level and sink must be provided");
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new Record[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Record();
+        }
+        this.mask = size - 1;
+        this.claimed = new AtomicLong();
+        this.consumed = new AtomicLong();
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.dropped = new LongAdder();
+        this.policy = policy;
+        this.sink = sink;
+        this.level = level;
+        this.running = true;
+        this.drainer = new Thread(this::drainLoop, "event-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Returns the shared log, creating it on first use.
+     */
+    public static EventLog getDefault() {
+        EventLog log = defaultLog;
+        if (log == null) {
+            synchronized (EventLog.class) {
+                log = defaultLog;
+                if (log == null) {
+                    log = new EventLog(DEFAULT_CAPACITY, FullPolicy.DROP, Level.INFO, System.err);
+                    Runtime.getRuntime().addShutdownHook(new Thread(log::close, "event-log-shutdown"));
+                    defaultLog = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Replaces the shared log, draining and stopping the previous one.
+     * @param log new shared log
+     */
+    public static synchronized void setDefault(EventLog log) {
+        if (log == null) {
+            throw new IllegalArgumentException("Log cannot be null");
+        }
+        EventLog previous = defaultLog;
+        defaultLog = log;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public static void info(String event, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        getDefault().append(Level.INFO, event, k1, v1, k2, v2, k3, v3);
+    }
+
+    public static void info(String event, String k1, Object v1, String k2, Object v2) {
+        getDefault().append(Level.INFO, event, k1, v1, k2, v2, null, null);
+    }
+
+    public static void info(String event, String k1, Object v1) {
+        getDefault().append(Level.INFO, event, k1, v1, null, null, null, null);
+    }
+
+    public static void warn(String event, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        getDefault().append(Level.WARN, event, k1, v1, k2, v2, k3, v3);
+    }
+
+    public static void warn(String event, String k1, Object v1, String k2, Object v2) {
+        getDefault().append(Level.WARN, event, k1, v1, k2, v2, null, null);
+    }
+
+    public static void warn(String event, String k1, Object v1) {
+        getDefault().append(Level.WARN, event, k1, v1, null, null, null, null);
+    }
+
+    public static void error(String event, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        getDefault().append(Level.ERROR, event, k1, v1, k2, v2, k3, v3);
+    }
+
+    public static void error(String event, String k1, Object v1, String k2, Object v2) {
+        getDefault().append(Level.ERROR, event, k1, v1, k2, v2, null, null);
+    }
+
+    public static void error(String event, String k1, Object v1) {
+        getDefault().append(Level.ERROR, event, k1, v1, null, null, null, null);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void setLevel(Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("Level cannot be null");
+        }
+        this.level = level;
+    }
+
+    public boolean isEnabled(Level candidate) {
+        return candidate.ordinal() >= level.ordinal();
+    }
+
+    /**
+     * Number of records dropped because the ring was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Enqueues a record. Unused key/value pairs are passed as null.
+     */
+    public void append(Level recordLevel, String event, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+        if (!isEnabled(recordLevel) || !running) {
+            return;
+        }
+        long seq;
+        while (true) {
+            seq = claimed.get();
+            if (seq - consumed.get() >= ring.length) {
+                if (policy == FullPolicy.DROP) {
+                    dropped.increment();
+                    return;
+                }
+                LockSupport.parkNanos(10_000);
+                continue;
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+        Record record = ring[(int) seq & mask];
+        record.timestamp = System.currentTimeMillis();
+        record.level = recordLevel;
+        record.event = event;
+        record.k1 = k1;
+        record.v1 = v1;
+        record.k2 = k2;
+        record.v2 = v2;
+        record.k3 = k3;
+        record.v3 = v3;
+        published.set((int) seq & mask, seq);
+    }
+
+    /**
+     * Waits until every record appended so far has been written.
+     * @param timeoutMillis maximum time to wait
+     * @return true if the log caught up in time
+     */
+    public boolean flush(long timeoutMillis) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (consumed.get() < target) {
+            if (System.nanoTime() > deadline || !drainer.isAlive()) {
+                return false;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            long seq = consumed.get();
+            int index = (int) seq & mask;
+            if (published.get(index) != seq) {
+                if (!running && claimed.get() == seq) {
+                    break;
+                }
+                sink.flush();
+                LockSupport.parkNanos(200_000);
+                continue;
+            }
+            Record record = ring[index];
+            format(record, line);
+            record.event = null;
+            record.v1 = record.v2 = record.v3 = null;
+            consumed.set(seq + 1);
+            sink.append(line);
+        }
+        long lost = dropped.sum();
+        if (lost > 0) {
+            sink.println(Instant.now() + " WARN log.dropped count=" + lost);
+        }
+        sink.flush();
+    }
+
+    private static void format(Record record, StringBuilder line) {
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(record.timestamp)).append(' ')
+            .append(record.level).append(' ')
+            .append(record.event);
+        appendPair(line, record.k1, record.v1);
+        appendPair(line, record.k2, record.v2);
+        appendPair(line, record.k3, record.v3);
+        line.append(System.lineSeparator());
+    }
+
+    private static void appendPair(StringBuilder line, String key, Object value) {
+        if (key != null) {
+            line.append(' ').append(key).append('=').append(value);
+        }
+    }
+
+    /**
+     * Stops accepting records, writes what is queued and ends the drain thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            drainer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package backend.utils;
+
+/**
+ * Fixed-size bit set with summary levels for fast next-set-bit searches.
+ *
+ * Level 0 holds the bits; each bit of level k+1 records whether the
+ * corresponding 64-bit word of level k is non-zero. {@link #nextSetBit}
+ * climbs the summaries to skip empty regions, so a search costs
+ * O(log64 n) word operations however sparse the set is, where a flat
+ * {@link java.util.BitSet} scans every empty word in between.
+ */
+public class HierarchicalBitSet {
+
+    private final int size;
+    private final long[][] levels;      // levels[0] holds the bits, the last level is a single word
+
+    /**
+     * @param size number of bits, all initially clear
+     */
+    public HierarchicalBitSet(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        this.size = size;
+        int depth = 1;
+        for (long words = wordsFor(size); words > 1; words = wordsFor(words)) {
+            depth++;
+        }
+        levels = new long[depth][];
+        long bits = size;
+        for (int k = 0; k < depth; k++) {
+            levels[k] = new long[(int) Math.max(1, wordsFor(bits))];
+            bits = levels[k].length;
+        }
+    }
+
+    private static long wordsFor(long bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (levels[0][index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        for (int k = 0; k < levels.length; k++) {
+            long[] words = levels[k];
+            int w = index >>> 6;
+            boolean wasEmpty = words[w] == 0;
+            words[w] |= 1L << index;
+            if (!wasEmpty) {
+                return;
+            }
+            index = w;
+        }
+    }
+
+    public void clear(int index) {
+        checkIndex(index);
+        for (int k = 0; k < levels.length; k++) {
+            long[] words = levels[k];
+            int w = index >>> 6;
+            words[w] &= ~(1L << index);
+            if (words[w] != 0) {
+                return;
+            }
+            index = w;
+        }
+    }
+
+    /**
+     * Returns the first set bit at or after the given index, or -1 if none.
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be negative: " + from);
+        }
+        if (from >= size) {
+            return -1;
+        }
+        // Climb until a level has a set bit at or after the current position
+        int k = 0;
+        int index = from;
+        while (true) {
+            int w = index >>> 6;
+            long word = levels[k][w] & (-1L << index);
+            if (word != 0) {
+                index = (w << 6) + Long.numberOfTrailingZeros(word);
+                break;
+            }
+            if (k == levels.length - 1 || w + 1 >= levels[k].length) {
+                return -1;
+            }
+            // Continue from the next word, found through the level above
+            k++;
+            index = w + 1;
+        }
+        // Descend to the first set bit under the summary bit found
+        while (k > 0) {
+            k--;
+            index = (index << 6) + Long.numberOfTrailingZeros(levels[k][index]);
+        }
+        return index < size ? index : -1;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside 0.." + (size - 1));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package backend.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, expiring memory of completed requests by client-chosen key, so a
+ * retried request can be answered with the original result instead of
+ * running again.
+ *
+ * Each key is remembered together with a description of the request it was
+ * used for; looking a key up with a different request is an error rather
+ * than a hit, so a client that reuses keys cannot receive someone else's
+ * answer. Keys are forgotten when they expire or, oldest first, when the
+ * cache is full. Lookups never lock; writers synchronize among themselves.
+ *
+ * @param <V> result type
+ */
+public final class IdempotencyCache<V> {
+
+    /**
+     * One remembered request.
+     */
+    private static final class Entry<V> {
+        final String key;
+        final String request;
+        final V result;
+        final long expiresAt;       // System.nanoTime() deadline
+
+        Entry(String key, String request, V result, long expiresAt) {
+            this.key = key;
+            this.request = request;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry<V>> entries;
+    private final Entry<?>[] order;     // Ring of entries in insertion order, which is also expiry order
+    private int oldest;
+    private int size;
+    private final long ttlNanos;
+
+    /**
+     * Creates a cache.
+     * @param capacity most keys remembered at once
+     * @param ttl how long a key is remembered after its request completed
+     */
+    public IdempotencyCache(int capacity, Duration ttl) {
+        if (capacity <= 0 || ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Capacity and time to live must be positive");
+        }
+        this.entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        this.order = new Entry<?>[capacity];
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Looks up the result of an earlier request.
+     * @param key client-chosen request key
+     * @param request description of the request, compared with the one the key was first used for
+     * @return the remembered result, or null if the key is unknown or expired
+     * @throws IllegalArgumentException if the key was used for a different request
+     */
+    public V get(String key, String request) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || System.nanoTime() - entry.expiresAt >= 0) {
+            return null;
+        }
+        if (!entry.request.equals(request)) {
+            throw new IllegalArgumentException("Request key " + key + " was already used for a different request");
+        }
+        return entry.result;
+    }
+
+    /**
+     * Remembers the result of a completed request, forgetting expired keys
+     * and, if the cache is full, the oldest one.
+     * @param key client-chosen request key
+     * @param request description of the request
+     * @param result result to return to retries
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void put(String key, String request, V result) {
+        long now = System.nanoTime();
+        while (size > 0 && (size == order.length || now - ((Entry<V>) order[oldest]).expiresAt >= 0)) {
+            Entry<V> evicted = (Entry<V>) order[oldest];
+            // A key stored again since keeps its newer entry
+            entries.remove(evicted.key, evicted);
+            order[oldest] = null;
+            oldest = (oldest + 1) % order.length;
+            size--;
+        }
+        Entry<V> entry = new Entry<>(key, request, result, now + ttlNanos);
+        order[(oldest + size) % order.length] = entry;
+        size++;
+        entries.put(key, entry);
+    }
+
+    /**
+     * Number of keys currently remembered, including expired ones not yet evicted.
+     */
+    public int size() {
+        return entries.size();
+    }
+}
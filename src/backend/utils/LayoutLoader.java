@@ -0,0 +1,254 @@
+package backend.utils;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reads parking lot layouts from a line-based text format.
+ *
+ * <pre>
+ * # comment
+ * floor G1
+ * slots G1-TW-1..40 TWO_WHEELER distance 10+1
+ * slot  G1-EV-1 FOUR_WHEELER distance 5
+ * </pre>
+ *
+ * {@code floor} starts a floor; floors are used in the order listed.
+ * {@code slots} declares a numbered range with IDs prefix + number, and
+ * {@code slot} a single slot. The optional distance (metres from the
+ * entrance) may carry a per-slot step, e.g. {@code 10+2}.
+ *
+ * The file is read line by line and only range declarations are kept, so
+ * memory during parsing is proportional to the file, not the lot. Floors are
+ * then built in parallel with collections sized from the declared counts,
+ * and duplicate slot IDs anywhere in the lot are rejected through a shared
+ * hash set, so loading time grows linearly with the number of slots.
+ */
+public class LayoutLoader {
+
+    /**
+     * Default lot used when no layout file is available.
+     */
+    public static final String SAMPLE_LAYOUT = String.join("\n",
+            "floor G1",
+            "slots G1-TW-1..5 TWO_WHEELER",
+            "slots G1-FW-6..12 FOUR_WHEELER",
+            "slots G1-HV-13..15 HEAVY_VEHICLE",
+            "floor F1",
+            "slots F1-TW-1..5 TWO_WHEELER",
+            "slots F1-FW-6..12 FOUR_WHEELER",
+            "slots F1-HV-13..15 HEAVY_VEHICLE");
+
+    private static final Pattern RANGE = Pattern.compile("(.*?)(\\d+)\\.\\.(\\d+)");
+
+    /**
+     * A declared range of slots, expanded only when the floor is built.
+     */
+    private static final class SlotRange {
+        final String prefix;        // Slot ID for a single slot
+        final boolean single;
+        final int from;
+        final int to;
+        final String type;
+        final int distance;
+        final int step;
+
+        SlotRange(String prefix, boolean single, int from, int to, String type, int distance, int step) {
+            this.prefix = prefix;
+            this.single = single;
+            this.from = from;
+            this.to = to;
+            this.type = type;
+            this.distance = distance;
+            this.step = step;
+        }
+
+        int count() {
+            return to - from + 1;
+        }
+    }
+
+    /**
+     * A declared floor and its ranges.
+     */
+    private static final class FloorSpec {
+        final String floorId;
+        final List<SlotRange> ranges = new ArrayList<>();
+        int slotCount;
+
+        FloorSpec(String floorId) {
+            this.floorId = floorId;
+        }
+    }
+
+    /**
+     * Loads a layout file.
+     * @param file layout file
+     * @return floors in declaration order
+     * @throws IllegalArgumentException if the layout is malformed or repeats a slot ID
+     */
+    public static List<ParkingFloor> load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader, file.toString());
+        }
+    }
+
+    /**
+     * Loads a layout from a reader.
+     * @param reader layout text
+     * @param source name used in error messages
+     * @return floors in declaration order
+     */
+    public static List<ParkingFloor> load(Reader reader, String source) throws IOException {
+        List<FloorSpec> specs = parse(reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader), source);
+        return build(specs);
+    }
+
+    /**
+     * Loads the given layout file if it exists, otherwise the sample lot.
+     */
+    public static List<ParkingFloor> loadOrSample(Path file) throws IOException {
+        if (file != null && Files.exists(file)) {
+            return load(file);
+        }
+        return sampleLot();
+    }
+
+    /**
+     * Builds the sample two-floor lot.
+     */
+    public static List<ParkingFloor> sampleLot() {
+        try {
+            return load(new StringReader(SAMPLE_LAYOUT), "sample layout");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<FloorSpec> parse(BufferedReader reader, String source) throws IOException {
+        List<FloorSpec> floors = new ArrayList<>();
+        FloorSpec current = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            String[] words = text.split("\\s+");
+            String where = source + ":" + lineNumber;
+            switch (words[0]) {
+                case "floor" -> {
+                    if (words.length != 2) {
+                        throw new IllegalArgumentException(where + ": expected 'floor <id>'");
+                    }
+                    current = new FloorSpec(words[1]);
+                    floors.add(current);
+                }
+                case "slots", "slot" -> {
+                    if (current == null) {
+                        throw new IllegalArgumentException(where + ": slots declared before any floor");
+                    }
+                    SlotRange range = parseSlots(words, where);
+                    current.ranges.add(range);
+                    current.slotCount = Math.addExact(current.slotCount, range.count());
+                }
+                default -> throw new IllegalArgumentException(where + ": unknown directive '" + words[0] + "'");
+            }
+        }
+        if (floors.isEmpty()) {
+            throw new IllegalArgumentException(source + ": layout declares no floors");
+        }
+        return floors;
+    }
+
+    private static SlotRange parseSlots(String[] words, String where) {
+        if (words.length != 3 && words.length != 5) {
+            throw new IllegalArgumentException(where + ": expected '" + words[0] + " <id> <TYPE> [distance <d>[+<step>]]'");
+        }
+        String type = words[2];
+        if (VehicleFactory.indexOf(type) < 0) {
+            throw new IllegalArgumentException(where + ": unknown vehicle type '" + type + "'");
+        }
+        int distance = 0;
+        int step = 0;
+        if (words.length == 5) {
+            if (!words[3].equals("distance")) {
+                throw new IllegalArgumentException(where + ": expected 'distance', found '" + words[3] + "'");
+            }
+            try {
+                int plus = words[4].indexOf('+');
+                distance = Integer.parseInt(plus < 0 ? words[4] : words[4].substring(0, plus));
+                step = plus < 0 ? 0 : Integer.parseInt(words[4].substring(plus + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(where + ": invalid distance '" + words[4] + "'");
+            }
+            if (distance < 0 || step < 0) {
+                throw new IllegalArgumentException(where + ": distance cannot be negative");
+            }
+        }
+        if (words[0].equals("slot")) {
+            return new SlotRange(words[1], true, 0, 0, type, distance, 0);
+        }
+        Matcher matcher = RANGE.matcher(words[1]);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(where + ": expected a range like G1-TW-1..40, found '" + words[1] + "'");
+        }
+        int from = Integer.parseInt(matcher.group(2));
+        int to = Integer.parseInt(matcher.group(3));
+        if (to < from) {
+            throw new IllegalArgumentException(where + ": range ends before it starts");
+        }
+        return new SlotRange(matcher.group(1), false, from, to, type, distance, step);
+    }
+
+    private static List<ParkingFloor> build(List<FloorSpec> specs) {
+        long total = 0;
+        for (FloorSpec spec : specs) {
+            total += spec.slotCount;
+        }
+        Set<String> lotIds = ConcurrentHashMap.newKeySet((int) Math.min(Integer.MAX_VALUE, total));
+        Set<String> floorIds = ConcurrentHashMap.newKeySet();
+        for (FloorSpec spec : specs) {
+            if (!floorIds.add(spec.floorId)) {
+                throw new IllegalArgumentException("Floor " + spec.floorId + " is declared twice");
+            }
+        }
+        return specs.parallelStream()
+                .map(spec -> buildFloor(spec, lotIds))
+                .collect(Collectors.toList());
+    }
+
+    private static ParkingFloor buildFloor(FloorSpec spec, Set<String> lotIds) {
+        ParkingFloor floor = new ParkingFloor(spec.floorId, spec.slotCount);
+        for (SlotRange range : spec.ranges) {
+            for (int n = range.from, i = 0; n <= range.to; n++, i++) {
+                String slotId = range.single ? range.prefix : range.prefix + n;
+                if (!lotIds.add(slotId)) {
+                    throw new IllegalArgumentException("Slot " + slotId + " is declared more than once");
+                }
+                floor.addSlot(new ParkingSlot(slotId, range.type, range.distance + i * range.step));
+            }
+        }
+        return floor;
+    }
+}
@@ -0,0 +1,392 @@
+package backend.utils;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map with structural sharing (a hash array mapped trie).
+ *
+ * {@link #plus} and {@link #minus} return a new map that shares all but the
+ * O(log32 n) nodes on the changed path with the original, so a writer can
+ * derive the next version cheaply while readers keep using the previous one
+ * without any locking. Keys must not be null.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final PersistentHashMap EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Builds a map from parallel key and value arrays in one pass, far
+     * cheaper than repeated {@link #plus} when loading many entries at once.
+     * Entries are bucketed level by level on their hash bits, so every node
+     * is allocated exactly once. A later duplicate of a key wins.
+     */
+    public static <K, V> PersistentHashMap<K, V> of(K[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Need exactly one value per key");
+        }
+        int n = keys.length;
+        if (n == 0) {
+            return empty();
+        }
+        int[] hashes = new int[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null || values[i] == null) {
+                throw new IllegalArgumentException("Keys and values cannot be null");
+            }
+            hashes[i] = hash(keys[i]);
+            order[i] = i;
+        }
+        int[] size = new int[1];
+        Node root = build(keys, values, hashes, order, new int[n], 0, n, 0, size);
+        return new PersistentHashMap<>(root, size[0]);
+    }
+
+    /**
+     * Builds the node for entries order[from..to), which share their hash
+     * bits below shift. Bucketing is stable, so entries keep input order.
+     */
+    private static Node build(Object[] keys, Object[] values, int[] hashes, int[] order, int[] scratch,
+                              int from, int to, int shift, int[] size) {
+        boolean sameHash = true;
+        for (int i = from + 1; i < to && sameHash; i++) {
+            sameHash = hashes[order[i]] == hashes[order[from]];
+        }
+        if (sameHash && to - from > 1) {
+            // Full hash collision or duplicate keys: insert one by one
+            boolean[] added = new boolean[1];
+            Node node = BitmapNode.EMPTY;
+            for (int i = from; i < to; i++) {
+                int e = order[i];
+                added[0] = false;
+                node = node.put(hashes[e], shift, keys[e], values[e], added);
+                if (added[0]) {
+                    size[0]++;
+                }
+            }
+            return node;
+        }
+
+        int[] starts = new int[MASK + 2];
+        for (int i = from; i < to; i++) {
+            starts[((hashes[order[i]] >>> shift) & MASK) + 1]++;
+        }
+        int bitmap = 0;
+        for (int b = 0; b <= MASK; b++) {
+            if (starts[b + 1] > 0) {
+                bitmap |= 1 << b;
+            }
+            starts[b + 1] += starts[b];
+        }
+        int[] next = starts.clone();
+        for (int i = from; i < to; i++) {
+            int e = order[i];
+            scratch[from + next[(hashes[e] >>> shift) & MASK]++] = e;
+        }
+        System.arraycopy(scratch, from, order, from, to - from);
+
+        Object[] array = new Object[2 * Integer.bitCount(bitmap)];
+        int slot = 0;
+        for (int b = 0; b <= MASK; b++) {
+            int start = from + starts[b];
+            int end = from + starts[b + 1];
+            if (end - start == 1) {
+                array[slot] = keys[order[start]];
+                array[slot + 1] = values[order[start]];
+                size[0]++;
+                slot += 2;
+            } else if (end > start) {
+                array[slot + 1] = build(keys, values, hashes, order, scratch, start, end, shift + BITS, size);
+                slot += 2;
+            }
+        }
+        return new BitmapNode(bitmap, array);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value for a key, or null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return root == null ? null : (V) root.find(hash(key), 0, key);
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the key bound to the value.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Keys and values cannot be null");
+        }
+        boolean[] added = new boolean[1];
+        Node start = root == null ? BitmapNode.EMPTY : root;
+        Node updated = start.put(hash(key), 0, key, value, added);
+        if (updated == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the key.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        Node updated = root.remove(hash(key), 0, key);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentHashMap<>(updated, size - 1);
+    }
+
+    /**
+     * Visits every entry, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private interface Node {
+        Object find(int hash, int shift, Object key);
+
+        Node put(int hash, int shift, Object key, Object value, boolean[] added);
+
+        /**
+         * @return the updated node, this if unchanged, or null if now empty
+         */
+        Node remove(int hash, int shift, Object key);
+
+        void forEach(BiConsumer<Object, Object> action);
+    }
+
+    /**
+     * Up to 32 slots selected by five hash bits; each slot holds a key and
+     * value, or (with a null key) a child node.
+     */
+    private static final class BitmapNode implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        public Object find(int hash, int shift, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(hash, shift + BITS, key);
+            }
+            return key.equals(k) ? array[i + 1] : null;
+        }
+
+        @Override
+        public Node put(int hash, int shift, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(hash, shift + BITS, key, value, added);
+                return child == v ? this : with(i + 1, child);
+            }
+            if (key.equals(k)) {
+                return v == value ? this : with(i + 1, value);
+            }
+            added[0] = true;
+            Node child = split(shift + BITS, k, v, hash, key, value);
+            Object[] copy = array.clone();
+            copy[i] = null;
+            copy[i + 1] = child;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        public Node remove(int hash, int shift, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                Node child = (Node) array[i + 1];
+                Node updated = child.remove(hash, shift + BITS, key);
+                if (updated == child) {
+                    return this;
+                }
+                return updated != null ? with(i + 1, updated) : without(bit, i);
+            }
+            return key.equals(k) ? without(bit, i) : this;
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode with(int index, Object value) {
+            Object[] copy = array.clone();
+            copy[index] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private BitmapNode without(int bit, int i) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private static Node split(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = hash(k1);
+            if (h1 == h2) {
+                return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.put(h1, shift, k1, v1, ignored).put(h2, shift, k2, v2, ignored);
+        }
+    }
+
+    /**
+     * Keys whose full 32-bit hashes are equal, kept as a flat key/value array.
+     */
+    private static final class CollisionNode implements Node {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        public Object find(int hash, int shift, Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return array[i + 1];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node put(int hash, int shift, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Push this node one level down under a bitmap node
+                int bit = 1 << ((this.hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[] {null, this}).put(hash, shift, key, value, added);
+            }
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    if (array[i + 1] == value) {
+                        return this;
+                    }
+                    Object[] copy = array.clone();
+                    copy[i + 1] = value;
+                    return new CollisionNode(hash, copy);
+                }
+            }
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Node remove(int hash, int shift, Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    if (array.length == 2) {
+                        return null;
+                    }
+                    Object[] copy = new Object[array.length - 2];
+                    System.arraycopy(array, 0, copy, 0, i);
+                    System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+                    return new CollisionNode(hash, copy);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+}
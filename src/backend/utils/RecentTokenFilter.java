@@ -0,0 +1,139 @@
+package backend.utils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded memory of tokens that have already been used to exit.
+ *
+ * The most recent tokens are kept exactly in a concurrent set with
+ * insertion-order eviction. Older ones are remembered by two rotating Bloom
+ * filter generations: when the current generation is full, the previous one
+ * is dropped and a fresh one started, so memory stays fixed while the last
+ * one to two generations' worth of tokens are still recognised (with a false
+ * positive rate below 1%). Lookups never lock; writers synchronize among
+ * themselves.
+ */
+public final class RecentTokenFilter {
+
+    private static final int HASHES = 7;
+    private static final int BITS_PER_ENTRY = 10;
+
+    /**
+     * One Bloom filter generation.
+     */
+    private static final class Generation {
+        final AtomicLongArray words;
+        final long bitMask;
+        int count;
+
+        Generation(int capacity) {
+            long bits = Long.highestOneBit(Math.max(64L, (long) capacity * BITS_PER_ENTRY - 1)) << 1;
+            this.words = new AtomicLongArray((int) (bits >>> 6));
+            this.bitMask = bits - 1;
+        }
+
+        void add(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & bitMask;
+                int word = (int) (bit >>> 6);
+                words.set(word, words.get(word) | (1L << bit));
+            }
+            count++;
+        }
+
+        boolean contains(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & bitMask;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final int generationCapacity;
+    private final Set<String> recent;
+    private final String[] recentOrder;     // Ring of exact entries, oldest evicted first
+    private int recentNext;
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    /**
+     * Creates a filter.
+     * @param exactCapacity number of most recent tokens remembered exactly
+     * @param generationCapacity tokens per Bloom filter generation
+     */
+    public RecentTokenFilter(int exactCapacity, int generationCapacity) {
+        if (exactCapacity <= 0 || generationCapacity <= 0) {
+            throw new IllegalArgumentException("Capacities must be positive");
+        }
+        this.generationCapacity = generationCapacity;
+        this.recent = ConcurrentHashMap.newKeySet(exactCapacity * 2);
+        this.recentOrder = new String[exactCapacity];
+        this.current = new Generation(generationCapacity);
+        this.previous = new Generation(1);
+    }
+
+    /**
+     * Records a used token.
+     */
+    public synchronized void add(String tokenId) {
+        String evicted = recentOrder[recentNext];
+        if (evicted != null) {
+            recent.remove(evicted);
+        }
+        recentOrder[recentNext] = tokenId;
+        recentNext = (recentNext + 1) % recentOrder.length;
+        recent.add(tokenId);
+
+        if (current.count >= generationCapacity) {
+            previous = current;
+            current = new Generation(generationCapacity);
+        }
+        current.add(hash(tokenId));
+    }
+
+    /**
+     * Checks whether the token is among the most recent ones, exactly.
+     */
+    public boolean isRecent(String tokenId) {
+        return tokenId != null && recent.contains(tokenId);
+    }
+
+    /**
+     * Checks whether the token was probably used; never false for tokens
+     * still within the remembered window.
+     */
+    public boolean mightContain(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        if (recent.contains(tokenId)) {
+            return true;
+        }
+        long hash = hash(tokenId);
+        return current.contains(hash) || previous.contains(hash);
+    }
+
+    /**
+     * 64-bit FNV-1a over the token's characters, with a final mix.
+     */
+    private static long hash(String tokenId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < tokenId.length(); i++) {
+            h ^= tokenId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
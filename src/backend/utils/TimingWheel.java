@@ -0,0 +1,187 @@
+package backend.utils;
+
+import java.util.List;
+
+/**
+ * Hashed hierarchical timing wheel.
+ *
+ * Four levels of 64 buckets cover 64, 4096, 262144 and 16.7M ticks. A timeout
+ * goes into the coarsest level that still resolves its deadline; whenever a
+ * level wraps, the next bucket of the level above is cascaded down. Each tick
+ * therefore touches one bucket per level at most, independent of how many
+ * timeouts are pending, and cancelling unlinks the timeout from its bucket's
+ * doubly linked list in O(1). Deadlines beyond the top level are parked in
+ * its farthest bucket and re-placed when it cascades.
+ *
+ * Time is supplied by the caller through {@link #advanceTo}, so the wheel
+ * works on the wall clock as well as on simulated time. Not thread-safe;
+ * callers synchronize.
+ *
+ * @param <T> payload handed back when a timeout expires
+ */
+public final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    /**
+     * Handle of a scheduled timeout.
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private boolean linked;
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        /**
+         * True until the timeout fires or is cancelled.
+         */
+        public boolean isPending() {
+            return linked;
+        }
+    }
+
+    private final long tickMillis;
+    private final Timeout<T>[][] wheels;    // Sentinel head of each bucket list
+    private long nextTick;                   // First tick not yet processed
+    private int size;
+
+    /**
+     * Creates a wheel.
+     * @param tickMillis resolution in milliseconds
+     * @param startMillis current time in epoch milliseconds
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.wheels = new Timeout[LEVELS][SIZE];
+        for (Timeout<T>[] wheel : wheels) {
+            for (int i = 0; i < SIZE; i++) {
+                Timeout<T> head = new Timeout<>(null, 0);
+                head.prev = head;
+                head.next = head;
+                wheel[i] = head;
+            }
+        }
+        this.nextTick = Math.floorDiv(startMillis, tickMillis) + 1;
+    }
+
+    /**
+     * Number of pending timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules a payload. Deadlines are rounded up to the next tick, so a
+     * timeout never fires early; deadlines already past fire on the next tick.
+     * @param payload value returned on expiry
+     * @param deadlineMillis deadline in epoch milliseconds
+     * @return handle for cancellation
+     */
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), nextTick);
+        Timeout<T> timeout = new Timeout<>(payload, tick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a pending timeout.
+     * @return true if it was still pending
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || !timeout.linked) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to the given time, collecting the payloads
+     * of timeouts that expired, in deadline order.
+     * @param nowMillis current time in epoch milliseconds
+     * @param expired receives expired payloads
+     */
+    public void advanceTo(long nowMillis, List<T> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        while (nextTick <= target) {
+            int index = (int) (nextTick & MASK);
+            if (index == 0) {
+                for (int level = 1; level < LEVELS && cascade(level); level++) {
+                    // Keep cascading while the level above also wrapped
+                }
+            }
+            Timeout<T> head = wheels[0][index];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                unlink(timeout);
+                size--;
+                expired.add(timeout.payload);
+            }
+            nextTick++;
+        }
+    }
+
+    /**
+     * Moves the current bucket of a level down into the finer levels.
+     * @return true if this level's index also wrapped to zero
+     */
+    private boolean cascade(int level) {
+        int index = (int) ((nextTick >>> (BITS * level)) & MASK);
+        Timeout<T> head = wheels[level][index];
+        while (head.next != head) {
+            Timeout<T> timeout = head.next;
+            unlink(timeout);
+            place(timeout);
+        }
+        return index == 0;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - nextTick;
+        long tick = timeout.deadlineTick;
+        if (delta > MAX_DELTA) {
+            tick = nextTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        Timeout<T> head = wheels[level][(int) ((tick >>> (BITS * level)) & MASK)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+        timeout.linked = true;
+    }
+
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+    }
+}
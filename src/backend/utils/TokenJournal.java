@@ -0,0 +1,463 @@
+package backend.utils;
+
+import backend.models.Token;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token store written as a journal of rotating, size-bounded segments.
+ *
+ * Every park and exit appends one line to the active segment:
+ * {@code P,<millis>,<tokenId>,<slotId>,<registration>} or
+ * {@code X,<millis>,<tokenId>}. When the active segment reaches its size
+ * limit it is sealed and a new segment is started.
+ *
+ * Compaction rewrites all sealed segments into one, keeping the park
+ * records of tokens that are still live and every record within the
+ * retention period; everything older is dropped. The result is committed
+ * by renaming it to a ".compact" file before the old segments are deleted,
+ * so a crash at any point is finished or rolled back on the next start.
+ * Startup replays the remaining segments, so startup time and disk use are
+ * bounded by live tokens plus retained history, not by the age of the lot.
+ *
+ * The replay also notes each segment's time range, so history reads open
+ * only segments that overlap the query.
+ */
+public class TokenJournal extends TokenStorage implements AutoCloseable {
+
+    private static final String PREFIX = "journal-";
+    private static final String LOG = ".log";
+    private static final String INDEX = ".idx";         // Written by earlier versions, removed on start
+    private static final String TEMP = ".tmp";
+    private static final String COMPACT = ".compact";
+    private static final String PARK = "P";
+    private static final String EXIT = "X";
+    private static final long INVALID = Long.MIN_VALUE;    // Timestamp of a record that cannot be parsed
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long retentionMillis;
+    private final ZoneId zone;
+    private final List<Segment> sealed;                 // Sealed segments, oldest first
+    private final Map<String, String> live;             // Map tokenId -> "tokenId,slotId,registration"
+    private Segment active;
+    private BufferedWriter out;
+    private long latestTime = Long.MIN_VALUE;
+    private boolean compacting;
+    private ScheduledExecutorService compactor;
+
+    /**
+     * A journal segment and the time range of its records.
+     */
+    private static final class Segment {
+        final long id;
+        final Path log;
+        long bytes;
+        long records;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+
+        Segment(long id, Path log) {
+            this.id = id;
+            this.log = log;
+        }
+
+        void account(long time, int length) {
+            records++;
+            bytes += length;
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+        }
+
+        boolean overlaps(long from, long to) {
+            return records > 0 && maxTime >= from && minTime <= to;
+        }
+    }
+
+    /**
+     * Opens or creates a journal.
+     * @param directory directory holding the segments, created if missing
+     * @param segmentBytes size at which the active segment is sealed
+     * @param retention how long exited tokens stay in the journal after compaction
+     */
+    public TokenJournal(Path directory, long segmentBytes, Duration retention) throws IOException {
+        this(directory, segmentBytes, retention, ZoneId.systemDefault());
+    }
+
+    public TokenJournal(Path directory, long segmentBytes, Duration retention, ZoneId zone) throws IOException {
+        if (directory == null || segmentBytes <= 0 || retention == null || retention.isNegative() || zone == null) {
+            throw new IllegalArgumentException("Directory, a positive segment size, a retention and a zone must be provided");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retentionMillis = retention.toMillis();
+        this.zone = zone;
+        this.sealed = new ArrayList<>();
+        this.live = new LinkedHashMap<>();
+        recover();
+        open();
+    }
+
+    // ------------------------------------------------------------------ startup
+
+    /**
+     * Finishes a committed compaction or discards an interrupted one.
+     */
+    private void recover() throws IOException {
+        for (Path path : list("*" + TEMP)) {
+            Files.delete(path);
+        }
+        for (Path compacted : list("*" + LOG + COMPACT)) {
+            long id = idOf(compacted);
+            for (Path log : list("*" + LOG)) {
+                if (idOf(log) <= id) {
+                    Files.delete(log);
+                }
+            }
+            Files.move(compacted, logPath(id), StandardCopyOption.ATOMIC_MOVE);
+        }
+        for (Path index : list("*" + INDEX + "*")) {
+            Files.delete(index);
+        }
+    }
+
+    private void open() throws IOException {
+        List<Path> logs = list("*" + LOG);
+        logs.sort((a, b) -> Long.compare(idOf(a), idOf(b)));
+        for (Path log : logs) {
+            Segment segment = replay(log);
+            sealed.add(segment);
+        }
+        Segment last = sealed.isEmpty() ? null : sealed.get(sealed.size() - 1);
+        if (last != null && last.bytes < segmentBytes) {
+            sealed.remove(sealed.size() - 1);
+            active = last;
+        } else {
+            active = new Segment(last == null ? 1 : last.id + 1, logPath(last == null ? 1 : last.id + 1));
+        }
+        out = Files.newBufferedWriter(active.log, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private Segment replay(Path log) throws IOException {
+        Segment segment = new Segment(idOf(log), log);
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                long time = fields.length < 3 ? INVALID : timeOf(fields[1]);
+                if (time == INVALID) {
+                    continue;       // Torn final line after a crash
+                }
+                if (PARK.equals(fields[0]) && fields.length == 5) {
+                    live.put(fields[2], fields[2] + "," + fields[3] + "," + fields[4]);
+                } else if (EXIT.equals(fields[0])) {
+                    live.remove(fields[2]);
+                }
+                segment.account(time, line.length() + 1);
+                latestTime = Math.max(latestTime, time);
+            }
+        }
+        return segment;
+    }
+
+    // ------------------------------------------------------------------ writes
+
+    @Override
+    public synchronized void append(Token token) {
+        long time = toMillis(token.getEntryTime());
+        String record = token.getTokenId() + "," + token.getSlotId() + "," + token.getVehicleRegNumber();
+        write(time, PARK + "," + time + "," + record);
+        live.put(token.getTokenId(), record);
+    }
+
+    @Override
+    public synchronized void recordExit(Token token) {
+        long time = toMillis(token.getExitTime());
+        write(time, EXIT + "," + time + "," + token.getTokenId());
+        live.remove(token.getTokenId());
+    }
+
+    private void write(long time, String line) {
+        try {
+            out.write(line);
+            out.newLine();
+            out.flush();
+            active.account(time, line.length() + 1);
+            latestTime = Math.max(latestTime, time);
+            if (active.bytes >= segmentBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            EventLog.error("journal.write_failed", "segment", active.log, "error", e.getMessage());
+        }
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        sealed.add(active);
+        long id = active.id + 1;
+        active = new Segment(id, logPath(id));
+        out = Files.newBufferedWriter(active.log, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        EventLog.info("journal.rotated", "segment", id, "sealed", sealed.size());
+    }
+
+    // ------------------------------------------------------------------ reads
+
+    /**
+     * Returns the live tokens as "tokenId,slotId,registration" lines.
+     */
+    @Override
+    public synchronized List<String> readAll() {
+        return new ArrayList<>(live.values());
+    }
+
+    /**
+     * Returns journal records with a timestamp in [from, to], reading only
+     * segments whose time range overlaps it.
+     * @return raw records, oldest segment first
+     */
+    public List<String> history(LocalDateTime from, LocalDateTime to) throws IOException {
+        long start = toMillis(from);
+        long end = toMillis(to);
+        while (true) {
+            try {
+                return readRange(start, end);
+            } catch (NoSuchFileException e) {
+                // A compaction replaced the segments meanwhile; use the new ones
+            }
+        }
+    }
+
+    private List<String> readRange(long start, long end) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : sealed) {
+                if (segment.overlaps(start, end)) logs.add(segment.log);
+            }
+            if (active.overlaps(start, end)) logs.add(active.log);
+        }
+        List<String> records = new ArrayList<>();
+        for (Path log : logs) {
+            try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(",", 3);
+                    long time = fields.length == 3 ? timeOf(fields[1]) : INVALID;
+                    if (time != INVALID && time >= start && time <= end) {
+                        records.add(line);
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Number of segments on disk, including the active one.
+     */
+    public synchronized int segmentCount() {
+        return sealed.size() + 1;
+    }
+
+    // ------------------------------------------------------------------ compaction
+
+    /**
+     * Rewrites the sealed segments into one holding only live tokens and
+     * records newer than the retention period. Appends continue meanwhile.
+     * @return number of records dropped
+     */
+    public long compact() throws IOException {
+        List<Segment> inputs;
+        Set<String> liveNow;
+        long cutoff;
+        synchronized (this) {
+            if (compacting || sealed.size() < 2 && (sealed.isEmpty() || sealed.get(0).minTime >= latestTime - retentionMillis)) {
+                return 0;
+            }
+            compacting = true;
+            inputs = new ArrayList<>(sealed);
+            liveNow = new HashSet<>(live.keySet());
+            cutoff = latestTime - retentionMillis;
+        }
+        try {
+            return rewrite(inputs, liveNow, cutoff);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    private long rewrite(List<Segment> inputs, Set<String> liveNow, long cutoff) throws IOException {
+        // First pass: tokens whose exit is retained keep their park record too
+        Set<String> retainedExits = new HashSet<>();
+        for (Segment segment : inputs) {
+            if (segment.maxTime < cutoff) continue;
+            forEachRecord(segment.log, (fields, line) -> {
+                if (EXIT.equals(fields[0]) && Long.parseLong(fields[1]) >= cutoff) {
+                    retainedExits.add(fields[2]);
+                }
+            });
+        }
+
+        long id = inputs.get(inputs.size() - 1).id;
+        Segment output = new Segment(id, logPath(id));
+        Path temp = directory.resolve(PREFIX + format(id) + LOG + TEMP);
+        long[] dropped = {0};
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Segment segment : inputs) {
+                forEachRecord(segment.log, (fields, line) -> {
+                    long time = Long.parseLong(fields[1]);
+                    boolean keep = time >= cutoff
+                            || PARK.equals(fields[0]) && (liveNow.contains(fields[2]) || retainedExits.contains(fields[2]));
+                    if (keep) {
+                        writer.write(line);
+                        writer.newLine();
+                        output.account(time, line.length() + 1);
+                    } else {
+                        dropped[0]++;
+                    }
+                });
+            }
+        }
+        // Commit point: recover() finishes the swap from here on
+        Path committed = directory.resolve(PREFIX + format(id) + LOG + COMPACT);
+        Files.move(temp, committed, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            recover();
+            sealed.removeAll(inputs);
+            sealed.add(0, output);
+        }
+        EventLog.info("journal.compacted", "segments", inputs.size(), "kept", output.records, "dropped", dropped[0]);
+        return dropped[0];
+    }
+
+    private interface RecordVisitor {
+        void visit(String[] fields, String line) throws IOException;
+    }
+
+    private static void forEachRecord(Path log, RecordVisitor visitor) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length >= 3 && timeOf(fields[1]) != INVALID) {
+                    visitor.visit(fields, line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compacts periodically on a daemon thread.
+     * @param interval time between compactions
+     */
+    public synchronized void startCompaction(Duration interval) {
+        if (compactor != null) {
+            throw new IllegalStateException("Compaction already scheduled");
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                EventLog.error("journal.compaction_failed", "directory", directory, "error", e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops compaction and closes the active segment.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService scheduled;
+        synchronized (this) {
+            scheduled = compactor;
+            compactor = null;
+        }
+        if (scheduled != null) {
+            scheduled.shutdown();
+            try {
+                scheduled.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            out.close();
+        }
+    }
+
+    // ------------------------------------------------------------------ helpers
+
+    /**
+     * Parses a record's timestamp.
+     * @return the time, or INVALID if the field is cut short or garbled
+     */
+    private static long timeOf(String field) {
+        try {
+            return Long.parseLong(field);
+        } catch (NumberFormatException e) {
+            return INVALID;
+        }
+    }
+
+    private List<Path> list(String glob) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + glob)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private Path logPath(long id) {
+        return directory.resolve(PREFIX + format(id) + LOG);
+    }
+
+    private static String format(long id) {
+        return String.format("%012d", id);
+    }
+
+    private static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), PREFIX.length() + 12));
+    }
+
+    private long toMillis(LocalDateTime time) {
+        LocalDateTime at = time != null ? time : LocalDateTime.now();
+        return at.atZone(zone).toInstant().toEpochMilli();
+    }
+}
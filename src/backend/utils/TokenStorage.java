@@ -8,38 +8,107 @@ import java.util.List;
 
 /**
  * Handles saving and loading parking tokens to a persistent file.
+ * Each ParkingService writes through its own instance; the static
+ * helpers operate on the default "tokens.txt" store.
  */
 public class TokenStorage {
 
     private static final String FILE_PATH = "tokens.txt";
+    private static final TokenStorage DEFAULT = new TokenStorage(FILE_PATH);
+
+    private final String filePath;          // Backing file, null when records are discarded
 
     /**
-     * Saves a token to disk.
+     * Creates a storage writing to the given file.
+     * @param filePath path of the token file
+     */
+    public TokenStorage(String filePath) {
+        if (filePath == null || filePath.isBlank()) {
+            throw new IllegalArgumentException("File path cannot be empty");
+        }
+        this.filePath = filePath;
+    }
+
+    /**
+     * Creates a storage with no backing file; subclasses with their own
+     * persistence override the record and read methods.
+     */
+    protected TokenStorage() {
+        this.filePath = null;
+    }
+
+    /**
+     * Returns the storage backed by the default token file.
+     */
+    public static TokenStorage defaultStorage() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns a storage that drops every record, used by simulations
+     * and benchmarks that must not touch the real token file.
+     */
+    public static TokenStorage discarding() {
+        return new TokenStorage();
+    }
+
+    /**
+     * Appends a token record to this store.
      * @param token the token to store
      */
-    public static void saveToken(Token token) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FILE_PATH, true))) {
+    public void append(Token token) {
+        if (filePath == null) {
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
             writer.write(token.getTokenId() + "," + token.getSlotId() + "," + token.getVehicleRegNumber());
             writer.newLine();
         } catch (IOException e) {
-            System.err.println("Error saving token: " + e.getMessage());
+            EventLog.error("token.save_failed", "file", filePath, "error", e.getMessage());
         }
     }
 
     /**
-     * Loads all stored tokens from file.
+     * Records that a token was used to exit. The plain token file keeps
+     * issued tokens only, so this is a no-op here.
+     * @param token the token that was used
+     */
+    public void recordExit(Token token) {
+    }
+
+    /**
+     * Reads all token records from this store.
      * @return list of tokens as strings
      */
-    public static List<String> loadTokens() {
+    public List<String> readAll() {
         List<String> tokens = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
+        if (filePath == null) {
+            return tokens;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 tokens.add(line);
             }
         } catch (IOException e) {
-            System.err.println("No existing token records found.");
+            EventLog.warn("token.load_skipped", "file", filePath, "reason", "No existing token records found");
         }
         return tokens;
     }
+
+    /**
+     * Saves a token to disk.
+     * @param token the token to store
+     */
+    public static void saveToken(Token token) {
+        DEFAULT.append(token);
+    }
+
+    /**
+     * Loads all stored tokens from file.
+     * @return list of tokens as strings
+     */
+    public static List<String> loadTokens() {
+        return DEFAULT.readAll();
+    }
 }
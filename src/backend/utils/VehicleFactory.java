@@ -0,0 +1,50 @@
+package backend.utils;
+
+import backend.models.FourWheeler;
+import backend.models.HeavyVehicle;
+import backend.models.TwoWheeler;
+import backend.models.Vehicle;
+
+/**
+ * Utility class for creating vehicles from their type string.
+ */
+public class VehicleFactory {
+
+    /**
+     * Supported vehicle type strings, smallest first.
+     */
+    public static final String[] TYPES = {"TWO_WHEELER", "FOUR_WHEELER", "HEAVY_VEHICLE"};
+
+    /**
+     * Creates a vehicle of the given type.
+     * @param type Vehicle type string (e.g., "TWO_WHEELER")
+     * @param registrationNumber Vehicle registration
+     * @return new Vehicle instance
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    public static Vehicle create(String type, String registrationNumber) {
+        if (type == null) {
+            throw new IllegalArgumentException("Vehicle type cannot be null");
+        }
+        return switch (type) {
+            case "TWO_WHEELER" -> new TwoWheeler(registrationNumber);
+            case "FOUR_WHEELER" -> new FourWheeler(registrationNumber);
+            case "HEAVY_VEHICLE" -> new HeavyVehicle(registrationNumber);
+            default -> throw new IllegalArgumentException("Unknown vehicle type: " + type);
+        };
+    }
+
+    /**
+     * Returns the index of a type in {@link #TYPES}.
+     * @param type Vehicle type string
+     * @return index, or -1 if unknown
+     */
+    public static int indexOf(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,364 @@
+package ui.cli;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.services.ParkingReadModel;
+import backend.services.ParkingService;
+import backend.simulation.LatencyRecorder;
+import backend.utils.VehicleFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Non-interactive replay of a command file through a ParkingService, for
+ * reproducing a day of gate traffic without the menu.
+ *
+ * One command per line, fields separated by spaces; blank lines and lines
+ * starting with # are skipped. Times are ISO local date-times and default
+ * to now.
+ * <pre>
+ * park &lt;regNo&gt; [type] [entryTime]     type as in VehicleFactory, default FOUR_WHEELER
+ * exit &lt;tokenId&gt;
+ * exit-plate &lt;regNo&gt; [exitTime]       exit by registration, for logs without token IDs
+ * search &lt;regNo&gt;
+ * available [type]
+ * summary                              occupied/total per floor
+ * </pre>
+ * Each command writes one result line (OK ... or ERR ...) when an output
+ * channel is given. The file is read and the results written through large
+ * byte buffers, and commands run in chunks under one acquisition of the
+ * service lock, so millions of lines replay in seconds.
+ */
+public class CommandBatch {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int CHUNK = 1024;          // Commands per service lock acquisition
+    private static final int MAX_FIELDS = 4;
+
+    /**
+     * Kinds of command, for the timing report.
+     */
+    private enum Op { PARK, EXIT, EXIT_PLATE, SEARCH, AVAILABLE, SUMMARY, INVALID }
+
+    private final ParkingService parkingService;
+    private final Map<Op, LatencyRecorder> timings = new EnumMap<>(Op.class);
+    private final Map<Op, Integer> errors = new EnumMap<>(Op.class);
+    private final String[] fields = new String[MAX_FIELDS + 1];
+    private final StringBuilder result = new StringBuilder(128);
+    private ByteBuffer out;                         // Pending result bytes, null if results are discarded
+    private WritableByteChannel sink;
+    private long commands;
+
+    public CommandBatch(ParkingService parkingService) {
+        if (parkingService == null) {
+            throw new IllegalArgumentException("Parking service cannot be null");
+        }
+        this.parkingService = parkingService;
+    }
+
+    /**
+     * Replays a command file.
+     * @param commandFile file of commands, one per line
+     * @param results channel receiving one result line per command, or null to discard them
+     * @return number of commands run
+     * @throws IOException if the file cannot be read or the results written
+     */
+    public long run(Path commandFile, WritableByteChannel results) throws IOException {
+        this.sink = results;
+        this.out = results == null ? null : ByteBuffer.allocate(BUFFER_SIZE);
+        long start = commands;
+        try (FileChannel in = FileChannel.open(commandFile, StandardOpenOption.READ)) {
+            replay(in);
+        } catch (UncheckedIOException e) {
+            // Results are flushed from inside the service batch, which cannot throw checked exceptions
+            throw e.getCause();
+        }
+        flush();
+        return commands - start;
+    }
+
+    private void replay(FileChannel in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        int[] lineStarts = new int[CHUNK];
+        int[] lineEnds = new int[CHUNK];
+        boolean eof = false;
+        while (!eof) {
+            eof = in.read(buffer) < 0;
+            int limit = buffer.position();
+            int lines = 0;
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    lineStarts[lines] = lineStart;
+                    lineEnds[lines++] = i;
+                    lineStart = i + 1;
+                    if (lines == CHUNK) {
+                        runChunk(bytes, lineStarts, lineEnds, lines);
+                        lines = 0;
+                    }
+                }
+            }
+            if (eof && lineStart < limit) {
+                // Last line without a newline
+                lineStarts[lines] = lineStart;
+                lineEnds[lines++] = limit;
+                lineStart = limit;
+            }
+            runChunk(bytes, lineStarts, lineEnds, lines);
+            if (!eof && lineStart == 0 && limit == bytes.length) {
+                throw new IOException("Command line longer than " + BUFFER_SIZE + " bytes");
+            }
+            // Keep the partial line for the next read
+            buffer.position(lineStart);
+            buffer.limit(limit);
+            buffer.compact();
+        }
+    }
+
+    private void runChunk(byte[] bytes, int[] starts, int[] ends, int lines) {
+        if (lines == 0) {
+            return;
+        }
+        parkingService.runBatch(() -> {
+            for (int i = 0; i < lines; i++) {
+                int end = ends[i];
+                if (end > starts[i] && bytes[end - 1] == '\r') {
+                    end--;
+                }
+                execute(new String(bytes, starts[i], end - starts[i], StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    /**
+     * Runs one command line, timing it and recording its result.
+     */
+    private void execute(String line) {
+        int count = split(line);
+        if (count == 0 || fields[0].startsWith("#")) {
+            return;
+        }
+        commands++;
+        result.setLength(0);
+        Op op = Op.INVALID;
+        long start = System.nanoTime();
+        try {
+            switch (fields[0].toLowerCase()) {
+                case "park" -> {
+                    op = Op.PARK;
+                    require(count, 2, 4);
+                    String type = count > 2 ? fields[2].toUpperCase() : "FOUR_WHEELER";
+                    LocalDateTime entry = count > 3 ? parseTime(fields[3]) : null;
+                    Token token = parkingService.parkVehicle(VehicleFactory.create(type, fields[1]), entry);
+                    result.append("OK ").append(token.getTokenId()).append(' ').append(token.getSlotId());
+                }
+                case "exit" -> {
+                    op = Op.EXIT;
+                    require(count, 2, 2);
+                    result.append("OK ").append(parkingService.exitVehicle(fields[1]));
+                }
+                case "exit-plate" -> {
+                    op = Op.EXIT_PLATE;
+                    require(count, 2, 3);
+                    result.append("OK ").append(exitByPlate(fields[1].toUpperCase(),
+                            count > 2 ? parseTime(fields[2]) : null));
+                }
+                case "search" -> {
+                    op = Op.SEARCH;
+                    require(count, 2, 2);
+                    result.append("OK ").append(parkingService.searchVehicle(fields[1].toUpperCase()).getSlotId());
+                }
+                case "available" -> {
+                    op = Op.AVAILABLE;
+                    require(count, 1, 2);
+                    result.append("OK ").append(count > 1
+                            ? parkingService.getAvailableSlotCount(fields[1].toUpperCase())
+                            : parkingService.getAvailableSlotCount());
+                }
+                case "summary" -> {
+                    op = Op.SUMMARY;
+                    require(count, 1, 1);
+                    result.append("OK");
+                    for (ParkingFloor floor : parkingService.getFloors()) {
+                        int occupied = 0;
+                        for (ParkingSlot slot : floor.getSlots()) {
+                            if (slot.isOccupied()) {
+                                occupied++;
+                            }
+                        }
+                        result.append(' ').append(floor.getFloorId()).append('=')
+                                .append(occupied).append('/').append(floor.getSlots().size());
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown command: " + fields[0]);
+            }
+        } catch (SlotNotAvailableException | InvalidTokenException | VehicleNotFoundException
+                 | IllegalArgumentException | DateTimeParseException e) {
+            errors.merge(op, 1, Integer::sum);
+            result.setLength(0);
+            result.append("ERR ").append(e.getMessage());
+        }
+        timings.computeIfAbsent(op, o -> new LatencyRecorder()).record(System.nanoTime() - start);
+        write(result);
+    }
+
+    /**
+     * Exits the vehicle with the given plate, at the given time if one is set.
+     */
+    private int exitByPlate(String regNo, LocalDateTime exitTime) throws VehicleNotFoundException, InvalidTokenException {
+        if (exitTime == null) {
+            return parkingService.exitVehicleByRegistration(regNo);
+        }
+        ParkingReadModel.Entry entry = parkingService.getReadModel().findByPlate(regNo);
+        if (entry == null) {
+            throw new VehicleNotFoundException(regNo);
+        }
+        Token token = entry.getToken();
+        return parkingService.exitVehicleWithTimes(token.getTokenId(), token.getEntryTime(), exitTime);
+    }
+
+    /**
+     * Parses an ISO local date-time. The plain yyyy-MM-ddTHH:mm[:ss] form
+     * written by gate logs is read digit by digit, since the general formatter
+     * allocates a field map per call; anything else goes to LocalDateTime.parse.
+     */
+    private static LocalDateTime parseTime(String text) {
+        int n = text.length();
+        if ((n == 16 || n == 19) && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == 'T'
+                && text.charAt(13) == ':' && (n == 16 || text.charAt(16) == ':')) {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = n == 19 ? digits(text, 17, 2) : 0;
+            if ((year | month | day | hour | minute | second) >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                } catch (DateTimeException e) {
+                    // Out-of-range field: let the formatter report it
+                }
+            }
+        }
+        return LocalDateTime.parse(text);
+    }
+
+    /**
+     * @return the decimal value of text[from, from + length), or -1 if it has a non-digit
+     */
+    private static int digits(String text, int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static void require(int count, int min, int max) {
+        if (count < min || count > max) {
+            throw new IllegalArgumentException("Expected " + (min - 1) + (max > min ? "-" + (max - 1) : "") + " arguments");
+        }
+    }
+
+    /**
+     * Splits a line on spaces and tabs into fields, without regular expressions.
+     * @return number of fields, at most MAX_FIELDS + 1 (extra fields are counted as one)
+     */
+    private int split(String line) {
+        int count = 0;
+        int i = 0;
+        int n = line.length();
+        while (i < n && count <= MAX_FIELDS) {
+            while (i < n && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            int start = i;
+            while (i < n && line.charAt(i) != ' ' && line.charAt(i) != '\t') {
+                i++;
+            }
+            fields[count++] = line.substring(start, i);
+        }
+        return count;
+    }
+
+    private void write(CharSequence line) {
+        if (out == null) {
+            return;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                if (!out.hasRemaining()) {
+                    flush();
+                }
+                out.put((byte) c);
+            } else {
+                // Rare non-ASCII text (in error messages): encode the rest of the line properly
+                byte[] encoded = line.subSequence(i, line.length()).toString().getBytes(StandardCharsets.UTF_8);
+                if (out.remaining() < encoded.length) {
+                    flush();
+                }
+                out.put(encoded);
+                break;
+            }
+        }
+        if (!out.hasRemaining()) {
+            flush();
+        }
+        out.put((byte) '\n');
+    }
+
+    private void flush() {
+        if (out == null) {
+            return;
+        }
+        out.flip();
+        try {
+            while (out.hasRemaining()) {
+                sink.write(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.clear();
+    }
+
+    /**
+     * Formats the counts, errors and latency percentiles of every kind of command run so far.
+     * @param elapsedNanos wall time of the replay, for the overall rate
+     */
+    public String report(long elapsedNanos) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%,d commands in %.3f s (%,.0f/s)%n", commands, elapsedNanos / 1e9,
+                commands * 1e9 / Math.max(1, elapsedNanos)));
+        for (Map.Entry<Op, LatencyRecorder> entry : timings.entrySet()) {
+            report.append(String.format("  %-11s errors=%-8d %s%n", entry.getKey().name().toLowerCase().replace('_', '-'),
+                    errors.getOrDefault(entry.getKey(), 0), entry.getValue().summary()));
+        }
+        return report.toString();
+    }
+}
@@ -6,8 +6,15 @@ import backend.exceptions.VehicleNotFoundException;
 import backend.models.*;
 import backend.services.ParkingService;
 import backend.utils.DisplayHelper;
-
-import java.util.ArrayList;
+import backend.utils.EventLog;
+import backend.utils.LayoutLoader;
+import backend.utils.TokenStorage;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Scanner;
 
@@ -130,38 +137,45 @@ public class MainCLI {
         }
     }
 
-    public static void main(String[] args) {
-        // Set up a sample parking lot with configuration
-        List<ParkingFloor> floors = new ArrayList<>();
-
-        ParkingFloor groundFloor = new ParkingFloor("G1");
-        // Add slots: IDs and compatible types (example)
-        for (int i = 1; i <= 5; i++) {
-            groundFloor.addSlot(new ParkingSlot("G1-TW-" + i, "TWO_WHEELER"));
-        }
-        for (int i = 6; i <= 12; i++) {
-            groundFloor.addSlot(new ParkingSlot("G1-FW-" + i, "FOUR_WHEELER"));
-        }
-        for (int i = 13; i <= 15; i++) {
-            groundFloor.addSlot(new ParkingSlot("G1-HV-" + i, "HEAVY_VEHICLE"));
-        }
-
-        ParkingFloor firstFloor = new ParkingFloor("F1");
-        for (int i = 1; i <= 5; i++) {
-            firstFloor.addSlot(new ParkingSlot("F1-TW-" + i, "TWO_WHEELER"));
-        }
-        for (int i = 6; i <= 12; i++) {
-            firstFloor.addSlot(new ParkingSlot("F1-FW-" + i, "FOUR_WHEELER"));
-        }
-        for (int i = 13; i <= 15; i++) {
-            firstFloor.addSlot(new ParkingSlot("F1-HV-" + i, "HEAVY_VEHICLE"));
+    /**
+     * Runs the CLI on the lot described by a layout file, or replays a
+     * command file without the menu (see {@link CommandBatch}). Replayed
+     * tokens are not persisted.
+     * Usage: MainCLI [layoutFile], defaulting to layout.txt, or the sample lot if that is missing
+     *        MainCLI --batch commandFile [resultFile|-] [layoutFile]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
         }
-
-        floors.add(groundFloor);
-        floors.add(firstFloor);
-
+        List<ParkingFloor> floors = LayoutLoader.loadOrSample(Paths.get(args.length > 0 ? args[0] : "layout.txt"));
         ParkingService parkingService = new ParkingService(floors);
         MainCLI cli = new MainCLI(parkingService);
         cli.start();
     }
+
+    private static void runBatch(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MainCLI --batch commandFile [resultFile|-] [layoutFile]");
+            return;
+        }
+        // Per-request info events would cost more than the replay itself
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+        List<ParkingFloor> floors = LayoutLoader.loadOrSample(Paths.get(args.length > 3 ? args[3] : "layout.txt"));
+        CommandBatch batch = new CommandBatch(new ParkingService(floors, TokenStorage.discarding()));
+        String results = args.length > 2 ? args[2] : null;
+        long start = System.nanoTime();
+        if (results == null) {
+            batch.run(Paths.get(args[1]), null);
+        } else if (results.equals("-")) {
+            batch.run(Paths.get(args[1]), Channels.newChannel(System.out));
+        } else {
+            try (FileChannel out = FileChannel.open(Paths.get(results), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                batch.run(Paths.get(args[1]), out);
+            }
+        }
+        System.err.print(batch.report(System.nanoTime() - start));
+    }
 }
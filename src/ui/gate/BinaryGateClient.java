@@ -0,0 +1,177 @@
+package ui.gate;
+
+import backend.services.ParkingService;
+import backend.simulation.LatencyRecorder;
+import backend.simulation.ParkingSimulator;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for a barrier controller speaking the binary gate protocol.
+ * Sends windows of pipelined frames over one blocking connection and reads
+ * the answers back; its main method doubles as a throughput test.
+ */
+public class BinaryGateClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer out;
+    private final ByteBuffer in;
+    private final StringBuilder slotId = new StringBuilder(GateFrames.SLOT_LENGTH);
+
+    /**
+     * Connects to a gate server.
+     * @param host server host
+     * @param port server port
+     * @param window maximum number of frames pipelined per round trip
+     * @throws IOException if the connection fails
+     * @throws IllegalArgumentException if window exceeds {@link GateFrames#MAX_PIPELINE}
+     */
+    public BinaryGateClient(String host, int port, int window) throws IOException {
+        if (window <= 0 || window > GateFrames.MAX_PIPELINE) {
+            throw new IllegalArgumentException("Window must be between 1 and " + GateFrames.MAX_PIPELINE);
+        }
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.out = ByteBuffer.allocateDirect(window * GateFrames.FRAME_SIZE);
+        this.in = ByteBuffer.allocateDirect(window * GateFrames.FRAME_SIZE);
+    }
+
+    /**
+     * Queues a park frame; nothing is sent until {@link #roundTrip}.
+     */
+    public void queuePark(int gateId, int sequence, int typeIndex, CharSequence plate) {
+        GateFrames.putRequest(out, GateFrames.OP_PARK, typeIndex, gateId, sequence, plate);
+    }
+
+    /**
+     * Queues an exit frame; nothing is sent until {@link #roundTrip}.
+     */
+    public void queueExit(int gateId, int sequence, CharSequence plate) {
+        GateFrames.putRequest(out, GateFrames.OP_EXIT, 0, gateId, sequence, plate);
+    }
+
+    /**
+     * Sends every queued frame in one write and waits for all answers.
+     * @return number of answers with STATUS_OK
+     * @throws IOException if the connection fails or answers arrive out of order
+     */
+    public int roundTrip() throws IOException {
+        int frames = out.position() / GateFrames.FRAME_SIZE;
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+        in.clear();
+        in.limit(frames * GateFrames.FRAME_SIZE);
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new IOException("Gate server closed the connection");
+            }
+        }
+        int ok = 0;
+        int previous = Integer.MIN_VALUE;
+        for (int i = 0; i < frames; i++) {
+            int base = i * GateFrames.FRAME_SIZE;
+            int sequence = in.getInt(base + 4);
+            if (sequence < previous) {
+                throw new IOException("Answers out of order at sequence " + sequence);
+            }
+            previous = sequence;
+            if (in.get(base + 1) == GateFrames.STATUS_OK) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Slot ID of the i-th answer from the last round trip.
+     */
+    public String slotIdOf(int index) {
+        GateFrames.getAscii(in, index * GateFrames.FRAME_SIZE + GateFrames.SLOT_OFFSET, GateFrames.SLOT_LENGTH, slotId);
+        return slotId.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Runs an in-process server and drives it with pipelining controllers.
+     * Usage: BinaryGateClient [connections] [window] [rounds]
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        int floors = Math.max(1, (connections * window + 999) / 1000);
+        ParkingService service = new ParkingService(
+                ParkingSimulator.buildLot(floors, 0, 1000, 0), TokenStorage.discarding());
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+
+        try (BinaryGateServer server = new BinaryGateServer(service, 0)) {
+            server.start();
+            int port = server.getPort();
+            LatencyRecorder roundTrips = new LatencyRecorder();
+            long[] okCount = new long[1];
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < connections; c++) {
+                int gateId = c;
+                Thread thread = new Thread(() -> {
+                    StringBuilder plate = new StringBuilder(16);
+                    try (BinaryGateClient client = new BinaryGateClient("127.0.0.1", port, window)) {
+                        int sequence = 0;
+                        long ok = 0;
+                        for (int r = 0; r < rounds; r++) {
+                            long t0 = System.nanoTime();
+                            for (int i = 0; i < window; i++) {
+                                plate.setLength(0);
+                                plate.append("GT").append(1000 + gateId).append('X').append(10000 + i);
+                                client.queuePark(gateId, sequence++, 1, plate);
+                            }
+                            ok += client.roundTrip();
+                            for (int i = 0; i < window; i++) {
+                                plate.setLength(0);
+                                plate.append("GT").append(1000 + gateId).append('X').append(10000 + i);
+                                client.queueExit(gateId, sequence++, plate);
+                            }
+                            ok += client.roundTrip();
+                            synchronized (roundTrips) {
+                                roundTrips.record(System.nanoTime() - t0);
+                            }
+                        }
+                        synchronized (okCount) {
+                            okCount[0] += ok;
+                        }
+                    } catch (IOException e) {
+                        System.out.println("Client " + gateId + " failed: " + e.getMessage());
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            long[] stats = server.getStats();
+            System.out.printf("Connections: %d, window: %d, requests: %d, ok: %d%n",
+                    connections, window, stats[0], okCount[0]);
+            System.out.printf("Throughput: %.0f requests/s, average batch: %.1f requests%n",
+                    stats[0] * 1e9 / elapsed, stats[1] == 0 ? 0.0 : (double) stats[0] / stats[1]);
+            System.out.println("Park+exit window round trip: " + roundTrips.summary());
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package ui.gate;
+
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingReadModel;
+import backend.services.ParkingService;
+import backend.utils.EventLog;
+import backend.utils.VehicleFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking TCP server for the fixed-size binary gate protocol in {@link GateFrames}.
+ *
+ * A single selector thread reads frames from every connection into a pool of
+ * preallocated request slots, dispatches the whole batch to the ParkingService
+ * under one lock acquisition, and writes the responses back in order.
+ * Controllers may pipeline as many frames as they like; a connection is only
+ * read while its output buffer has room for the answers. Socket buffers are
+ * direct and reused, and decoding and encoding work on them in place, so the
+ * network path does not allocate per request (creating the Vehicle and Token
+ * inside the service still does).
+ */
+public class BinaryGateServer implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = GateFrames.MAX_PIPELINE * GateFrames.FRAME_SIZE;   // Per direction, per connection
+    private static final int MAX_BATCH = 4096;
+
+    private final ParkingService parkingService;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+
+    private final GateRequest[] batch;
+    private int batchSize;
+    private final ArrayDeque<Connection> pendingInput;  // Connections holding unread complete frames
+    private final ArrayDeque<Connection> dirty;         // Connections with responses to flush
+
+    // Bound once so the selector loop does not allocate lambdas
+    private final Consumer<SelectionKey> keyHandler = this::onKey;
+    private final Runnable batchDispatcher = this::dispatchBatch;
+
+    private volatile boolean running;
+    private Thread loopThread;
+    private long requestCount;
+    private long batchCount;
+
+    /**
+     * One decoded request, reused across batches.
+     */
+    private static final class GateRequest {
+        Connection connection;
+        byte opcode;
+        int typeIndex;
+        int gateId;
+        int sequence;
+        final StringBuilder plate = new StringBuilder(GateFrames.PLATE_LENGTH);
+        byte status;
+        int fee;
+        String slotId;
+    }
+
+    /**
+     * Per-connection state with its own direct read and write buffers.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        SelectionKey key;
+        int reserved;           // Bytes of out promised to requests in the current batch
+        boolean pending;
+        boolean dirty;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        boolean hasRoomForResponse() {
+            return out.position() + reserved + GateFrames.FRAME_SIZE <= out.capacity();
+        }
+    }
+
+    /**
+     * Binds the server.
+     * @param parkingService service handling gate requests
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public BinaryGateServer(ParkingService parkingService, int port) throws IOException {
+        if (parkingService == null) {
+            throw new IllegalArgumentException("Parking service cannot be null");
+        }
+        this.parkingService = parkingService;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.batch = new GateRequest[MAX_BATCH];
+        for (int i = 0; i < MAX_BATCH; i++) {
+            batch[i] = new GateRequest();
+        }
+        this.pendingInput = new ArrayDeque<>();
+        this.dirty = new ArrayDeque<>();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Starts the selector loop on its own thread.
+     */
+    public void start() {
+        running = true;
+        loopThread = new Thread(this::loop, "binary-gate-selector");
+        loopThread.setDaemon(true);
+        loopThread.start();
+    }
+
+    /**
+     * Total requests answered and batches dispatched so far; their ratio is
+     * the average batch size.
+     */
+    public synchronized long[] getStats() {
+        return new long[]{requestCount, batchCount};
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                try {
+                    if (pendingInput.isEmpty()) {
+                        selector.select(keyHandler);
+                    } else {
+                        selector.selectNow(keyHandler);
+                    }
+                    drainPendingInput();
+                    if (batchSize > 0) {
+                        try {
+                            parkingService.runBatch(batchDispatcher);
+                        } catch (RuntimeException e) {
+                            // Requests not yet run keep the server-error status set when they were decoded
+                            EventLog.error("gate.binary.batch_failed", "error", String.valueOf(e));
+                        }
+                        writeResponses();
+                    }
+                    flushDirty();
+                } catch (RuntimeException e) {
+                    EventLog.error("gate.binary.loop_failed", "error", String.valueOf(e));
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                EventLog.error("gate.binary.stopped", "error", e.getMessage());
+            }
+        }
+    }
+
+    private void onKey(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection conn = (Connection) key.attachment();
+            if (key.isWritable()) {
+                flush(conn);
+            }
+            if (key.isReadable() && !conn.closed) {
+                if (conn.channel.read(conn.in) < 0) {
+                    close(conn);
+                    return;
+                }
+                decode(conn);
+            }
+        } catch (IOException e) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection) {
+                close((Connection) attachment);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection conn = new Connection(channel);
+        conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+    }
+
+    /**
+     * Moves complete frames from a connection's input buffer into the batch,
+     * leaving the connection queued if frames remain.
+     */
+    private void decode(Connection conn) {
+        ByteBuffer in = conn.in;
+        in.flip();
+        while (in.remaining() >= GateFrames.FRAME_SIZE && batchSize < MAX_BATCH && conn.hasRoomForResponse()) {
+            int base = in.position();
+            GateRequest request = batch[batchSize++];
+            request.connection = conn;
+            request.opcode = in.get(base);
+            request.typeIndex = in.get(base + 1);
+            request.gateId = in.getShort(base + 2) & 0xFFFF;
+            request.sequence = in.getInt(base + 4);
+            GateFrames.getAscii(in, base + GateFrames.PLATE_OFFSET, GateFrames.PLATE_LENGTH, request.plate);
+            request.status = GateFrames.STATUS_SERVER_ERROR;
+            conn.reserved += GateFrames.FRAME_SIZE;
+            in.position(base + GateFrames.FRAME_SIZE);
+        }
+        boolean leftover = in.remaining() >= GateFrames.FRAME_SIZE;
+        in.compact();
+        if (!conn.hasRoomForResponse()) {
+            pauseReading(conn);
+        } else if (leftover && !conn.pending) {
+            // Stopped by a full batch: carry on in the next one
+            conn.pending = true;
+            pendingInput.add(conn);
+        }
+    }
+
+    /**
+     * Stops selecting a connection for reads while its output is full, so a
+     * client that does not read its answers cannot keep the loop busy.
+     * {@link #flush} resumes it once answers have been sent.
+     */
+    private void pauseReading(Connection conn) {
+        if (!conn.closed) {
+            conn.key.interestOps(conn.key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    private void drainPendingInput() {
+        int n = pendingInput.size();
+        while (n-- > 0 && batchSize < MAX_BATCH) {
+            Connection conn = pendingInput.poll();
+            conn.pending = false;
+            if (!conn.closed && conn.hasRoomForResponse()) {
+                decode(conn);
+            } else {
+                // Output full: left out of the queue until flush makes room
+                pauseReading(conn);
+            }
+        }
+    }
+
+    /**
+     * Executes every request in the batch; runs under the service lock.
+     */
+    private void dispatchBatch() {
+        for (int i = 0; i < batchSize; i++) {
+            GateRequest request = batch[i];
+            request.fee = 0;
+            request.slotId = null;
+            try {
+                if (request.opcode == GateFrames.OP_PARK || request.opcode == GateFrames.OP_PARK_ONCE) {
+                    if (request.typeIndex < 0 || request.typeIndex >= VehicleFactory.TYPES.length) {
+                        request.status = GateFrames.STATUS_BAD_REQUEST;
+                        continue;
+                    }
+                    Vehicle vehicle = VehicleFactory.create(VehicleFactory.TYPES[request.typeIndex], request.plate.toString());
+                    Token token;
+                    if (request.opcode == GateFrames.OP_PARK_ONCE) {
+                        // A retried frame gets its first token back; a different request for a parked plate still fails
+                        token = parkingService.parkVehicleOnce(vehicle, requestKey(request));
+                    } else {
+                        if (parkingService.isVehicleParked(vehicle.getRegistrationNumber())) {
+                            request.status = GateFrames.STATUS_ALREADY_PARKED;
+                            continue;
+                        }
+                        token = parkingService.parkVehicle(vehicle);
+                    }
+                    request.slotId = token.getSlotId();
+                    request.status = GateFrames.STATUS_OK;
+                } else if (request.opcode == GateFrames.OP_EXIT) {
+                    String regNo = request.plate.toString().trim().toUpperCase();
+                    request.slotId = parkingService.searchVehicle(regNo).getSlotId();
+                    request.fee = parkingService.exitVehicleByRegistration(regNo);
+                    request.status = GateFrames.STATUS_OK;
+                } else if (request.opcode == GateFrames.OP_EXIT_ONCE) {
+                    String regNo = request.plate.toString().trim().toUpperCase();
+                    ParkingReadModel.Entry parked = parkingService.getReadModel().findByPlate(regNo);
+                    request.slotId = parked != null ? parked.getSlot().getSlotId() : null;
+                    request.fee = parkingService.exitVehicleByRegistrationOnce(regNo, requestKey(request));
+                    request.status = GateFrames.STATUS_OK;
+                } else {
+                    request.status = GateFrames.STATUS_BAD_REQUEST;
+                }
+            } catch (SlotNotAvailableException e) {
+                request.status = GateFrames.STATUS_NO_SLOT;
+            } catch (VehicleNotFoundException e) {
+                request.status = GateFrames.STATUS_NOT_PARKED;
+            } catch (IllegalArgumentException e) {
+                request.status = GateFrames.STATUS_BAD_REQUEST;
+            } catch (RuntimeException e) {
+                // E.g. a failed restore or a throwing listener: answer and keep serving the batch
+                request.status = GateFrames.STATUS_SERVER_ERROR;
+                EventLog.error("gate.binary.request_failed", "gate", request.gateId,
+                        "sequence", request.sequence, "error", String.valueOf(e));
+            }
+        }
+    }
+
+    /**
+     * Identifies a *_ONCE request by the controller that sent it.
+     */
+    private static String requestKey(GateRequest request) {
+        return request.gateId + ":" + request.sequence;
+    }
+
+    private void writeResponses() {
+        for (int i = 0; i < batchSize; i++) {
+            GateRequest request = batch[i];
+            Connection conn = request.connection;
+            request.connection = null;
+            conn.reserved -= GateFrames.FRAME_SIZE;
+            if (conn.closed) {
+                continue;
+            }
+            GateFrames.putResponse(conn.out, request.opcode, request.status, request.gateId,
+                    request.sequence, request.fee, request.slotId);
+            if (!conn.dirty) {
+                conn.dirty = true;
+                dirty.add(conn);
+            }
+        }
+        synchronized (this) {
+            requestCount += batchSize;
+            batchCount++;
+        }
+        batchSize = 0;
+    }
+
+    private void flushDirty() {
+        Connection conn;
+        while ((conn = dirty.poll()) != null) {
+            conn.dirty = false;
+            try {
+                flush(conn);
+            } catch (IOException e) {
+                close(conn);
+            }
+        }
+    }
+
+    private void flush(Connection conn) throws IOException {
+        if (conn.closed) {
+            return;
+        }
+        conn.out.flip();
+        conn.channel.write(conn.out);
+        boolean remaining = conn.out.hasRemaining();
+        conn.out.compact();
+        boolean room = conn.hasRoomForResponse();
+        conn.key.interestOps((room ? SelectionKey.OP_READ : 0) | (remaining ? SelectionKey.OP_WRITE : 0));
+        // Frames held back for lack of output space can now be decoded
+        if (room && !conn.pending && conn.in.position() >= GateFrames.FRAME_SIZE) {
+            conn.pending = true;
+            pendingInput.add(conn);
+        }
+    }
+
+    private void close(Connection conn) {
+        conn.closed = true;
+        conn.key.cancel();
+        try {
+            conn.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (loopThread != null) {
+            try {
+                loopThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+}
@@ -0,0 +1,109 @@
+package ui.gate;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the fixed-size binary frames exchanged with barrier controllers.
+ * All integers are big-endian; strings are ASCII, zero-padded.
+ *
+ * <pre>
+ * Request (32 bytes)             Response (32 bytes)
+ *  0     opcode                   0     opcode (echoed)
+ *  1     vehicle type index       1     status
+ *  2-3   gate ID                  2-3   gate ID (echoed)
+ *  4-7   sequence number          4-7   sequence number (echoed)
+ *  8-31  plate                    8-11  fee in rupees (exit only)
+ *                                 12-31 slot ID
+ * </pre>
+ * The vehicle type index follows {@link backend.utils.VehicleFactory#TYPES}.
+ * Sequence numbers let a controller pipeline requests and match answers.
+ * With the *_ONCE opcodes the gate ID and sequence number also identify the
+ * request, so a controller that resends a frame after a timeout gets the
+ * original answer (the token's slot, or the fee) instead of an error; such a
+ * controller must not reuse a sequence number within ten minutes. A repeated
+ * exit answers with the fee only.
+ */
+public final class GateFrames {
+
+    public static final int FRAME_SIZE = 32;
+    public static final int PLATE_OFFSET = 8;
+    public static final int PLATE_LENGTH = 24;
+    public static final int FEE_OFFSET = 8;
+    public static final int SLOT_OFFSET = 12;
+    public static final int SLOT_LENGTH = 20;
+
+    /**
+     * Frames a controller may have in flight per connection. The server stops
+     * reading a connection whose unread answers reach this limit, so a client
+     * that writes more before reading would stall.
+     */
+    public static final int MAX_PIPELINE = 256;
+
+    // Opcodes
+    public static final byte OP_PARK = 1;
+    public static final byte OP_EXIT = 2;
+    public static final byte OP_PARK_ONCE = 3;
+    public static final byte OP_EXIT_ONCE = 4;
+
+    // Response status codes
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_NO_SLOT = 1;
+    public static final byte STATUS_NOT_PARKED = 2;
+    public static final byte STATUS_BAD_REQUEST = 3;
+    public static final byte STATUS_ALREADY_PARKED = 4;
+    public static final byte STATUS_SERVER_ERROR = 5;      // Request failed inside the server, possibly after taking effect
+
+    private GateFrames() {
+    }
+
+    /**
+     * Writes a request frame at the buffer's position.
+     */
+    public static void putRequest(ByteBuffer buffer, byte opcode, int typeIndex, int gateId, int sequence, CharSequence plate) {
+        buffer.put(opcode);
+        buffer.put((byte) typeIndex);
+        buffer.putShort((short) gateId);
+        buffer.putInt(sequence);
+        putAscii(buffer, plate, PLATE_LENGTH);
+    }
+
+    /**
+     * Writes a response frame at the buffer's position.
+     */
+    public static void putResponse(ByteBuffer buffer, byte opcode, byte status, int gateId, int sequence, int fee, CharSequence slotId) {
+        buffer.put(opcode);
+        buffer.put(status);
+        buffer.putShort((short) gateId);
+        buffer.putInt(sequence);
+        buffer.putInt(fee);
+        putAscii(buffer, slotId, SLOT_LENGTH);
+    }
+
+    /**
+     * Writes up to length characters as ASCII bytes and zero-pads the rest,
+     * without allocating.
+     */
+    static void putAscii(ByteBuffer buffer, CharSequence text, int length) {
+        int n = text == null ? 0 : Math.min(text.length(), length);
+        for (int i = 0; i < n; i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+        for (int i = n; i < length; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Reads a zero-padded ASCII field at an absolute index into a StringBuilder.
+     */
+    public static void getAscii(ByteBuffer buffer, int index, int length, StringBuilder into) {
+        into.setLength(0);
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(index + i);
+            if (b == 0) {
+                break;
+            }
+            into.append((char) b);
+        }
+    }
+}
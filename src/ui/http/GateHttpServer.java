@@ -0,0 +1,271 @@
+package ui.http;
+
+import backend.exceptions.InvalidTokenException;
+import backend.exceptions.SlotNotAvailableException;
+import backend.exceptions.VehicleNotFoundException;
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Token;
+import backend.models.Vehicle;
+import backend.services.ParkingService;
+import backend.utils.LayoutLoader;
+import backend.utils.VehicleFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON front end for gate hardware (boom barriers, ANPR cameras).
+ *
+ * Endpoints (parameters as query string or form body):
+ * <pre>
+ * POST /park?regNo=..&type=FOUR_WHEELER  -> {"tokenId","slotId","entryTime"}
+ * POST /exit?tokenId=..                  -> {"tokenId","fee"}
+ * GET  /search?regNo=..                  -> {"regNo","slotId"}
+ * GET  /availability                     -> {"total", "byType":{...}}
+ * </pre>
+ * A park or exit sent with an Idempotency-Key header (or a requestKey
+ * parameter) runs at most once per key: a client retrying after a timeout gets the original token or fee
+ * instead of an "already parked" or "token used" error.
+ * Every response carries an exact Content-Length, so connections stay open
+ * for keep-alive, with Nagle's algorithm off so small responses are not held
+ * back. Requests run on virtual threads when the JDK provides them and on a
+ * fixed thread pool otherwise.
+ */
+public class GateHttpServer {
+
+    private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final String REQUEST_KEY = "requestKey";
+
+    static {
+        // The JDK server leaves Nagle on by default, so on a keep-alive connection each
+        // small response waits for the client's delayed ACK, about 40 ms per request.
+        // Read once when the first server is created; an explicit setting wins.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final ParkingService parkingService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to the given port.
+     * @param parkingService service handling gate requests
+     * @param port port to listen on, 0 for any free port
+     * @param backlog accept queue length, sized for the expected number of concurrent connections
+     * @throws IOException if the port cannot be bound
+     */
+    public GateHttpServer(ParkingService parkingService, int port, int backlog) throws IOException {
+        if (parkingService == null) {
+            throw new IllegalArgumentException("Parking service cannot be null");
+        }
+        this.parkingService = parkingService;
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/park", exchange -> handle(exchange, "POST", this::park));
+        server.createContext("/exit", exchange -> handle(exchange, "POST", this::exit));
+        server.createContext("/search", exchange -> handle(exchange, "GET", this::search));
+        server.createContext("/availability", exchange -> handle(exchange, "GET", this::availability));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, giving in-flight ones up to a second to finish.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handler body producing a JSON response from request parameters.
+     */
+    private interface Endpoint {
+        String respond(Map<String, String> params) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                status = 405;
+                body = error("Method not allowed, use " + method);
+            } else {
+                body = endpoint.respond(parameters(exchange));
+            }
+        } catch (SlotNotAvailableException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (InvalidTokenException e) {
+            status = e.getReason() == InvalidTokenException.Reason.ALREADY_USED ? 409 : 404;
+            body = error(e.getMessage());
+        } catch (VehicleNotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (Exception e) {
+            status = 500;
+            body = error(e.toString());
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String park(Map<String, String> params) throws SlotNotAvailableException {
+        String type = params.getOrDefault("type", "FOUR_WHEELER");
+        Vehicle vehicle = VehicleFactory.create(type, required(params, "regNo"));
+        String requestKey = params.get(REQUEST_KEY);
+        Token token = requestKey != null ? parkingService.parkVehicleOnce(vehicle, requestKey) : parkingService.parkVehicle(vehicle);
+        return new JsonWriter().beginObject()
+                .field("tokenId", token.getTokenId())
+                .field("slotId", token.getSlotId())
+                .field("entryTime", token.getEntryTime().toString())
+                .endObject().toString();
+    }
+
+    private String exit(Map<String, String> params) throws InvalidTokenException {
+        String tokenId = required(params, "tokenId");
+        String requestKey = params.get(REQUEST_KEY);
+        int fee = requestKey != null ? parkingService.exitVehicleOnce(tokenId, requestKey) : parkingService.exitVehicle(tokenId);
+        return new JsonWriter().beginObject()
+                .field("tokenId", tokenId)
+                .field("fee", fee)
+                .endObject().toString();
+    }
+
+    private String search(Map<String, String> params) throws VehicleNotFoundException {
+        String regNo = required(params, "regNo").toUpperCase();
+        ParkingSlot slot = parkingService.searchVehicle(regNo);
+        return new JsonWriter().beginObject()
+                .field("regNo", regNo)
+                .field("slotId", slot.getSlotId())
+                .endObject().toString();
+    }
+
+    private String availability(Map<String, String> params) {
+        JsonWriter json = new JsonWriter().beginObject()
+                .field("total", parkingService.getAvailableSlotCount())
+                .beginObject("byType");
+        for (String type : VehicleFactory.TYPES) {
+            json.field(type, parkingService.getAvailableSlotCount(type));
+        }
+        return json.endObject().endObject().toString();
+    }
+
+    private static String error(String message) {
+        return new JsonWriter().beginObject().field("error", message).endObject().toString();
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    /**
+     * Collects parameters from the query string and, for form posts, the body.
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (body.length > 0) {
+                parseForm(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        String requestKey = exchange.getRequestHeaders().getFirst(IDEMPOTENCY_HEADER);
+        if (requestKey != null) {
+            params.put(REQUEST_KEY, requestKey);
+        }
+        return params;
+    }
+
+    private static void parseForm(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Raises the JDK server's idle keep-alive connection cap (200 by default),
+     * above which it closes connections clients expect to reuse. Must be
+     * called before the first server is created.
+     * @param connections number of keep-alive connections to hold open
+     */
+    public static void configureConnectionLimits(int connections) {
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(connections));
+    }
+
+    /**
+     * Uses a virtual-thread-per-task executor on JDKs that have one (21+),
+     * falling back to a fixed pool of daemon platform threads. Handlers only
+     * wait on the service lock and small socket writes, so a few threads per
+     * core keep up; a cached pool kept creating threads under load instead.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "gate-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Runs the gate API on the lot described by a layout file.
+     * Usage: GateHttpServer [port] [layoutFile], defaulting to layout.txt, or the sample lot if that is missing
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        configureConnectionLimits(1024);
+        List<ParkingFloor> floors = LayoutLoader.loadOrSample(Paths.get(args.length > 1 ? args[1] : "layout.txt"));
+        GateHttpServer server = new GateHttpServer(new ParkingService(floors), port, 1024);
+        server.start();
+        System.out.println("Gate API listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,146 @@
+package ui.http;
+
+import backend.services.ParkingService;
+import backend.simulation.LatencyRecorder;
+import backend.simulation.ParkingSimulator;
+import backend.utils.EventLog;
+import backend.utils.TokenStorage;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for {@link GateHttpServer} using the JDK HTTP client.
+ *
+ * Starts the server in-process on a large simulated lot and runs the given
+ * number of concurrent clients. Each client repeats a gate cycle (park,
+ * search, availability, exit) over its own keep-alive connection, and the
+ * test prints requests per second and latency percentiles.
+ *
+ * Usage: GateLoadTest [concurrentClients] [cyclesPerClient]
+ * At 10k clients both ends of every connection live in this JVM, so the
+ * open-file limit must allow roughly 2x that many sockets. The JDK client
+ * also takes about three times the server's CPU per request, so on a small
+ * machine the figures are bounded by the client; and since every client
+ * waits in the same queue, latency there is roughly clients / throughput,
+ * which past a few cycles per client runs into the 60 s request timeout.
+ */
+public class GateLoadTest {
+
+    private static final Pattern TOKEN_ID = Pattern.compile("\"tokenId\":\"([^\"]+)\"");
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * The warm-up and measured runs share one client: connections it keeps
+     * pooled stay open on the server and count against its idle cap, so a
+     * second client would push the server into closing connections in use.
+     */
+    GateLoadTest(HttpClient client, int port) {
+        this.client = client;
+        this.baseUrl = "http://127.0.0.1:" + port;
+    }
+
+    /**
+     * Sends one request and records its latency; non-2xx answers count as failures.
+     */
+    private CompletableFuture<String> send(String method, String pathAndQuery) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(60))
+                .build();
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    long elapsed = System.nanoTime() - start;
+                    synchronized (latency) {
+                        latency.record(elapsed);
+                    }
+                    requests.incrementAndGet();
+                    if (response.statusCode() >= 300) {
+                        failures.incrementAndGet();
+                    }
+                    return response.body();
+                })
+                .exceptionally(error -> {
+                    requests.incrementAndGet();
+                    failures.incrementAndGet();
+                    return "";
+                });
+    }
+
+    private CompletableFuture<Void> cycle(String regNo) {
+        return send("POST", "/park?type=FOUR_WHEELER&regNo=" + regNo)
+                .thenCompose(body -> send("GET", "/search?regNo=" + regNo).thenApply(ignored -> body))
+                .thenCompose(body -> send("GET", "/availability").thenApply(ignored -> body))
+                .thenCompose(body -> {
+                    Matcher m = TOKEN_ID.matcher(body);
+                    return m.find()
+                            ? send("POST", "/exit?tokenId=" + m.group(1)).thenApply(ignored -> null)
+                            : CompletableFuture.completedFuture(null);
+                });
+    }
+
+    private CompletableFuture<Void> clientLoop(int clientId, int cycles) {
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int c = 0; c < cycles; c++) {
+            String regNo = "LT" + (1_000_000 + clientId) + "C" + c;
+            chain = chain.thenCompose(ignored -> cycle(regNo));
+        }
+        return chain;
+    }
+
+    private void run(int clients, int cycles) {
+        CompletableFuture<?>[] all = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            all[i] = clientLoop(i, cycles);
+        }
+        CompletableFuture.allOf(all).join();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        GateHttpServer.configureConnectionLimits(clients);
+
+        // One four-wheeler slot per client so parks never fail for lack of space
+        int floors = Math.max(1, (clients + 999) / 1000);
+        ParkingService service = new ParkingService(
+                ParkingSimulator.buildLot(floors, 0, 1000, 0), TokenStorage.discarding());
+        GateHttpServer server = new GateHttpServer(service, 0, clients);
+        server.start();
+
+        EventLog.getDefault().setLevel(EventLog.Level.WARN);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        try {
+            new GateLoadTest(client, server.getPort()).run(Math.min(clients, 100), 2);   // Warm-up
+
+            GateLoadTest test = new GateLoadTest(client, server.getPort());
+            long start = System.nanoTime();
+            test.run(clients, cycles);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("Clients: %d, requests: %d, failures: %d%n",
+                    clients, test.requests.get(), test.failures.get());
+            System.out.printf("Throughput: %.0f requests/s%n", test.requests.get() * 1e9 / elapsed);
+            System.out.println("Latency: " + test.latency.summary());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ui.http;
+
+/**
+ * Minimal JSON encoder that appends fields straight into a StringBuilder.
+ * Callers write each field explicitly, so no reflection or object mapping is involved.
+ *
+ * <pre>
+ * String json = new JsonWriter().beginObject()
+ *         .field("slotId", "G1-FW-6")
+ *         .field("fee", 40)
+ *         .endObject().toString();
+ * </pre>
+ */
+public class JsonWriter {
+
+    private final StringBuilder sb;
+    private boolean needComma;
+
+    public JsonWriter() {
+        this.sb = new StringBuilder(128);
+    }
+
+    public JsonWriter beginObject() {
+        separator();
+        sb.append('{');
+        needComma = false;
+        return this;
+    }
+
+    /**
+     * Starts a nested object as the value of a field.
+     */
+    public JsonWriter beginObject(String name) {
+        name(name);
+        sb.append('{');
+        needComma = false;
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        sb.append('}');
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter field(String name, String value) {
+        name(name);
+        if (value == null) {
+            sb.append("null");
+        } else {
+            string(value);
+        }
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter field(String name, long value) {
+        name(name);
+        sb.append(value);
+        needComma = true;
+        return this;
+    }
+
+    public JsonWriter field(String name, boolean value) {
+        name(name);
+        sb.append(value);
+        needComma = true;
+        return this;
+    }
+
+    private void name(String name) {
+        separator();
+        string(name);
+        sb.append(':');
+    }
+
+    private void separator() {
+        if (needComma) {
+            sb.append(',');
+        }
+    }
+
+    /**
+     * Appends a quoted string, escaping characters JSON does not allow raw.
+     */
+    private void string(String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -1,24 +1,29 @@
 package ui.swing;
 
-import backend.models.ParkingFloor;
-import backend.models.ParkingSlot;
 import backend.services.ParkingService;
+import backend.utils.LayoutLoader;
 import ui.swing.components.ControlPanel;
-import ui.swing.components.SlotButton;
+import ui.swing.components.SlotGrid;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * Main JFrame for Smart Parking System GUI.
- * Shows parking slot grid and a control panel for operations.
+ * Shows a scrollable, filterable floor plan of the slots and a control panel for operations.
  */
 public class ParkingFrame extends JFrame {
 
+    private static final String ALL_FLOORS = "All floors";
+    private static final String ALL_TYPES = "All types";
+
     private final ParkingService parkingService;
-    private final JPanel slotGridPanel;
+    private final SlotGrid slotGrid;
     private final ControlPanel controlPanel;
+    private final JComboBox<String> floorFilter;
+    private final JComboBox<String> typeFilter;
 
     public ParkingFrame(ParkingService parkingService) {
         this.parkingService = parkingService;
@@ -28,15 +33,42 @@ public class ParkingFrame extends JFrame {
         setSize(900, 600);
         setLocationRelativeTo(null);
 
-        slotGridPanel = new JPanel();
-        slotGridPanel.setLayout(new GridLayout(0, 12, 5, 5));  // 12 columns
+        slotGrid = new SlotGrid();
+        slotGrid.setFloors(parkingService.getFloors());
+        JScrollPane gridScroll = new JScrollPane(slotGrid);
+        gridScroll.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+
+        floorFilter = new JComboBox<>();
+        floorFilter.addItem(ALL_FLOORS);
+        slotGrid.getFloorIds().forEach(floorFilter::addItem);
+        typeFilter = new JComboBox<>();
+        typeFilter.addItem(ALL_TYPES);
+        slotGrid.getSlotTypes().forEach(typeFilter::addItem);
+        floorFilter.addActionListener(e -> applyFilter());
+        typeFilter.addActionListener(e -> applyFilter());
+
+        JButton zoomOut = new JButton("-");
+        zoomOut.addActionListener(e -> slotGrid.zoom(-1, null));
+        JButton zoomIn = new JButton("+");
+        zoomIn.addActionListener(e -> slotGrid.zoom(1, null));
+
+        JPanel filterBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterBar.add(new JLabel("Floor:"));
+        filterBar.add(floorFilter);
+        filterBar.add(new JLabel("Type:"));
+        filterBar.add(typeFilter);
+        filterBar.add(new JLabel("Zoom:"));
+        filterBar.add(zoomOut);
+        filterBar.add(zoomIn);
+
+        JPanel gridPanel = new JPanel(new BorderLayout());
+        gridPanel.add(filterBar, BorderLayout.NORTH);
+        gridPanel.add(gridScroll, BorderLayout.CENTER);
 
         controlPanel = new ControlPanel(parkingService, this::refreshSlots);
 
-        add(slotGridPanel, BorderLayout.CENTER);
+        add(gridPanel, BorderLayout.CENTER);
         add(controlPanel, BorderLayout.EAST);
-
-        refreshSlots();
     }
 
     /**
@@ -44,39 +76,20 @@ public class ParkingFrame extends JFrame {
      * Called after parking/exit to update UI state.
      */
     public void refreshSlots() {
-    slotGridPanel.removeAll();
-    slotGridPanel.setLayout(new BoxLayout(slotGridPanel, BoxLayout.Y_AXIS)); // Vertical stacking of floor rows
-
-    List<ParkingFloor> floors = parkingService.getFloors();
-
-    for (ParkingFloor floor : floors) {
-        // Create horizontal row panel for this floor
-        JPanel floorRow = new JPanel();
-        floorRow.setLayout(new BoxLayout(floorRow, BoxLayout.X_AXIS));
-        floorRow.setAlignmentX(Component.LEFT_ALIGNMENT);
-        floorRow.setBorder(BorderFactory.createTitledBorder("Floor: " + floor.getFloorId()));
-
-        // Add all slots in this floor as SlotButtons to the row
-        for (ParkingSlot slot : floor.getSlots()) {
-            SlotButton button = new SlotButton(slot);
-            floorRow.add(button);
-            floorRow.add(Box.createRigidArea(new Dimension(5, 0))); // spacing between slots
-        }
-
-        slotGridPanel.add(floorRow);
-        slotGridPanel.add(Box.createRigidArea(new Dimension(0, 10)));  // spacing between floor rows
+        slotGrid.refresh();
     }
 
-    slotGridPanel.revalidate();
-    slotGridPanel.repaint();
-}
+    private void applyFilter() {
+        String floor = (String) floorFilter.getSelectedItem();
+        String type = (String) typeFilter.getSelectedItem();
+        slotGrid.setFilter(ALL_FLOORS.equals(floor) ? null : floor, ALL_TYPES.equals(type) ? null : type);
+    }
 
-    public static void main(String[] args) {
-        // Initialize backend parking data (similar to CLI setup)
-        var floors = List.of(
-                createFloor("G1"),
-                createFloor("F1")
-        );
+    /**
+     * Usage: ParkingFrame [layoutFile], defaulting to layout.txt, or the sample lot if that is missing
+     */
+    public static void main(String[] args) throws IOException {
+        var floors = LayoutLoader.loadOrSample(Paths.get(args.length > 0 ? args[0] : "layout.txt"));
         var parkingService = new ParkingService(floors);
 
         SwingUtilities.invokeLater(() -> {
@@ -84,15 +97,4 @@ public class ParkingFrame extends JFrame {
             frame.setVisible(true);
         });
     }
-
-    private static ParkingFloor createFloor(String floorId) {
-        ParkingFloor floor = new ParkingFloor(floorId);
-        for (int i = 1; i <= 5; i++)
-            floor.addSlot(new ParkingSlot(floorId + "-TW-" + i, "TWO_WHEELER"));
-        for (int i = 6; i <= 12; i++)
-            floor.addSlot(new ParkingSlot(floorId + "-FW-" + i, "FOUR_WHEELER"));
-        for (int i = 13; i <= 15; i++)
-            floor.addSlot(new ParkingSlot(floorId + "-HV-" + i, "HEAVY_VEHICLE"));
-        return floor;
-    }
 }
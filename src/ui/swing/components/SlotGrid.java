@@ -0,0 +1,479 @@
+package ui.swing.components;
+
+import backend.models.ParkingFloor;
+import backend.models.ParkingSlot;
+import backend.models.Vehicle;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Floor plan of every slot in the lot, drawn as one component.
+ *
+ * Replaces a button per slot: occupancy is copied into a byte array by
+ * {@link #refresh()}, and painting fills only the cells inside the visible
+ * area straight into a reusable pixel buffer, so the cost of a frame depends
+ * on the size of the window rather than of the lot. Floors are stacked in
+ * sections under a header, wrapped to the width of the viewport. Can be
+ * zoomed (Ctrl + mouse wheel) and filtered to one floor or slot type;
+ * hovering a cell shows the slot and its vehicle.
+ */
+public class SlotGrid extends JComponent implements Scrollable {
+
+    private static final int[] ZOOM_LEVELS = {2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 60};
+    private static final int LABEL_SIZE = 48;       // Smallest cell that shows its slot ID and status
+    private static final int PAD = 8;
+    private static final int HEADER = 22;           // Height of a floor's title band
+    private static final int SECTION_GAP = 10;
+
+    // Cell colors indexed by ParkingSlot.State ordinal
+    private static final int[] COLORS = {
+            Color.GREEN.getRGB(),       // FREE
+            Color.ORANGE.getRGB(),      // RESERVED
+            Color.RED.getRGB(),         // OCCUPIED
+            Color.GRAY.getRGB()         // OUT_OF_SERVICE
+    };
+    private static final String[] STATUS = {"Free", "Busy", "Occupied", "Closed"};
+
+    /**
+     * Consecutive shown cells of one floor.
+     */
+    private static final class Section {
+        final String floorId;
+        final int first;            // Index into cells
+        final int count;
+        int occupied;
+        int top;                    // y of the header, for the current column count
+        int rows;
+
+        Section(String floorId, int first, int count) {
+            this.floorId = floorId;
+            this.first = first;
+            this.count = count;
+        }
+    }
+
+    private ParkingSlot[] slots = new ParkingSlot[0];
+    private String[] slotFloors = new String[0];        // Floor ID of each slot
+    private byte[] states = new byte[0];                // ParkingSlot.State ordinal of each slot
+    private int[] cells = new int[0];                   // Indexes of the slots that pass the filter, in order
+    private final List<Section> sections = new ArrayList<>();
+    private final Set<String> floorIds = new LinkedHashSet<>();
+    private final Set<String> slotTypes = new LinkedHashSet<>();
+    private List<ParkingFloor> floors = List.of();
+
+    private String floorFilter;                         // Null for all floors
+    private String typeFilter;                          // Null for all types
+    private int zoom = -1;                              // Index into ZOOM_LEVELS, chosen on first load
+    private int layoutWidth = -1;                       // Width the sections were laid out for
+    private int columns = 1;
+    private int height;
+    private BufferedImage buffer;
+
+    public SlotGrid() {
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setFont(new Font("Arial", Font.PLAIN, 11));
+        // Registers with the tooltip manager; the text comes from getToolTipText(MouseEvent)
+        setToolTipText("");
+        addMouseWheelListener(this::wheelMoved);
+    }
+
+    /**
+     * Shows a new set of floors, e.g. after floors or slots were added or retyped.
+     * Keeps the current filters if they still match something.
+     */
+    public void setFloors(List<ParkingFloor> floors) {
+        this.floors = List.copyOf(floors);
+        int total = 0;
+        for (ParkingFloor floor : this.floors) {
+            total += floor.getSlots().size();
+        }
+        slots = new ParkingSlot[total];
+        slotFloors = new String[total];
+        states = new byte[total];
+        floorIds.clear();
+        slotTypes.clear();
+        int i = 0;
+        for (ParkingFloor floor : this.floors) {
+            floorIds.add(floor.getFloorId());
+            for (ParkingSlot slot : floor.getSlots()) {
+                slotTypes.add(slot.getCompatibleType());
+                slotFloors[i] = floor.getFloorId();
+                slots[i++] = slot;
+            }
+        }
+        if (zoom < 0) {
+            // Large lots open zoomed out far enough to see a good part of a floor
+            zoom = levelFor(total <= 500 ? 60 : total <= 5_000 ? 24 : 8);
+        }
+        if (floorFilter != null && !floorIds.contains(floorFilter)) {
+            floorFilter = null;
+        }
+        if (typeFilter != null && !slotTypes.contains(typeFilter)) {
+            typeFilter = null;
+        }
+        applyFilter();
+    }
+
+    /**
+     * Re-reads the occupancy of every slot and repaints.
+     * Cheap enough to call after every operation or from a timer.
+     */
+    public void refresh() {
+        ParkingSlot[] slots = this.slots;
+        for (int i = 0; i < slots.length; i++) {
+            states[i] = (byte) slots[i].getState().ordinal();
+        }
+        for (Section section : sections) {
+            int occupied = 0;
+            for (int c = section.first; c < section.first + section.count; c++) {
+                if (states[cells[c]] == ParkingSlot.State.OCCUPIED.ordinal()) {
+                    occupied++;
+                }
+            }
+            section.occupied = occupied;
+        }
+        repaint();
+    }
+
+    /**
+     * Floor IDs in the order shown, for building a filter control.
+     */
+    public List<String> getFloorIds() {
+        return new ArrayList<>(floorIds);
+    }
+
+    /**
+     * Slot types present in the lot, for building a filter control.
+     */
+    public List<String> getSlotTypes() {
+        return new ArrayList<>(slotTypes);
+    }
+
+    /**
+     * Shows only matching slots.
+     * @param floorId floor to show, or null for all
+     * @param slotType compatible type to show, or null for all
+     */
+    public void setFilter(String floorId, String slotType) {
+        this.floorFilter = floorId;
+        this.typeFilter = slotType;
+        applyFilter();
+    }
+
+    /**
+     * Current cell size in pixels.
+     */
+    public int getCellSize() {
+        return ZOOM_LEVELS[zoom];
+    }
+
+    /**
+     * Zooms in (positive steps) or out (negative), keeping the given point
+     * of the viewport over the same slot when possible.
+     * @param anchor point in this component's coordinates, or null for the top left of the view
+     */
+    public void zoom(int steps, Point anchor) {
+        int next = Math.max(0, Math.min(ZOOM_LEVELS.length - 1, zoom + steps));
+        if (next == zoom) {
+            return;
+        }
+        JViewport viewport = getParent() instanceof JViewport ? (JViewport) getParent() : null;
+        Point view = viewport == null ? new Point() : viewport.getViewPosition();
+        Point at = anchor != null ? anchor : view;
+        int cell = cellAt(at.x, at.y);
+        zoom = next;
+        layoutWidth = -1;
+        revalidate();
+        repaint();
+        if (viewport != null && cell >= 0) {
+            int offsetX = at.x - view.x;
+            int offsetY = at.y - view.y;
+            SwingUtilities.invokeLater(() -> {
+                viewport.getParent().validate();
+                Rectangle bounds = cellBounds(cell);
+                if (bounds != null) {
+                    int x = Math.max(0, bounds.x - offsetX);
+                    int y = Math.max(0, Math.min(bounds.y - offsetY, getHeight() - viewport.getHeight()));
+                    viewport.setViewPosition(new Point(x, y));
+                }
+            });
+        }
+    }
+
+    private void wheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+            zoom(-e.getWheelRotation(), e.getPoint());
+        } else if (getParent() != null) {
+            // A wheel listener here would otherwise swallow scrolling
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+        }
+    }
+
+    private static int levelFor(int cellSize) {
+        int level = 0;
+        while (level + 1 < ZOOM_LEVELS.length && ZOOM_LEVELS[level + 1] <= cellSize) {
+            level++;
+        }
+        return level;
+    }
+
+    private void applyFilter() {
+        int[] shown = new int[slots.length];
+        int count = 0;
+        sections.clear();
+        int i = 0;
+        for (ParkingFloor floor : floors) {
+            int first = count;
+            int end = i + floor.getSlots().size();
+            boolean floorShown = floorFilter == null || floorFilter.equals(floor.getFloorId());
+            for (; i < end; i++) {
+                if (floorShown && (typeFilter == null || typeFilter.equals(slots[i].getCompatibleType()))) {
+                    shown[count++] = i;
+                }
+            }
+            if (floorShown) {
+                sections.add(new Section(floor.getFloorId(), first, count - first));
+            }
+        }
+        cells = Arrays.copyOf(shown, count);
+        layoutWidth = -1;
+        revalidate();
+        refresh();
+    }
+
+    // ---- Layout ----
+
+    private int gap() {
+        int cell = getCellSize();
+        return cell >= 12 ? 2 : cell >= 6 ? 1 : 0;
+    }
+
+    private int pitch() {
+        return getCellSize() + gap();
+    }
+
+    /**
+     * Wraps the sections to the given width and works out where each starts.
+     */
+    private void layoutFor(int width) {
+        if (width == layoutWidth) {
+            return;
+        }
+        layoutWidth = width;
+        columns = Math.max(1, (width - 2 * PAD + gap()) / pitch());
+        int y = PAD;
+        for (Section section : sections) {
+            section.top = y;
+            section.rows = (section.count + columns - 1) / columns;
+            y += HEADER + section.rows * pitch() + SECTION_GAP;
+        }
+        height = y;
+    }
+
+    private int viewWidth() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? parent.getWidth() : getWidth();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int width = viewWidth();
+        if (width <= 0) {
+            width = 2 * PAD + 12 * pitch();
+        }
+        layoutFor(width);
+        return new Dimension(width, height);
+    }
+
+    /**
+     * Index into cells of the cell under a point, or -1 for a gap, header or nothing.
+     */
+    private int cellAt(int x, int y) {
+        layoutFor(getWidth());
+        int pitch = pitch();
+        int column = (x - PAD) / pitch;
+        if (x < PAD || column >= columns || (x - PAD) % pitch >= getCellSize()) {
+            return -1;
+        }
+        for (Section section : sections) {
+            int rowsTop = section.top + HEADER;
+            if (y >= rowsTop && y < rowsTop + section.rows * pitch) {
+                int offset = y - rowsTop;
+                int index = offset / pitch * columns + column;
+                return offset % pitch < getCellSize() && index < section.count ? section.first + index : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Where a cell is drawn, or null if it is no longer shown.
+     */
+    private Rectangle cellBounds(int cell) {
+        layoutFor(getWidth());
+        for (Section section : sections) {
+            if (cell >= section.first && cell < section.first + section.count) {
+                int index = cell - section.first;
+                return new Rectangle(PAD + index % columns * pitch(),
+                        section.top + HEADER + index / columns * pitch(), getCellSize(), getCellSize());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int cell = cellAt(event.getX(), event.getY());
+        if (cell < 0) {
+            return null;
+        }
+        ParkingSlot slot = slots[cells[cell]];
+        Vehicle vehicle = slot.getParkedVehicle();
+        return "<html>Slot ID: " + slot.getSlotId() + " (" + slotFloors[cells[cell]] + ", " + slot.getCompatibleType()
+                + ")<br>" + (vehicle != null ? "Vehicle: " + vehicle.getRegistrationNumber()
+                : "Status: " + (slot.isOutOfService() ? "Out of service" : "Free")) + "</html>";
+    }
+
+    // ---- Painting ----
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        layoutFor(getWidth());
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        clip = clip.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+        if (clip.isEmpty()) {
+            return;
+        }
+        g.drawImage(paintCells(clip), clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                0, 0, clip.width, clip.height, null);
+        paintLabels(g, clip);
+    }
+
+    /**
+     * Fills the cells inside the clip into the pixel buffer.
+     */
+    private BufferedImage paintCells(Rectangle clip) {
+        if (buffer == null || buffer.getWidth() < clip.width || buffer.getHeight() < clip.height) {
+            buffer = new BufferedImage(Math.max(clip.width, buffer == null ? 0 : buffer.getWidth()),
+                    Math.max(clip.height, buffer == null ? 0 : buffer.getHeight()), BufferedImage.TYPE_INT_RGB);
+        }
+        int[] pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+        int stride = buffer.getWidth();
+        int background = getBackground().getRGB();
+        for (int y = 0; y < clip.height; y++) {
+            Arrays.fill(pixels, y * stride, y * stride + clip.width, background);
+        }
+
+        int cell = getCellSize();
+        int pitch = pitch();
+        int clipBottom = clip.y + clip.height;
+        int clipRight = clip.x + clip.width;
+        int firstColumn = Math.max(0, (clip.x - PAD) / pitch);
+        int lastColumn = Math.min(columns - 1, (clipRight - PAD) / pitch);
+        for (Section section : sections) {
+            int rowsTop = section.top + HEADER;
+            if (rowsTop + section.rows * pitch <= clip.y || section.top >= clipBottom) {
+                continue;
+            }
+            int firstRow = Math.max(0, (clip.y - rowsTop) / pitch);
+            int lastRow = Math.min(section.rows - 1, (clipBottom - rowsTop) / pitch);
+            for (int row = firstRow; row <= lastRow; row++) {
+                int y0 = Math.max(clip.y, rowsTop + row * pitch);
+                int y1 = Math.min(clipBottom, rowsTop + row * pitch + cell);
+                int rowFirst = row * columns;
+                for (int column = firstColumn; column <= lastColumn && rowFirst + column < section.count; column++) {
+                    int color = COLORS[states[cells[section.first + rowFirst + column]]];
+                    int x0 = Math.max(clip.x, PAD + column * pitch) - clip.x;
+                    int x1 = Math.min(clipRight, PAD + column * pitch + cell) - clip.x;
+                    if (x1 <= x0) {
+                        continue;       // Clip edge falls in the gap after this cell
+                    }
+                    for (int y = y0; y < y1; y++) {
+                        int offset = (y - clip.y) * stride;
+                        Arrays.fill(pixels, offset + x0, offset + x1, color);
+                    }
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Draws floor headers, and slot IDs when zoomed in far enough to read them.
+     */
+    private void paintLabels(Graphics g, Rectangle clip) {
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        FontMetrics metrics = g2.getFontMetrics();
+        int cell = getCellSize();
+        int pitch = pitch();
+        int clipBottom = clip.y + clip.height;
+        for (Section section : sections) {
+            int rowsTop = section.top + HEADER;
+            if (section.top + HEADER > clip.y && section.top < clipBottom) {
+                g2.setColor(Color.DARK_GRAY);
+                g2.drawString(String.format("Floor: %s   %,d / %,d occupied", section.floorId,
+                        section.occupied, section.count), PAD, section.top + HEADER - 6);
+            }
+            if (cell < LABEL_SIZE || rowsTop + section.rows * pitch <= clip.y || section.top >= clipBottom) {
+                continue;
+            }
+            // Few cells fit on screen at this size, so drawing text per cell is affordable
+            g2.setColor(Color.BLACK);
+            int firstRow = Math.max(0, (clip.y - rowsTop) / pitch);
+            int lastRow = Math.min(section.rows - 1, (clipBottom - rowsTop) / pitch);
+            for (int index = firstRow * columns; index < Math.min(section.count, (lastRow + 1) * columns); index++) {
+                int x = PAD + index % columns * pitch;
+                int y = rowsTop + index / columns * pitch;
+                int slot = cells[section.first + index];
+                drawCentered(g2, metrics, slots[slot].getSlotId(), x, y + cell / 2 - 2, cell);
+                drawCentered(g2, metrics, STATUS[states[slot]], x, y + cell / 2 + metrics.getAscent(), cell);
+            }
+        }
+    }
+
+    private static void drawCentered(Graphics2D g, FontMetrics metrics, String text, int x, int baseline, int width) {
+        g.drawString(text, x + (width - metrics.stringWidth(text)) / 2, baseline);
+    }
+
+    // ---- Scrollable ----
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(2 * PAD + 12 * pitch(), 480);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(16, pitch());
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height - pitch() : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;            // Rows wrap instead of scrolling sideways
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > height;
+    }
+}